@@ -229,7 +229,7 @@ public class Examples {
 		return y;
 	}
 	
-	public static elseIfFollowedByIfBraces(int x) {
+	public static int elseIfFollowedByIfBraces(int x) {
 		int y = 0;
 		
 		if (x > 0) {
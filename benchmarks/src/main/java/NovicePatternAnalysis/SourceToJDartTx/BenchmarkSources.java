@@ -0,0 +1,46 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+/**
+ * Synthetic sources for the benchmarks.
+ */
+class BenchmarkSources {
+
+	private BenchmarkSources() {
+	}
+
+	/**
+	 * @return source for a class Chain whose method f has the given number of plain statements,
+	 *  followed by a chain of chainLength if statements, each the head of an else-if ladder of the given depth
+	 */
+	static String block(int statements, int chainLength, int depth) {
+		StringBuilder sb = new StringBuilder("class Chain {\n");
+		appendMethod(sb, "f", statements, chainLength, depth);
+		return sb.append("}\n").toString();
+	}
+
+	/**
+	 * @return source for a class Chain with the given number of methods, each like block(statements, chainLength, 1)
+	 */
+	static String file(int methods, int statements, int chainLength) {
+		StringBuilder sb = new StringBuilder("public class Chain {\n");
+		for (int i = 0; i < methods; i++) {
+			appendMethod(sb, "f" + i, statements, chainLength, 1);
+		}
+		return sb.append("}\n").toString();
+	}
+
+	private static void appendMethod(StringBuilder sb, String name, int statements, int chainLength, int depth) {
+		sb.append("\tint ").append(name).append("(int x) {\n\t\tint y = 0;\n");
+		for (int i = 0; i < statements; i++) {
+			sb.append("\t\ty += x * ").append(i).append(";\n");
+		}
+		int value = 0;
+		for (int i = 0; i < chainLength; i++) {
+			sb.append("\t\tif (x == ").append(value++).append(") {\n\t\t\ty = ").append(i).append(";\n\t\t}\n");
+			for (int j = 1; j < depth; j++) {
+				sb.append("\t\telse if (x == ").append(value++).append(") {\n\t\t\ty = ").append(-j).append(";\n\t\t}\n");
+			}
+		}
+		sb.append("\t\treturn y;\n\t}\n");
+	}
+}
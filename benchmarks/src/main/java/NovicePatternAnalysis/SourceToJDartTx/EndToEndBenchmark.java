@@ -0,0 +1,87 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transforming a single file the way App does: reading it, building its model, processing and writing it,
+ *  for each combination of options.
+ * The file is a synthetic submission, or the file named by the file parameter, e.g. -p file=../Examples.java
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EndToEndBenchmark {
+
+	@Param({ "" })
+	public String file;
+
+	@Param({ "10", "100" })
+	public int methods;
+
+	@Param({ "", "--sniper", "--intervals" })
+	public String options;
+
+	private Path dir;
+	private Path input;
+	private Path output;
+	private SubmissionTransformer transformer;
+
+	@Setup
+	public void prepare() throws IOException {
+		dir = Files.createTempDirectory("benchmark");
+		if (file.isEmpty()) {
+			input = dir.resolve("Chain.java");
+			Files.write(input, BenchmarkSources.file(methods, 10, 4).getBytes(StandardCharsets.UTF_8));
+		}
+		else {
+			input = dir.resolve(Paths.get(file).getFileName());
+			Files.copy(Paths.get(file), input);
+		}
+		output = dir.resolve("out").resolve(input.getFileName());
+
+		List<String> args = new ArrayList<>();
+		if (!options.isEmpty()) {
+			args.addAll(Arrays.asList(options.split(" ")));
+		}
+		args.add(input.toString());
+		transformer = new SubmissionTransformer(TransformOptions.parse(args.toArray(new String[args.size()])));
+	}
+
+	@TearDown
+	public void close() throws IOException {
+		transformer.close();
+	}
+
+	@Benchmark
+	public TransformResult transform() {
+		TransformResult result = transformer.transform(input, output);
+		if (!result.isSuccess()) {
+			throw new IllegalStateException(result.getError());
+		}
+		return result;
+	}
+}
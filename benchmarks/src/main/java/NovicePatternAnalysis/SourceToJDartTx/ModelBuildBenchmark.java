@@ -0,0 +1,48 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.support.compiler.VirtualFile;
+
+/**
+ * Building the Spoon model of a synthetic submission, by its number of methods.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBuildBenchmark {
+
+	@Param({ "1", "10", "100" })
+	public int methods;
+
+	private String source;
+
+	@Setup
+	public void generate() {
+		source = BenchmarkSources.file(methods, 10, 4);
+	}
+
+	@Benchmark
+	public CtModel buildModel() {
+		Launcher l = new Launcher();
+		l.addInputResource(new VirtualFile(source, "Chain.java"));
+		return l.buildModel();
+	}
+}
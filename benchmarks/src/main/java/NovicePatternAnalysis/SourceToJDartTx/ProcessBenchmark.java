@@ -0,0 +1,74 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+
+/**
+ * BranchCounterProcessor.process on a single synthetic block,
+ *  by the number of other statements in the block, the length of its chain, and the depth of its else-if ladders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessBenchmark {
+
+	@Param({ "10", "1000" })
+	public int statements;
+
+	@Param({ "2", "16", "256" })
+	public int chainLength;
+
+	@Param({ "1", "4" })
+	public int depth;
+
+	@Param({ "FLAGS", "COUNTER", "BITMASK" })
+	public String encoding;
+
+	private CtMethod<?> method;
+	private CtBlock<?> original;
+	private CtBlock<?> body;
+
+	@Setup(Level.Trial)
+	public void parse() {
+		CtClass<?> type = Launcher.parseClass(BenchmarkSources.block(statements, chainLength, depth));
+		method = type.getMethodsByName("f").get(0);
+		original = method.getBody().clone();
+	}
+
+	/**
+	 * Gives every invocation an uninstrumented copy of the block, attached to the method like the original
+	 */
+	@Setup(Level.Invocation)
+	public void copy() {
+		body = original.clone();
+		method.setBody(body);
+	}
+
+	@Benchmark
+	public int process() {
+		BranchCounterProcessor processor = new BranchCounterProcessor(
+				BranchCounterProcessor.Encoding.valueOf(encoding));
+		processor.process(body);
+		return processor.getChainsFound();
+	}
+}
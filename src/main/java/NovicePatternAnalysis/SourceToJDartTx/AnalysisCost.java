@@ -0,0 +1,76 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.List;
+
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtLoop;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.reflect.code.CtIfImpl;
+
+/**
+ * Estimates how long analyzing a chain takes, in arbitrary units, from the shape of its method in the Spoon model.
+ * JDart explores every path through the method: each if statement of the chain doubles the paths,
+ *  and each loop multiplies them by the iterations explored, while the solver's time per path grows
+ *  with the operators and calls in the conditions and with the number of symbolic inputs.
+ * Only the order of estimates is meaningful, see JobScheduler, which learns how long a unit takes.
+ */
+public class AnalysisCost extends CtScanner {
+
+	/** The paths a loop is taken to multiply the paths of its method by */
+	static final int LOOP_FACTOR = 4;
+	private static final int MAX_BRANCHES = 20;
+	private static final int MAX_LOOPS = 10;
+
+	private int operators;
+	private int loops;
+
+	private AnalysisCost() {
+	}
+
+	@Override
+	protected void enter(CtElement element) {
+		if (element instanceof CtLoop) {
+			loops++;
+		}
+		else if (element instanceof CtBinaryOperator<?> || element instanceof CtUnaryOperator<?>
+				|| element instanceof CtInvocation<?>) {
+			operators++;
+		}
+	}
+
+	/**
+	 * @param inputs the chain's ConditionInputs, the only inputs kept symbolic, or none if every parameter is
+	 * @return the estimated cost of analyzing chain, which must not have been instrumented yet
+	 */
+	public static long estimate(List<CtIfImpl> chain, List<String> inputs) {
+		CtExecutable<?> executable = chain.get(0).getParent(CtExecutable.class);
+		while (executable != null && executable.getParent(CtExecutable.class) != null) {
+			executable = executable.getParent(CtExecutable.class);
+		}
+		AnalysisCost conditions = new AnalysisCost();
+		for (CtIfImpl ifStatement : chain) {
+			conditions.scan(ifStatement.getCondition());
+		}
+		AnalysisCost method = new AnalysisCost();
+		method.scan(executable);
+		int symbolic = !inputs.isEmpty() || executable == null ? inputs.size() : executable.getParameters().size();
+		return of(chain.size(), conditions.operators, method.loops, symbolic);
+	}
+
+	/**
+	 * @return the estimated cost of a chain of the given number of if statements, whose conditions have
+	 *  the given number of operators and calls in all, in a method with the given number of loops,
+	 *  with the given number of symbolic inputs
+	 */
+	static long of(int branches, int operators, int loops, int symbolic) {
+		long paths = 1L << Math.min(branches, MAX_BRANCHES);
+		for (int i = Math.min(loops, MAX_LOOPS); i > 0; i--) {
+			paths *= LOOP_FACTOR;
+		}
+		return paths * (1 + operators) * (1 + symbolic);
+	}
+}
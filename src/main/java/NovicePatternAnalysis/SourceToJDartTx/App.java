@@ -1,32 +1,30 @@
 package NovicePatternAnalysis.SourceToJDartTx;
 
-import java.io.FileWriter;
 import java.io.IOException;
 
-import spoon.Launcher;
-import spoon.reflect.CtModel;
-import spoon.reflect.declaration.CtType;
-
 /**
  * Hello world!
  *
  */
 public class App {
-    public static void main( String[] args ) throws IOException {
-		Launcher l = new Launcher();
-		// In the final version, paths to source files will be passed as command line arguments.
-		String source = "Examples.java";
-		l.addInputResource(source);
-		l.addProcessor(new BranchCounterProcessor());		
-		CtModel model = l.buildModel();
-		l.process();
-		
-		try(FileWriter out = new FileWriter("out.java")) {
-			for (CtType<?> t : model.getAllTypes()) {
-				out.write(t.toString());
-			}
+	/**
+	 * The tool version, part of every transform cache key.
+	 * Keep in sync with the version in pom.xml, and bump it when the transformation changes.
+	 */
+	public static final String VERSION = "0.0.1-SNAPSHOT";
+
+    public static void main( String[] args ) throws IOException, InterruptedException {
+		if (args.length == 0) {
+			// With no arguments, transform the bundled examples; see TransformOptions for corpus mode.
+			args = new String[] { "Examples.java" };
+		}
+
+		TransformOptions options = TransformOptions.parse(args);
+		if (options.isServe()) {
+			TransformServer.run(options);
+		}
+		else {
+			new CorpusRunner(options).run();
 		}
-		
-		System.out.println("done");
     }
 }
@@ -1,22 +1,227 @@
 package NovicePatternAnalysis.SourceToJDartTx;
 
-import java.util.Iterator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 
 import spoon.processing.AbstractProcessor;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.code.CtBinaryOperator;
 import spoon.reflect.code.CtBlock;
-import spoon.reflect.code.CtCodeSnippetStatement;
+import spoon.reflect.code.CtBreak;
+import spoon.reflect.code.CtCFlowBreak;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLabelledFlowBreak;
+import spoon.reflect.code.CtLocalVariable;
+import spoon.reflect.code.CtLoop;
+import spoon.reflect.code.CtOperatorAssignment;
 import spoon.reflect.code.CtReturn;
 import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtSwitch;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.reflect.code.CtIfImpl;
 
 public class BranchCounterProcessor extends AbstractProcessor<CtBlock<?>> {
 
+	/**
+	 * How the branches taken in a chain are recorded and checked.
+	 * The message of a chain's assertions is its id, see ChainInfo.getId(), a space, and what was recorded,
+	 *  so that an analysis can tell which chain failed, and which of its branches were taken.
+	 */
+	public enum Encoding {
+		/**
+		 * One boolean per branch, set when the branch is taken,
+		 *  and an {@code assert a ^ b} for each pair of consecutive branches, whose message is every flag
+		 *  of the chain, separated by commas
+		 */
+		FLAGS,
+		/**
+		 * One {@code int branchesXX} per chain, incremented by every branch taken,
+		 *  and a single {@code if (branchesXX == 1) assert false;} as described in Examples.java,
+		 *  whose message is the counter
+		 */
+		COUNTER,
+		/**
+		 * One {@code long branchesXX} per chain, with bit k set by the k-th branch,
+		 *  and a single assertion that at most one bit is set, whose message is the mask.
+		 * A failing run therefore reports every pair of branches that fired together, see BranchMask.
+		 * Chains longer than BranchMask.MAX_BRANCHES fall back to FLAGS.
+		 */
+		BITMASK
+	}
+
+	private final Encoding encoding;
+	private final List<ChainInfo> chains = new ArrayList<>();
+	private final List<CtBlock<?>> instrumentedBlocks = new ArrayList<>();
+	private final Map<CtClass<?>, List<CtMethod<Boolean>>> slices = new LinkedHashMap<>();
+	private Map<File, ? extends Set<Integer>> candidateBlocks = null;
+	private final Map<File, Set<Integer>> candidatesByPosition = new IdentityHashMap<>();
+	private boolean slicing = false;
+	private PairOracle oracle = null;
+	private ShapeIndex shapes = null;
+	private String submission = "";
+	private VerdictMemo memo = null;
+	private final Map<CtExecutable<?>, String> methodShapes = new IdentityHashMap<>();
+	private final Map<CtExecutable<?>, Integer> methodChains = new IdentityHashMap<>();
+	private int blocksVisited = 0;
+	private int branchesInstrumented = 0;
+	private int assertionsEmitted = 0;
+
+	public BranchCounterProcessor() {
+		this(Encoding.FLAGS);
+	}
+
+	public BranchCounterProcessor(Encoding encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * @return the blocks this processor has inserted statements into so far
+	 */
+	public List<CtBlock<?>> getInstrumentedBlocks() {
+		return instrumentedBlocks;
+	}
+
+	/**
+	 * Restricts processing to the blocks opening at the given source offsets in each file,
+	 *  as found by LexicalPrefilter, by the canonical file. By default every block is processed.
+	 */
+	public void setCandidateBlocks(Map<File, ? extends Set<Integer>> candidateBlocks) {
+		this.candidateBlocks = candidateBlocks;
+		candidatesByPosition.clear();
+	}
+
+	/**
+	 * Extracts the guards of chains into methods of their own, see PredicateSlicer,
+	 *  instrumenting only the chains that must be analyzed in their enclosing method.
+	 */
+	public void setSlicing(boolean slicing) {
+		this.slicing = slicing;
+	}
+
+	/**
+	 * Decides chains with oracle where it can, leaving only the chains it can't decide
+	 *  to be instrumented or sliced. By default every chain is left for analysis.
+	 */
+	public void setOracle(PairOracle oracle) {
+		this.oracle = oracle;
+	}
+
+	/**
+	 * Analyzes only the first chain found for each method shape and chain position in shapes,
+	 *  recording the rest as its duplicates without instrumenting, slicing or deciding them.
+	 *  By default every chain is analyzed.
+	 * @param submission the submission the processed chains are found in, which keys the representatives it adds
+	 */
+	public void setShapeIndex(ShapeIndex shapes, String submission) {
+		this.shapes = shapes;
+		this.submission = submission;
+	}
+
+	/**
+	 * Decides the chains whose shape has a verdict in memo, reached by analyzing a chain with the same shape
+	 *  in this run or an earlier one, see VerdictMemo#record. By default no chain is decided that way.
+	 */
+	public void setMemo(VerdictMemo memo) {
+		this.memo = memo;
+	}
+
+	/**
+	 * @return the slices generated so far, by the class they are added to when processing is done
+	 */
+	public Map<CtClass<?>, List<CtMethod<Boolean>>> getSlices() {
+		return slices;
+	}
+
+	/**
+	 * @return the number of if chains instrumented, sliced or decided by this processor so far
+	 */
+	public int getChainsFound() {
+		return chains.size();
+	}
+
+	/**
+	 * @return the if chains instrumented, sliced or decided by this processor so far, in processing order
+	 */
+	public List<ChainInfo> getChains() {
+		return chains;
+	}
+
+	/**
+	 * @return the number of blocks this processor has searched for chains so far
+	 */
+	public int getBlocksVisited() {
+		return blocksVisited;
+	}
+
+	/**
+	 * @return the number of branches of the chains instrumented so far, not counting
+	 *  chains that were sliced, decided or recorded as duplicates
+	 */
+	public int getBranchesInstrumented() {
+		return branchesInstrumented;
+	}
+
+	/**
+	 * @return the number of assertions added to instrumented blocks so far
+	 */
+	public int getAssertionsEmitted() {
+		return assertionsEmitted;
+	}
+
+	@Override
+	public boolean isToBeProcessed(CtBlock<?> body) {
+		if (candidateBlocks == null) {
+			return true;
+		}
+		SourcePosition position = body.getPosition();
+		if (!position.isValidPosition() || position.getFile() == null) {
+			return false;
+		}
+		// Positions share their file, so each file is only made canonical once
+		Set<Integer> candidates = candidatesByPosition.get(position.getFile());
+		if (candidates == null) {
+			candidates = candidateBlocks.get(canonical(position.getFile()));
+			candidates = candidates == null ? Collections.<Integer>emptySet() : candidates;
+			candidatesByPosition.put(position.getFile(), candidates);
+		}
+		return candidates.contains(position.getSourceStart());
+	}
+
+	/**
+	 * @return file with its path made canonical, or absolute if it can't be
+	 */
+	static File canonical(File file) {
+		try {
+			return file.getCanonicalFile();
+		}
+		catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+
 	@Override
 	public void process(CtBlock<?> body) {
+		blocksVisited++;
 		List<CtStatement> statementList = body.getStatements();
 		LinkedList<LinkedList<CtIfImpl>> ifChains = new LinkedList<>();
 		LinkedList<CtIfImpl> chain = new LinkedList<>();
@@ -65,33 +270,411 @@ public class BranchCounterProcessor extends AbstractProcessor<CtBlock<?>> {
 		processIfChains(body, ifChains);
 	}
 
+	/**
+	 * Instruments every chain in body.
+	 * All generated statements are created first, and then applied with a single edit
+	 *  per then-branch and a single edit of body, since inserting into body one statement
+	 *  at a time shifts its statement list on every insert, making long chains quadratic.
+	 */
 	private void processIfChains(CtBlock<?> body, LinkedList<LinkedList<CtIfImpl>> ifChains) {
 		Factory factory = body.getFactory();
+		List<CtStatement> declarations = new ArrayList<>();
+		List<CtStatement> assertions = new ArrayList<>();
+		int assertLine = ifChains.isEmpty() ? 0 : assertLine(body);
 		for (LinkedList<CtIfImpl> chain : ifChains) {
-			Iterator<CtIfImpl> iter = chain.iterator();
-			CtIfImpl prev = iter.next();
-
-			String prevBranch = "branch" + prev.getPosition().getLine();
-			prev.getThenStatement().insertBefore(factory.Code().createCodeSnippetStatement(prevBranch + " = true"));
-			body.insertBegin(factory.Code().createCodeSnippetStatement("boolean " + prevBranch + " = false"));
-
-			while (iter.hasNext()) {
-				CtIfImpl curr = iter.next();
-				String currBranch = "branch" + curr.getPosition().getLine();
-				curr.getThenStatement().insertBefore(factory.Code().createCodeSnippetStatement(currBranch + " = true"));
-				body.insertBegin(factory.Code().createCodeSnippetStatement("boolean " + currBranch + " = false"));
-
-				CtCodeSnippetStatement assertXor = factory.Code()
-						.createCodeSnippetStatement("assert " + prevBranch + " ^ " + currBranch);
-				if (body.getLastStatement() instanceof CtReturn<?>) {
-					body.addStatement(body.getStatements().size() - 1, assertXor);
+			String shape = shapes == null && memo == null ? "" : shape(body);
+			ChainInfo representative = shapes == null ? null : shapes.representative(shape);
+			if (representative != null) {
+				chains.add(duplicate(body, chain, representative).withShape(shape, shapes.key(shape)));
+				continue;
+			}
+
+			Verdict verdict = memo == null || shape.isEmpty() ? null : memo.get(VerdictMemo.chainKey(shape));
+			if (verdict == null) {
+				verdict = oracle == null ? Verdict.UNKNOWN : decide(chain);
+			}
+			if (verdict != Verdict.UNKNOWN) {
+				record(describe(body, chain, Collections.<String>emptyList(),
+						Collections.<CtMethod<Boolean>>emptyList(), verdict).withShape(shape, ""));
+				continue;
+			}
+
+			List<CtMethod<Boolean>> chainSlices = slicing ? PredicateSlicer.slice(chain) : null;
+			if (chainSlices != null) {
+				addSlices(body.getParent(CtClass.class), chainSlices);
+				record(describe(body, chain, Collections.<String>emptyList(), chainSlices, verdict)
+						.withShape(shape, ""));
+				continue;
+			}
+
+			// Computed before the chain's then-branches are instrumented
+			List<String> inputs = ConditionInputs.of(chain);
+			long cost = AnalysisCost.estimate(chain, inputs);
+			int assertionsBefore = assertions.size();
+			String id = describeNames(body, chain, Collections.<String>emptyList(),
+					Collections.<String>emptyList(), verdict).getId();
+			List<String> variables;
+			switch (encodingOf(chain)) {
+			case COUNTER:
+				variables = instrumentCounter(factory, id, chain, declarations, assertions);
+				break;
+			case BITMASK:
+				variables = instrumentBitmask(factory, id, chain, declarations, assertions);
+				break;
+			default:
+				variables = instrumentFlags(factory, id, chain, declarations, assertions);
+				break;
+			}
+			branchesInstrumented += chain.size();
+			record(describe(body, chain, variables, Collections.<CtMethod<Boolean>>emptyList(), verdict)
+					.withShape(shape, "").withAssertions(assertions.size() - assertionsBefore, assertLine)
+					.withCost(cost).withInputs(inputs).withExits(hasExits(body, chain)));
+		}
+
+		if (declarations.isEmpty()) {
+			return;
+		}
+		instrumentedBlocks.add(body);
+		assertionsEmitted += assertions.size();
+
+		// Declarations are listed last branch first, the order they had when inserted one at a time
+		Collections.reverse(declarations);
+		List<CtStatement> original = body.getStatements();
+		List<CtStatement> statements = new ArrayList<>(declarations.size() + original.size() + assertions.size());
+		statements.addAll(declarations);
+		if (body.getLastStatement() instanceof CtReturn<?>) {
+			statements.addAll(original.subList(0, original.size() - 1));
+			statements.addAll(assertions);
+			statements.add(body.getLastStatement());
+		}
+		else {
+			statements.addAll(original);
+			statements.addAll(assertions);
+		}
+		body.setStatements(statements);
+	}
+
+	/**
+	 * @return the source line assertions added to body go before: that of its final return statement,
+	 *  or else its closing line, or 0 if body has no position
+	 */
+	private static int assertLine(CtBlock<?> body) {
+		SourcePosition position = body.getLastStatement() instanceof CtReturn<?>
+				? body.getLastStatement().getPosition() : body.getPosition();
+		if (!position.isValidPosition()) {
+			return 0;
+		}
+		return body.getLastStatement() instanceof CtReturn<?> ? position.getLine() : position.getEndLine();
+	}
+
+	/**
+	 * @return true if a return, throw, break or continue from the start of chain on can leave body
+	 *  without reaching the assertions added at its end, i.e. any but body's final return,
+	 *  and the breaks and continues of loops and switches within body
+	 */
+	private static boolean hasExits(CtBlock<?> body, List<CtIfImpl> chain) {
+		int start = chain.get(0).getPosition().getSourceStart();
+		CtExecutable<?> executable = body.getParent(CtExecutable.class);
+		for (CtCFlowBreak exit : body.getElements(new TypeFilter<>(CtCFlowBreak.class))) {
+			if (exit == body.getLastStatement() && exit instanceof CtReturn<?>
+					|| exit.getParent(CtExecutable.class) != executable
+					|| exit.getPosition().getSourceStart() < start) {
+				continue;
+			}
+			if (exit instanceof CtLabelledFlowBreak) {
+				CtStatement target = target((CtLabelledFlowBreak) exit);
+				if (target != null && target.hasParent(body)) {
+					continue;
 				}
-				else {
-					body.insertEnd(assertXor);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the statement exit breaks out of or continues, or null if it isn't found
+	 */
+	private static CtStatement target(CtLabelledFlowBreak exit) {
+		for (CtElement parent = exit.getParent(); parent != null;
+				parent = parent.isParentInitialized() ? parent.getParent() : null) {
+			if (exit.getTargetLabel() != null ? parent instanceof CtStatement
+					&& exit.getTargetLabel().equals(((CtStatement) parent).getLabel())
+					: parent instanceof CtLoop || (exit instanceof CtBreak && parent instanceof CtSwitch<?>)) {
+				return (CtStatement) parent;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the encoding chain is instrumented with: that of this processor,
+	 *  except for chains too long for a bitmask, which fall back to FLAGS
+	 */
+	private Encoding encodingOf(List<CtIfImpl> chain) {
+		if (encoding == Encoding.BITMASK && chain.size() > BranchMask.MAX_BRANCHES) {
+			return Encoding.FLAGS;
+		}
+		return encoding;
+	}
+
+	/**
+	 * Adds a flag to each branch of chain, and an assertion that each pair of consecutive flags differ.
+	 * @return the names of the flags
+	 */
+	private static List<String> instrumentFlags(Factory factory, String id, List<CtIfImpl> chain,
+			List<CtStatement> declarations, List<CtStatement> assertions) {
+		List<String> variables = new ArrayList<>();
+		List<CtLocalVariable<Boolean>> flags = new ArrayList<>();
+		List<CtAssert<String>> asserts = new ArrayList<>();
+		CtLocalVariable<Boolean> prevBranch = null;
+		for (CtIfImpl curr : chain) {
+			CtLocalVariable<Boolean> currBranch = factory.Code().createLocalVariable(
+					factory.Type().booleanPrimitiveType(), "branch" + curr.getPosition().getLine(),
+					factory.Code().createLiteral(false));
+			curr.getThenStatement().insertBefore(factory.Code().createVariableAssignment(
+					currBranch.getReference(), false, factory.Code().createLiteral(true)));
+			declarations.add(currBranch);
+			variables.add(currBranch.getSimpleName());
+			flags.add(currBranch);
+
+			if (prevBranch != null) {
+				CtBinaryOperator<Boolean> xor = factory.Code().<Boolean>createBinaryOperator(
+						read(factory, prevBranch), read(factory, currBranch), BinaryOperatorKind.BITXOR);
+				xor.setType(factory.Type().booleanPrimitiveType());
+				CtAssert<String> assertXor = factory.Core().createAssert();
+				assertXor.setAssertExpression(xor);
+				assertions.add(assertXor);
+				asserts.add(assertXor);
+			}
+			prevBranch = currBranch;
+		}
+		for (CtAssert<String> assertXor : asserts) {
+			assertXor.setExpression(message(factory, id, flags));
+		}
+		return variables;
+	}
+
+	/**
+	 * Adds a single counter for chain, incremented at the start of each branch,
+	 *  and a check that fails when exactly one branch was taken.
+	 * The increment goes first rather than last in each branch,
+	 *  so that it is still reached when the branch ends in a return or break.
+	 * @return the name of the counter
+	 */
+	private static List<String> instrumentCounter(Factory factory, String id, List<CtIfImpl> chain,
+			List<CtStatement> declarations, List<CtStatement> assertions) {
+		CtLocalVariable<Integer> counter = factory.Code().createLocalVariable(factory.Type().integerPrimitiveType(),
+				"branches" + chain.get(0).getPosition().getLine(), factory.Code().createLiteral(0));
+		declarations.add(counter);
+
+		for (CtIfImpl curr : chain) {
+			CtUnaryOperator<Integer> increment = factory.Core().createUnaryOperator();
+			increment.setKind(UnaryOperatorKind.POSTINC);
+			increment.setOperand(factory.Code().createVariableWrite(counter.getReference(), false));
+			curr.getThenStatement().insertBefore(increment);
+		}
+
+		CtBinaryOperator<Boolean> once = factory.Code().<Boolean>createBinaryOperator(
+				factory.Code().createVariableRead(counter.getReference(), false), factory.Code().createLiteral(1),
+				BinaryOperatorKind.EQ);
+		once.setType(factory.Type().booleanPrimitiveType());
+		CtAssert<String> assertFalse = factory.Core().createAssert();
+		assertFalse.setAssertExpression(factory.Code().createLiteral(false));
+		assertFalse.setExpression(message(factory, id, Collections.singletonList(counter)));
+		CtIf check = factory.Core().createIf();
+		check.setCondition(once);
+		check.setThenStatement(factory.Code().createCtBlock(assertFalse));
+		assertions.add(check);
+
+		return Collections.singletonList(counter.getSimpleName());
+	}
+
+	/**
+	 * Adds a single mask for chain, with each branch setting its own bit,
+	 *  and an assertion that at most one bit is set, i.e. {@code (mask & (mask - 1)) == 0}.
+	 * @return the name of the mask
+	 */
+	private static List<String> instrumentBitmask(Factory factory, String id, List<CtIfImpl> chain,
+			List<CtStatement> declarations, List<CtStatement> assertions) {
+		CtLocalVariable<Long> mask = factory.Code().createLocalVariable(factory.Type().longPrimitiveType(),
+				"branches" + chain.get(0).getPosition().getLine(), factory.Code().createLiteral(0L));
+		declarations.add(mask);
+
+		for (int i = 0; i < chain.size(); i++) {
+			CtOperatorAssignment<Long, Long> setBit = factory.Core().createOperatorAssignment();
+			setBit.setKind(BinaryOperatorKind.BITOR);
+			setBit.setAssigned(factory.Code().createVariableWrite(mask.getReference(), false));
+			setBit.setAssignment(factory.Code().createLiteral(BranchMask.bit(i)));
+			chain.get(i).getThenStatement().insertBefore(setBit);
+		}
+
+		CtBinaryOperator<Long> minusOne = factory.Code().<Long>createBinaryOperator(
+				factory.Code().createVariableRead(mask.getReference(), false), factory.Code().createLiteral(1L),
+				BinaryOperatorKind.MINUS);
+		minusOne.setType(factory.Type().longPrimitiveType());
+		CtBinaryOperator<Long> overlap = factory.Code().<Long>createBinaryOperator(
+				factory.Code().createVariableRead(mask.getReference(), false), minusOne, BinaryOperatorKind.BITAND);
+		overlap.setType(factory.Type().longPrimitiveType());
+		CtBinaryOperator<Boolean> atMostOne = factory.Code().<Boolean>createBinaryOperator(overlap,
+				factory.Code().createLiteral(0L), BinaryOperatorKind.EQ);
+		atMostOne.setType(factory.Type().booleanPrimitiveType());
+
+		CtAssert<String> assertMask = factory.Core().createAssert();
+		assertMask.setAssertExpression(atMostOne);
+		assertMask.setExpression(message(factory, id, Collections.singletonList(mask)));
+		assertions.add(assertMask);
+
+		return Collections.singletonList(mask.getSimpleName());
+	}
+
+	/**
+	 * @return the message of the assertions of the chain with the given id: {@code "id " + a + "," + b ...},
+	 *  for the variables a, b ... recorded for the chain
+	 */
+	private static CtExpression<String> message(Factory factory, String id,
+			List<? extends CtLocalVariable<?>> variables) {
+		CtExpression<String> message = factory.Code().createLiteral(id + " ");
+		for (int i = 0; i < variables.size(); i++) {
+			if (i > 0) {
+				message = concat(factory, message, factory.Code().createLiteral(","));
+			}
+			message = concat(factory, message, factory.Code().createVariableRead(variables.get(i).getReference(),
+					false));
+		}
+		return message;
+	}
+
+	private static CtExpression<String> concat(Factory factory, CtExpression<String> left, CtExpression<?> right) {
+		CtBinaryOperator<String> concat = factory.Code().createBinaryOperator(left, right, BinaryOperatorKind.PLUS);
+		concat.setType(factory.Type().stringType());
+		return concat;
+	}
+
+	/**
+	 * @return OVERLAPPING if oracle finds any pair of branches in chain overlapping,
+	 *  EXCLUSIVE if it finds every pair exclusive, and UNKNOWN otherwise
+	 */
+	private Verdict decide(List<CtIfImpl> chain) {
+		ChainGuards guards = new ChainGuards(chain);
+		Verdict verdict = Verdict.EXCLUSIVE;
+		for (int i = 0; i < chain.size(); i++) {
+			for (int j = i + 1; j < chain.size(); j++) {
+				Verdict pair = oracle.decide(guards, i, j);
+				if (pair == Verdict.OVERLAPPING) {
+					return pair;
 				}
+				if (pair == Verdict.UNKNOWN) {
+					verdict = Verdict.UNKNOWN;
+				}
+			}
+		}
+		return verdict;
+	}
+
+	private void record(ChainInfo chain) {
+		chains.add(chain);
+		if (shapes != null) {
+			shapes.register(submission, chain);
+		}
+	}
+
+	/**
+	 * @return the ShapeIndex key for the next chain in body: the shape of the outermost executable
+	 *  enclosing body, and the number of chains found in it so far.
+	 *  The shape is computed when the first chain is found, before anything in the executable is changed.
+	 */
+	private String shape(CtBlock<?> body) {
+		CtExecutable<?> executable = body.getParent(CtExecutable.class);
+		if (executable == null) {
+			return "";
+		}
+		while (executable.getParent(CtExecutable.class) != null) {
+			executable = executable.getParent(CtExecutable.class);
+		}
+
+		String shape = methodShapes.get(executable);
+		if (shape == null) {
+			shape = MethodShape.of(executable);
+			methodShapes.put(executable, shape);
+		}
+		Integer count = methodChains.get(executable);
+		count = count == null ? 0 : count + 1;
+		methodChains.put(executable, count);
+		return shape + "#" + count;
+	}
+
+	/**
+	 * @return chain as a duplicate of representative: given the verdict it was given,
+	 *  and the names it would have been given had it been instrumented or sliced in the same way
+	 */
+	private ChainInfo duplicate(CtBlock<?> body, List<CtIfImpl> chain, ChainInfo representative) {
+		List<String> variables = new ArrayList<>();
+		if (!representative.getVariables().isEmpty()) {
+			if (representative.getVariables().size() == 1 && chain.size() > 1) {
+				variables.add("branches" + chain.get(0).getPosition().getLine());
+			}
+			else {
+				for (CtIfImpl ifStatement : chain) {
+					variables.add("branch" + ifStatement.getPosition().getLine());
+				}
+			}
+		}
+		List<String> sliceNames = new ArrayList<>();
+		if (representative.isSliced()) {
+			for (int i = 0; i < chain.size(); i++) {
+				for (int j = i + 1; j < chain.size(); j++) {
+					sliceNames.add(PredicateSlicer.name(chain.get(i), chain.get(j)));
+				}
+			}
+		}
+		return describeNames(body, chain, variables, sliceNames, representative.getVerdict());
+	}
+
+	private static CtExpression<Boolean> read(Factory factory, CtLocalVariable<Boolean> variable) {
+		return factory.Code().createVariableRead(variable.getReference(), false);
+	}
+
+	private void addSlices(CtClass<?> type, List<CtMethod<Boolean>> chainSlices) {
+		List<CtMethod<Boolean>> typeSlices = slices.get(type);
+		if (typeSlices == null) {
+			typeSlices = new ArrayList<>();
+			slices.put(type, typeSlices);
+		}
+		typeSlices.addAll(chainSlices);
+	}
 
-				prevBranch = currBranch;
+	/**
+	 * Adds the slices to their classes once every block has been processed,
+	 *  rather than changing a class's members while they are being scanned.
+	 */
+	@Override
+	public void processingDone() {
+		for (Map.Entry<CtClass<?>, List<CtMethod<Boolean>>> entry : slices.entrySet()) {
+			for (CtMethod<Boolean> slice : entry.getValue()) {
+				entry.getKey().addMethod(slice);
 			}
 		}
 	}
+
+	private ChainInfo describe(CtBlock<?> body, LinkedList<CtIfImpl> chain, List<String> variables,
+			List<CtMethod<Boolean>> chainSlices, Verdict verdict) {
+		List<String> sliceNames = new ArrayList<>();
+		for (CtMethod<Boolean> slice : chainSlices) {
+			sliceNames.add(slice.getSimpleName());
+		}
+		return describeNames(body, chain, variables, sliceNames, verdict);
+	}
+
+	private static ChainInfo describeNames(CtBlock<?> body, List<CtIfImpl> chain, List<String> variables,
+			List<String> sliceNames, Verdict verdict) {
+		CtType<?> type = body.getParent(CtType.class);
+		CtExecutable<?> executable = body.getParent(CtExecutable.class);
+		List<Integer> lines = new ArrayList<>();
+		for (CtIfImpl ifStatement : chain) {
+			lines.add(ifStatement.getPosition().getLine());
+		}
+		return new ChainInfo(type == null ? "" : type.getQualifiedName(),
+				executable == null ? "" : executable.getSignature(), lines, variables, sliceNames, verdict);
+	}
 }
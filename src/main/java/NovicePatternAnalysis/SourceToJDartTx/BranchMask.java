@@ -0,0 +1,77 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the masks recorded by the BITMASK encoding of BranchCounterProcessor,
+ *  where bit k of a chain's mask is set when the k-th if statement of the chain is taken.
+ * A single failing run yields the mask of every branch taken, and so every pair
+ *  of branches that can fire together on that input, without a separate run per pair.
+ */
+public class BranchMask {
+
+	/** The longest chain that fits in a single long mask */
+	public static final int MAX_BRANCHES = Long.SIZE;
+
+	private BranchMask() {
+	}
+
+	/**
+	 * @return the bit set by the branch at index in its chain
+	 */
+	public static long bit(int index) {
+		if (index < 0 || index >= MAX_BRANCHES) {
+			throw new IllegalArgumentException("No bit for branch " + index);
+		}
+		return 1L << index;
+	}
+
+	/**
+	 * @return every pair {i, j}, i < j, of branch indices whose bits are both set in mask
+	 */
+	public static List<int[]> coFiringPairs(long mask) {
+		List<int[]> pairs = new ArrayList<>();
+		for (int i = 0; i < MAX_BRANCHES; i++) {
+			if ((mask & bit(i)) == 0) {
+				continue;
+			}
+			for (int j = i + 1; j < MAX_BRANCHES; j++) {
+				if ((mask & bit(j)) != 0) {
+					pairs.add(new int[] { i, j });
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * @return every pair {line i, line j} of if statements in chain that both fired in the run that recorded mask
+	 */
+	public static List<int[]> coFiringLines(ChainInfo chain, long mask) {
+		List<int[]> lines = new ArrayList<>();
+		for (int[] pair : coFiringPairs(mask)) {
+			if (pair[1] >= chain.getLines().size()) {
+				throw new IllegalArgumentException("Mask " + Long.toBinaryString(mask) + " does not fit " + chain);
+			}
+			lines.add(new int[] { chain.getLines().get(pair[0]), chain.getLines().get(pair[1]) });
+		}
+		return lines;
+	}
+
+	/**
+	 * Parses the mask reported as the message of a failed BITMASK assertion.
+	 */
+	public static long fromAssertion(AssertionError error) {
+		return fromMessage(error.getMessage());
+	}
+
+	/**
+	 * Parses the mask in the message of a failed BITMASK assertion: the chain's id, a space and the mask,
+	 *  see BranchCounterProcessor.Encoding, or the mask alone.
+	 * @throws NumberFormatException if message doesn't end in a mask
+	 */
+	public static long fromMessage(String message) {
+		return Long.parseLong(message.substring(message.lastIndexOf(' ') + 1));
+	}
+}
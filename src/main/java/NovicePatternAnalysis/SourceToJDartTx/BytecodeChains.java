@@ -0,0 +1,723 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Finds the chains of if statements in the compiled code of a method, as BranchCounterProcessor finds
+ *  them in source: runs of two or more consecutive if statements in the same block, the last of which
+ *  may have an else branch.
+ *
+ * The method's code is recorded as a list of events, one per visit of an instruction, label, line number
+ *  or frame, so that BytecodeInstrumenter can replay the same visits and insert code at given events.
+ * An if statement is recognized as javac compiles it: a condition on a single statement line, made of
+ *  conditional jumps either into the condition or to the end of the then branch, followed by a then branch
+ *  that ends in a jump past its else branch, if it has one. The next if statement of a chain starts where
+ *  the then branch ends, unless a jump from before the chain lands there, ending an enclosing block,
+ *  such as the goto past an else branch. As in source, the last if statement of an else-if ladder
+ *  may still start a chain with the if statements after the ladder.
+ *  Since javac compiles {@code if (a) return; else b;} and {@code if (a) return; b;} alike, and likewise
+ *  a continue at the end of a loop body and an else, such chains may end one statement later than in source.
+ *  Chains are also found in the statements of switch cases, which aren't blocks in source, and ifs on
+ *  the same line as the statement before them can't be told apart, and don't start chains.
+ */
+class BytecodeChains extends MethodVisitor {
+
+	static final int LABEL = 0;
+	static final int LINE = 1;
+	static final int FRAME = 2;
+	static final int INSN = 3;
+	static final int JUMP = 4;
+	static final int SWITCH = 5;
+
+	/**
+	 * A visit to the method visitor, in the order ClassReader makes them.
+	 */
+	static class Event {
+		final int kind;
+		final int opcode;
+		final Label label;
+		final Label[] targets;
+		final int line;
+		final Object[] locals;
+		final Object[] stack;
+		/** True for instructions that end an expression: stores, void calls, returns, throws and jumps */
+		final boolean effect;
+
+		Event(int kind, int opcode, Label label, Label[] targets, int line, Object[] locals, Object[] stack,
+				boolean effect) {
+			this.kind = kind;
+			this.opcode = opcode;
+			this.label = label;
+			this.targets = targets;
+			this.line = line;
+			this.locals = locals;
+			this.stack = stack;
+			this.effect = effect;
+		}
+	}
+
+	/**
+	 * A chain found in the method, and where BytecodeInstrumenter instruments it.
+	 */
+	static class Chain {
+		/** The lines of the if statements */
+		final List<Integer> lines = new ArrayList<>();
+		/** The events before which each branch's flag is set */
+		final List<Integer> thenStarts = new ArrayList<>();
+		/** The first local variable slot of the chain's flags */
+		int firstSlot;
+		/** The event before which the flags are cleared: the chain's first instruction */
+		int initAt;
+		/**
+		 * The event before which the assertions are inserted: the first label at the end of the chain,
+		 *  or the back edge of the while loop whose body the chain ends
+		 */
+		int endAt;
+		/** The line of the statement after the chain, or 0 if unknown, as when the chain ends a for loop's body */
+		int endLine;
+		/** The frame at the end of the chain */
+		Object[] endLocals;
+		Object[] endStack;
+		/** The GOTO events from outside the chain into it, before which the flags are also cleared */
+		final Set<Integer> resets = new HashSet<>();
+		/** True if the chain returns, throws or jumps out of itself other than to its assertions */
+		boolean exits;
+
+		int size() {
+			return lines.size();
+		}
+	}
+
+	private final List<Event> events = new ArrayList<>();
+	private final Map<Label, Integer> labels = new IdentityHashMap<>();
+	private final List<Label[]> handlers = new ArrayList<>();
+	private final List<Chain> chains = new ArrayList<>();
+	/** The else-if ladders whose last if statement starts at each instruction event */
+	private final Map<Integer, Ladder> ladders = new HashMap<>();
+	/** Jump events, and each of their targets, retargeted to the assertions of a chain */
+	private final Map<Integer, Map<Integer, Chain>> retargets = new HashMap<>();
+	private int maxLocals;
+
+	BytecodeChains() {
+		super(Opcodes.ASM9);
+	}
+
+	List<Event> getEvents() {
+		return events;
+	}
+
+	List<Chain> getChains() {
+		return chains;
+	}
+
+	int getMaxLocals() {
+		return maxLocals;
+	}
+
+	/**
+	 * @return the chain whose assertions the target-th target of the jump at event should go to instead,
+	 *  or null if it is left as is
+	 */
+	Chain retarget(int event, int target) {
+		Map<Integer, Chain> byTarget = retargets.get(event);
+		return byTarget == null ? null : byTarget.get(target);
+	}
+
+	/**
+	 * @return the chains ending at the label at event, innermost first
+	 */
+	List<Chain> endingAt(int event) {
+		List<Chain> ending = new ArrayList<>();
+		for (Chain chain : chains) {
+			if (chain.endAt == event) {
+				ending.add(chain);
+			}
+		}
+		Collections.sort(ending, new Comparator<Chain>() {
+			@Override
+			public int compare(Chain a, Chain b) {
+				return Integer.compare(b.initAt, a.initAt);
+			}
+		});
+		return ending;
+	}
+
+	/**
+	 * @return true if the flags of chain have been set on every path to the frame at event
+	 */
+	static boolean isActive(Chain chain, int event) {
+		return chain.initAt < event && event < chain.endAt;
+	}
+
+	private void add(int kind, int opcode, Label label, Label[] targets, int line, Object[] locals,
+			Object[] stack, boolean effect) {
+		events.add(new Event(kind, opcode, label, targets, line, locals, stack, effect));
+	}
+
+	private void insn(int opcode, boolean effect) {
+		add(INSN, opcode, null, null, 0, null, null, effect);
+	}
+
+	@Override
+	public void visitLabel(Label label) {
+		labels.put(label, events.size());
+		add(LABEL, 0, label, null, 0, null, null, false);
+	}
+
+	@Override
+	public void visitLineNumber(int line, Label start) {
+		add(LINE, 0, start, null, line, null, null, false);
+	}
+
+	@Override
+	public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+		add(FRAME, type, null, null, 0, copy(local, numLocal), copy(stack, numStack), false);
+	}
+
+	@Override
+	public void visitInsn(int opcode) {
+		insn(opcode, opcode == Opcodes.POP || opcode == Opcodes.POP2 || (opcode >= Opcodes.IASTORE
+				&& opcode <= Opcodes.SASTORE) || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+				|| opcode == Opcodes.ATHROW || opcode == Opcodes.MONITORENTER || opcode == Opcodes.MONITOREXIT);
+	}
+
+	@Override
+	public void visitIntInsn(int opcode, int operand) {
+		insn(opcode, false);
+	}
+
+	@Override
+	public void visitVarInsn(int opcode, int var) {
+		insn(opcode, opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE || opcode == Opcodes.RET);
+	}
+
+	@Override
+	public void visitTypeInsn(int opcode, String type) {
+		insn(opcode, false);
+	}
+
+	@Override
+	public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+		insn(opcode, opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC);
+	}
+
+	@Override
+	public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+		insn(opcode, descriptor.endsWith(")V"));
+	}
+
+	@Override
+	public void visitInvokeDynamicInsn(String name, String descriptor, Handle handle, Object... arguments) {
+		insn(Opcodes.INVOKEDYNAMIC, descriptor.endsWith(")V"));
+	}
+
+	@Override
+	public void visitJumpInsn(int opcode, Label label) {
+		add(JUMP, opcode, null, new Label[] { label }, 0, null, null,
+				opcode == Opcodes.GOTO || opcode == Opcodes.JSR);
+	}
+
+	@Override
+	public void visitLdcInsn(Object value) {
+		insn(Opcodes.LDC, false);
+	}
+
+	@Override
+	public void visitIincInsn(int var, int increment) {
+		insn(Opcodes.IINC, true);
+	}
+
+	@Override
+	public void visitTableSwitchInsn(int min, int max, Label dflt, Label... targets) {
+		add(SWITCH, Opcodes.TABLESWITCH, null, concat(dflt, targets), 0, null, null, true);
+	}
+
+	@Override
+	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] targets) {
+		add(SWITCH, Opcodes.LOOKUPSWITCH, null, concat(dflt, targets), 0, null, null, true);
+	}
+
+	@Override
+	public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+		insn(Opcodes.MULTIANEWARRAY, false);
+	}
+
+	@Override
+	public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+		handlers.add(new Label[] { start, handler });
+	}
+
+	@Override
+	public void visitMaxs(int maxStack, int maxLocals) {
+		this.maxLocals = maxLocals;
+	}
+
+	@Override
+	public void visitEnd() {
+		findChains();
+	}
+
+	private void findChains() {
+		findLadders();
+		Set<Integer> heads = new HashSet<>();
+		int slot = maxLocals;
+		for (int s = 0; s < events.size(); s++) {
+			if (!isStatement(s) || heads.contains(nextInstruction(s))) {
+				continue;
+			}
+
+			Chain chain = new Chain();
+			int start = s;
+			int end = -1;
+			If ifStatement;
+			while ((ifStatement = recognize(start)) != null) {
+				heads.add(nextInstruction(start));
+				chain.lines.add(ifStatement.line);
+				chain.thenStarts.add(ifStatement.thenStart);
+				end = ifStatement.end;
+				Ladder ladder = chain.size() == 1 ? ladders.get(nextInstruction(start)) : null;
+				if (ifStatement.hasElse || ifStatement.backEdge
+						|| entered(end, s, ladder == null ? Collections.<Integer>emptySet() : ladder.gotos)) {
+					break;
+				}
+				start = end;
+			}
+			if (chain.size() < 2) {
+				continue;
+			}
+
+			chain.initAt = nextInstruction(s);
+			chain.endAt = events.get(end).kind == LABEL ? firstLabel(end) : end;
+			if (crossesChain(chain) || !locate(chain)) {
+				continue;
+			}
+			chain.firstSlot = slot;
+			slot += chain.size();
+			chains.add(chain);
+		}
+	}
+
+	/**
+	 * @return true if chain overlaps a chain already found without either enclosing the other,
+	 *  as the chains of an else branch ending in a return can, unless chain starts at the last if statement
+	 *  of an else-if ladder that ends the chain found, as in source
+	 */
+	private boolean crossesChain(Chain chain) {
+		Ladder ladder = ladders.get(chain.initAt);
+		for (Chain found : chains) {
+			if (chain.initAt < found.endAt && found.initAt < chain.endAt && chain.endAt > found.endAt
+					&& (ladder == null || nextInstruction(found.endAt) != nextInstruction(ladder.end))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The else-if ladder an if statement without an else ends: the if statements before it each have
+	 *  an else branch holding nothing but the next, and their then branches jump past it.
+	 */
+	private static class Ladder {
+		/** The gotos ending the then branches of the ladder */
+		final Set<Integer> gotos = new HashSet<>();
+		/** The label event ending the ladder */
+		int end;
+	}
+
+	/**
+	 * Finds the last if statement of each else-if ladder, by the first instruction of its condition.
+	 * Like BranchCounterProcessor, a chain may start there, though its if statement ends an else branch.
+	 */
+	private void findLadders() {
+		for (int s = 0; s < events.size(); s++) {
+			If top = isStatement(s) ? recognize(s) : null;
+			if (top == null || !top.hasElse) {
+				continue;
+			}
+			Set<Integer> gotos = new HashSet<>();
+			If current = top;
+			while (current.hasElse) {
+				gotos.add(previousInstruction(current.elseStart));
+				If next = recognize(current.elseStart);
+				if (next == null || next.backEdge || nextInstruction(next.end) != nextInstruction(top.end)) {
+					break;
+				}
+				if (!next.hasElse) {
+					int first = nextInstruction(current.elseStart);
+					Ladder ladder = ladders.get(first);
+					if (ladder == null) {
+						ladder = new Ladder();
+						ladder.end = top.end;
+						ladders.put(first, ladder);
+					}
+					ladder.gotos.addAll(gotos);
+				}
+				current = next;
+			}
+		}
+	}
+
+	/**
+	 * An if statement found by recognize(int).
+	 */
+	private static class If {
+		int line;
+		int thenStart;
+		/** The label event ending the if statement, or its back edge */
+		int end;
+		boolean hasElse;
+		/** The label event starting the else branch, if there is one */
+		int elseStart;
+		/** True if the if statement ends the body of a while loop, at the loop's back edge */
+		boolean backEdge;
+	}
+
+	/**
+	 * @return the if statement whose condition starts at event start, or null if there is none
+	 */
+	private If recognize(int start) {
+		int first = nextInstruction(start);
+		if (first < 0) {
+			return null;
+		}
+		If result = new If();
+		result.line = lineAt(first);
+
+		// The condition runs to its last conditional jump before the first expression statement or new line
+		int last = -1;
+		for (int i = first; i < events.size(); i++) {
+			Event event = events.get(i);
+			if (event.kind == LINE && i > first) {
+				break;
+			}
+			if (event.kind == JUMP && isConditional(event.opcode)) {
+				last = i;
+			}
+			else if (event.effect && event.opcode != Opcodes.GOTO) {
+				break;
+			}
+		}
+		if (last < 0) {
+			return null;
+		}
+
+		int falseTarget = labels.get(events.get(last).targets[0]);
+		int thenStart = nextInstruction(last + 1);
+		if (thenStart < 0 || stackDepth(falseTarget) > 0) {
+			return null;
+		}
+		// Jumps within the condition, including the gotos of conditional expressions, stay within it
+		for (int i = first; i < last; i++) {
+			Event event = events.get(i);
+			if (event.kind == JUMP) {
+				int target = labels.get(event.targets[0]);
+				if (target != falseTarget && (target <= first || target > thenStart)) {
+					return null;
+				}
+			}
+		}
+
+		result.thenStart = thenStart;
+		if (falseTarget <= last) {
+			// javac jumps straight to the start of a while loop whose body ends with the if statement,
+			//  which then ends at the loop's back edge
+			result.end = backEdge(first, thenStart, falseTarget);
+			result.backEdge = true;
+			return result.end < 0 ? null : result;
+		}
+		if (thenStart >= falseTarget) {
+			return null;
+		}
+		result.end = falseTarget;
+		Event jump = events.get(previousInstruction(falseTarget));
+		if (jump.kind == JUMP && jump.opcode == Opcodes.GOTO) {
+			int after = labels.get(jump.targets[0]);
+			if (nextInstruction(after) == first) {
+				// A loop rather than an if statement
+				return null;
+			}
+			if (nextInstruction(after) >= thenStart && after < previousInstruction(falseTarget)) {
+				// The back edge of a loop ending the then branch
+				return result;
+			}
+			if ((after > start && after <= falseTarget) || stackDepth(after) > 0) {
+				// A conditional expression, or a jump within the if statement
+				return null;
+			}
+			// Otherwise the then branch ends in an else, or a break or continue out of an enclosing loop,
+			//  whose body then runs on past the if statement to jump back to the loop's start
+			if (after > falseTarget && !jumpsBefore(falseTarget, after, start)) {
+				result.end = after;
+				result.hasElse = true;
+				result.elseStart = falseTarget;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the goto back to loopStart ending the then branch starting at event thenStart, or -1 if there is none
+	 */
+	private int backEdge(int first, int thenStart, int loopStart) {
+		for (int i = thenStart; i < events.size(); i++) {
+			Event event = events.get(i);
+			if (event.kind == JUMP && event.opcode == Opcodes.GOTO && labels.get(event.targets[0]) == loopStart
+					&& !jumpsAfter(first, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return true if a jump or switch before event limit, other than the gotos given, lands at the label
+	 *  at event label, so that it ends a block enclosing whatever comes before it,
+	 *  such as the else branch whose then branch jumps past it
+	 */
+	private boolean entered(int label, int limit, Set<Integer> gotos) {
+		int position = nextInstruction(label);
+		for (int i = 0; i < limit; i++) {
+			Event event = events.get(i);
+			if ((event.kind == JUMP && !gotos.contains(i)) || event.kind == SWITCH) {
+				for (Label target : event.targets) {
+					if (nextInstruction(labels.get(target)) == position) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the size of the operand stack at the label at event label, as its frame gives it
+	 */
+	private int stackDepth(int label) {
+		for (int i = firstLabel(label); i < events.size() && !isInstruction(events.get(i)); i++) {
+			if (events.get(i).kind == FRAME) {
+				return events.get(i).stack.length;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds where chain's assertions go, and the jumps that must be redirected to them or clear its flags.
+	 * @return false if the chain can't be instrumented
+	 */
+	private boolean locate(Chain chain) {
+		// Where the chain goes on to: past its end, or back to the start of its loop,
+		//  whose frame then also holds at the assertions
+		boolean backEdge = events.get(chain.endAt).kind == JUMP;
+		int frameAt = backEdge ? firstLabel(labels.get(events.get(chain.endAt).targets[0])) : chain.endAt;
+		int endPosition = nextInstruction(frameAt);
+		for (int i = frameAt; i < events.size() && i < endPosition; i++) {
+			Event event = events.get(i);
+			// Past the last if statement's line, or else the header of the loop whose body the chain ends
+			if (event.kind == LINE && !backEdge && event.line > chain.lines.get(chain.size() - 1)) {
+				chain.endLine = event.line;
+			}
+			if (event.kind == FRAME) {
+				if (event.opcode != Opcodes.F_NEW || contains(event.locals, Label.class)
+						|| contains(event.stack, Label.class)) {
+					return false;
+				}
+				chain.endLocals = event.locals;
+				chain.endStack = event.stack;
+			}
+		}
+		if (chain.endLocals == null) {
+			return false;
+		}
+
+		Map<Integer, Map<Integer, Chain>> chainRetargets = new HashMap<>();
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+			if (event.kind != JUMP && event.kind != SWITCH) {
+				continue;
+			}
+			boolean inside = chain.initAt <= i && i < chain.endAt;
+			for (int t = 0; t < event.targets.length; t++) {
+				int target = labels.get(event.targets[t]);
+				int position = nextInstruction(target);
+				if (inside && position == endPosition && (backEdge || target >= chain.endAt)) {
+					Map<Integer, Chain> byTarget = chainRetargets.get(i);
+					if (byTarget == null) {
+						byTarget = new HashMap<>();
+						chainRetargets.put(i, byTarget);
+					}
+					byTarget.put(t, chain);
+				}
+				else if (!inside && position > chain.initAt && target < chain.endAt) {
+					if (event.opcode != Opcodes.GOTO) {
+						return false;
+					}
+					chain.resets.add(i);
+				}
+				else if (inside && (target < chain.initAt || target >= chain.endAt)) {
+					chain.exits = true;
+				}
+			}
+		}
+		for (int i = chain.initAt; i < chain.endAt; i++) {
+			int opcode = events.get(i).opcode;
+			if (events.get(i).kind == INSN
+					&& (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN || opcode == Opcodes.ATHROW)) {
+				chain.exits = true;
+			}
+		}
+		for (Label[] handler : handlers) {
+			int from = labels.get(handler[0]);
+			int to = labels.get(handler[1]);
+			if ((from < chain.initAt || from >= chain.endAt) && nextInstruction(to) > chain.initAt
+					&& to < chain.endAt) {
+				return false;
+			}
+		}
+
+		// Chains are found outermost first, so an inner chain's retargets replace its outer chain's
+		for (Map.Entry<Integer, Map<Integer, Chain>> entry : chainRetargets.entrySet()) {
+			Map<Integer, Chain> byTarget = retargets.get(entry.getKey());
+			if (byTarget == null) {
+				retargets.put(entry.getKey(), entry.getValue());
+			}
+			else {
+				byTarget.putAll(entry.getValue());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if an event in [from, to) jumps to a label after event to
+	 */
+	private boolean jumpsAfter(int from, int to) {
+		for (int i = from; i < to; i++) {
+			Event event = events.get(i);
+			if (event.kind == JUMP || event.kind == SWITCH) {
+				for (Label target : event.targets) {
+					if (labels.get(target) > to) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if an event in [from, to) jumps to a label before event limit
+	 */
+	private boolean jumpsBefore(int from, int to, int limit) {
+		for (int i = from; i < to; i++) {
+			Event event = events.get(i);
+			if (event.kind == JUMP || event.kind == SWITCH) {
+				for (Label target : event.targets) {
+					if (labels.get(target) < limit) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if a statement starts at event, that is a label followed by a line number
+	 */
+	private boolean isStatement(int event) {
+		return events.get(event).kind == LABEL && event + 1 < events.size() && events.get(event + 1).kind == LINE;
+	}
+
+	/**
+	 * @return the line of the statement containing event
+	 */
+	private int lineAt(int event) {
+		for (int i = event; i >= 0; i--) {
+			if (events.get(i).kind == LINE) {
+				return events.get(i).line;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the first instruction event at or after event, or -1 if there is none
+	 */
+	int nextInstruction(int event) {
+		for (int i = event; i < events.size(); i++) {
+			if (isInstruction(events.get(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int previousInstruction(int event) {
+		for (int i = event - 1; i >= 0; i--) {
+			if (isInstruction(events.get(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the first label event at the same position as the label event at event
+	 */
+	private int firstLabel(int event) {
+		int first = event;
+		for (int i = event - 1; i >= 0 && !isInstruction(events.get(i)); i--) {
+			if (events.get(i).kind == LABEL) {
+				first = i;
+			}
+		}
+		return first;
+	}
+
+	private static boolean isInstruction(Event event) {
+		return event.kind == INSN || event.kind == JUMP || event.kind == SWITCH;
+	}
+
+	private static boolean isConditional(int opcode) {
+		return (opcode >= Opcodes.IFEQ && opcode <= Opcodes.IF_ACMPNE) || opcode == Opcodes.IFNULL
+				|| opcode == Opcodes.IFNONNULL;
+	}
+
+	private static boolean contains(Object[] values, Class<?> type) {
+		for (Object value : values) {
+			if (type.isInstance(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Object[] copy(Object[] values, int length) {
+		Object[] result = new Object[length];
+		if (values != null) {
+			System.arraycopy(values, 0, result, 0, length);
+		}
+		return result;
+	}
+
+	private static Label[] concat(Label first, Label[] rest) {
+		Label[] result = new Label[rest.length + 1];
+		result[0] = first;
+		System.arraycopy(rest, 0, result, 1, rest.length);
+		return result;
+	}
+}
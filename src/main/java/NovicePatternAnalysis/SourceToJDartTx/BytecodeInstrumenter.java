@@ -0,0 +1,588 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Instruments compiled classes directly, as BranchCounterProcessor instruments source with the flags encoding,
+ *  so that submissions that are already compiled need not be parsed, printed and compiled again.
+ *
+ * Each chain found by BytecodeChains gets a boolean flag per branch, set at the start of the branch and
+ *  cleared where the chain starts, and an assertion that each pair of consecutive flags differ,
+ *  whose message is the chain's id and its flags, as in source.
+ *  Flags are named after the line of their if statement, as in source, but only in ChainInfo, since they
+ *  are added to the code without local variable entries.
+ * The assertions are inserted where the chain ends, rather than at the end of the enclosing block,
+ *  and are skipped when assertions are disabled, using the class's $assertionsDisabled field,
+ *  which is added if the class doesn't have one.
+ *
+ * Inputs are .class files, or jars whose classes are instrumented and whose other entries are copied.
+ *  Classes older than Java 7, and interfaces, are copied unchanged.
+ *  With --compile, the instrumented classes are also handed on in the TransformResult.
+ */
+public class BytecodeInstrumenter implements Transformer {
+
+	private static final String ASSERTIONS_DISABLED = "$assertionsDisabled";
+
+	private final boolean keepClasses;
+
+	public BytecodeInstrumenter(TransformOptions options) {
+		if (options.getEncoding() != BranchCounterProcessor.Encoding.FLAGS) {
+			throw new IllegalArgumentException("--bytecode supports only the flags encoding");
+		}
+		this.keepClasses = options.isCompile();
+	}
+
+	@Override
+	public TransformResult transform(Path input, Path output) {
+		long start = System.nanoTime();
+		TransformMetrics metrics = new TransformMetrics();
+		List<ChainInfo> chains = new ArrayList<>();
+		int[] counters = new int[3];
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		try {
+			if (output.toAbsolutePath().getParent() != null) {
+				Files.createDirectories(output.toAbsolutePath().getParent());
+			}
+			if (input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar")) {
+				transformJar(input, output, chains, counters, classes, metrics);
+			}
+			else {
+				metrics.begin(TransformMetrics.Phase.READ);
+				byte[] bytes = Files.readAllBytes(input);
+				metrics.begin(TransformMetrics.Phase.PROCESS);
+				byte[] instrumented = instrument(bytes, chains, counters);
+				keep(instrumented, classes);
+				metrics.begin(TransformMetrics.Phase.WRITE);
+				Files.write(output, instrumented);
+			}
+			metrics.end();
+			metrics.count(counters[0], counters[1], counters[2]);
+			return TransformResult.transformed(input, output, chains, 0, System.nanoTime() - start, metrics)
+					.withClasses(classes);
+		}
+		catch (IOException | RuntimeException e) {
+			metrics.end();
+			return TransformResult.failure(input, System.nanoTime() - start, metrics, e);
+		}
+	}
+
+	private void transformJar(Path input, Path output, List<ChainInfo> chains, int[] counters,
+			Map<String, byte[]> classes, TransformMetrics metrics) throws IOException {
+		try (InputStream stream = Files.newInputStream(input); JarInputStream in = new JarInputStream(stream)) {
+			Manifest manifest = in.getManifest();
+			try (OutputStream file = Files.newOutputStream(output);
+					JarOutputStream out = manifest == null ? new JarOutputStream(file)
+							: new JarOutputStream(file, manifest)) {
+				JarEntry entry;
+				while ((entry = in.getNextJarEntry()) != null) {
+					String name = entry.getName();
+					// Signatures no longer match once classes change
+					if (name.startsWith("META-INF/") && name.matches(".*\\.(SF|RSA|DSA|EC)")) {
+						continue;
+					}
+					metrics.begin(TransformMetrics.Phase.READ);
+					byte[] bytes = readAll(in);
+					if (name.endsWith(".class")) {
+						metrics.begin(TransformMetrics.Phase.PROCESS);
+						bytes = instrument(bytes, chains, counters);
+						keep(bytes, classes);
+					}
+					metrics.begin(TransformMetrics.Phase.WRITE);
+					out.putNextEntry(new JarEntry(name));
+					out.write(bytes);
+					out.closeEntry();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps the bytes of an instrumented class in classes, by binary name, if classes are handed on.
+	 */
+	private void keep(byte[] bytes, Map<String, byte[]> classes) {
+		if (keepClasses) {
+			classes.put(new ClassReader(bytes).getClassName().replace('/', '.'), bytes);
+		}
+	}
+
+	/**
+	 * Instruments the chains of a class file.
+	 * @param chains receives the chains instrumented
+	 * @param counters receives the methods visited, branches instrumented and assertions emitted
+	 * @return the instrumented class file, or bytes itself if it has no chains
+	 */
+	static byte[] instrument(byte[] bytes, List<ChainInfo> chains, int[] counters) {
+		ClassReader reader = new ClassReader(bytes);
+		ClassScanner scanner = new ClassScanner();
+		reader.accept(scanner, ClassReader.EXPAND_FRAMES);
+		counters[0] += scanner.methods.size();
+		if (scanner.chainCount == 0) {
+			return bytes;
+		}
+
+		String type = scanner.name.replace('/', '.');
+		for (Map.Entry<String, BytecodeChains> method : scanner.methods.entrySet()) {
+			String signature = signature(scanner.name, method.getKey());
+			for (BytecodeChains.Chain chain : method.getValue().getChains()) {
+				List<String> variables = new ArrayList<>();
+				for (int line : chain.lines) {
+					variables.add("branch" + line);
+				}
+				chains.add(new ChainInfo(type, signature, chain.lines, variables).withAssertions(chain.size() - 1,
+						chain.endLine).withExits(chain.exits));
+				counters[1] += chain.size();
+				counters[2] += chain.size() - 1;
+			}
+		}
+
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		reader.accept(new ClassRewriter(writer, scanner), ClassReader.EXPAND_FRAMES);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @return the signature Spoon gives the method: its name, or the type's for a constructor,
+	 *  and its parameter types
+	 */
+	private static String signature(String owner, String method) {
+		String name = method.substring(0, method.indexOf('('));
+		if (name.equals("<init>")) {
+			name = owner.replace('/', '.');
+		}
+		StringBuilder signature = new StringBuilder(name).append('(');
+		Type[] arguments = Type.getArgumentTypes(method.substring(method.indexOf('(')));
+		for (int i = 0; i < arguments.length; i++) {
+			signature.append(i == 0 ? "" : ",").append(arguments[i].getClassName());
+		}
+		return signature.append(')').toString();
+	}
+
+	/**
+	 * Finds the chains of each method of a class.
+	 */
+	private static class ClassScanner extends ClassVisitor {
+		String name;
+		boolean skipped;
+		boolean hasAssertionsDisabled;
+		final Map<String, BytecodeChains> methods = new HashMap<>();
+		int chainCount;
+
+		ClassScanner() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName,
+				String[] interfaces) {
+			this.name = name;
+			// Frames are only required from Java 7 on
+			skipped = (version & 0xFFFF) < Opcodes.V1_7 || (access & Opcodes.ACC_INTERFACE) != 0;
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor,
+				String signature, Object value) {
+			if (name.equals(ASSERTIONS_DISABLED) && descriptor.equals("Z") && (access & Opcodes.ACC_STATIC) != 0) {
+				hasAssertionsDisabled = true;
+			}
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+				String[] exceptions) {
+			if (skipped || (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+				return null;
+			}
+			final String key = name + descriptor;
+			return new BytecodeChains() {
+				@Override
+				public void visitEnd() {
+					super.visitEnd();
+					methods.put(key, this);
+					chainCount += getChains().size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Replays a class, instrumenting the chains its ClassScanner found.
+	 */
+	private static class ClassRewriter extends ClassVisitor {
+		private final ClassScanner scanner;
+		private boolean hasClassInitializer;
+
+		ClassRewriter(ClassVisitor next, ClassScanner scanner) {
+			super(Opcodes.ASM9, next);
+			this.scanner = scanner;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+				String[] exceptions) {
+			MethodVisitor next = super.visitMethod(access, name, descriptor, signature, exceptions);
+			if (name.equals("<clinit>") && !scanner.hasAssertionsDisabled) {
+				hasClassInitializer = true;
+				next = new MethodVisitor(Opcodes.ASM9, next) {
+					@Override
+					public void visitCode() {
+						super.visitCode();
+						initializeAssertionsDisabled(mv, scanner.name);
+					}
+				};
+			}
+			BytecodeChains chains = scanner.methods.get(name + descriptor);
+			if (chains == null || chains.getChains().isEmpty()) {
+				return next;
+			}
+			return new MethodRewriter(next, scanner.name, signature(scanner.name, name + descriptor), chains);
+		}
+
+		@Override
+		public void visitEnd() {
+			if (!scanner.hasAssertionsDisabled) {
+				cv.visitField(Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, ASSERTIONS_DISABLED, "Z",
+						null, null).visitEnd();
+				if (!hasClassInitializer) {
+					MethodVisitor clinit = cv.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+					clinit.visitCode();
+					initializeAssertionsDisabled(clinit, scanner.name);
+					clinit.visitInsn(Opcodes.RETURN);
+					clinit.visitMaxs(0, 0);
+					clinit.visitEnd();
+				}
+			}
+			super.visitEnd();
+		}
+	}
+
+	/**
+	 * Emits {@code $assertionsDisabled = !Owner.class.desiredAssertionStatus();}, as javac does.
+	 */
+	private static void initializeAssertionsDisabled(MethodVisitor mv, String owner) {
+		mv.visitLdcInsn(Type.getObjectType(owner));
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Class", "desiredAssertionStatus", "()Z", false);
+		mv.visitInsn(Opcodes.ICONST_1);
+		mv.visitInsn(Opcodes.IXOR);
+		mv.visitFieldInsn(Opcodes.PUTSTATIC, owner, ASSERTIONS_DISABLED, "Z");
+	}
+
+	/**
+	 * Replays a method's events, counting them as BytecodeChains did,
+	 *  and inserts the flags and assertions of its chains at the events BytecodeChains chose.
+	 */
+	private static class MethodRewriter extends MethodVisitor {
+		private final String owner;
+		private final String signature;
+		private final BytecodeChains scan;
+		private final Map<BytecodeChains.Chain, Label> assertions = new HashMap<>();
+		private int event = 0;
+
+		MethodRewriter(MethodVisitor next, String owner, String signature, BytecodeChains scan) {
+			super(Opcodes.ASM9, next);
+			this.owner = owner;
+			this.signature = signature;
+			this.scan = scan;
+			for (BytecodeChains.Chain chain : scan.getChains()) {
+				assertions.put(chain, new Label());
+			}
+		}
+
+		/**
+		 * Inserts whatever goes before the instruction at the current event.
+		 */
+		private void beforeInstruction() {
+			// Chains ending at a loop's back edge are asserted before it, on a frame of its own
+			List<BytecodeChains.Chain> ending = scan.endingAt(event);
+			if (!ending.isEmpty()) {
+				Label backEdge = new Label();
+				writeAssertions(ending, backEdge);
+				BytecodeChains.Chain last = ending.get(ending.size() - 1);
+				Object[] locals = frameLocals(last.endLocals, null, event);
+				mv.visitLabel(backEdge);
+				mv.visitFrame(Opcodes.F_NEW, locals.length, locals, last.endStack.length, last.endStack);
+			}
+			for (BytecodeChains.Chain chain : scan.getChains()) {
+				if (chain.initAt == event || chain.resets.contains(event)) {
+					for (int i = 0; i < chain.size(); i++) {
+						mv.visitInsn(Opcodes.ICONST_0);
+						mv.visitVarInsn(Opcodes.ISTORE, chain.firstSlot + i);
+					}
+				}
+				int branch = chain.thenStarts.indexOf(event);
+				if (branch >= 0) {
+					mv.visitInsn(Opcodes.ICONST_1);
+					mv.visitVarInsn(Opcodes.ISTORE, chain.firstSlot + branch);
+				}
+			}
+			event++;
+		}
+
+		@Override
+		public void visitLabel(Label label) {
+			writeAssertions(scan.endingAt(event), label);
+			event++;
+			super.visitLabel(label);
+		}
+
+		/**
+		 * Writes the assertions of the chains ending at the same event, innermost first, and then jumps to end.
+		 */
+		private void writeAssertions(List<BytecodeChains.Chain> ending, Label end) {
+			for (int c = 0; c < ending.size(); c++) {
+				writeAssertions(ending.get(c), c + 1 < ending.size() ? assertions.get(ending.get(c + 1)) : end);
+			}
+		}
+
+		/**
+		 * Writes chain's assertions, jumping to next once they pass or are disabled.
+		 * The flags are named as in ChainInfo where the assertions read them, for analyses that map
+		 *  a failing assertion back to the branches taken.
+		 */
+		private void writeAssertions(BytecodeChains.Chain chain, Label next) {
+			Object[] locals = frameLocals(chain.endLocals, chain, -1);
+			Label start = assertions.get(chain);
+			mv.visitLabel(start);
+			mv.visitFrame(Opcodes.F_NEW, locals.length, locals, chain.endStack.length, chain.endStack);
+			mv.visitFieldInsn(Opcodes.GETSTATIC, owner, ASSERTIONS_DISABLED, "Z");
+			mv.visitJumpInsn(Opcodes.IFNE, next);
+			for (int i = 1; i < chain.size(); i++) {
+				Label passed = i + 1 < chain.size() ? new Label() : next;
+				mv.visitVarInsn(Opcodes.ILOAD, chain.firstSlot + i - 1);
+				mv.visitVarInsn(Opcodes.ILOAD, chain.firstSlot + i);
+				mv.visitInsn(Opcodes.IXOR);
+				mv.visitJumpInsn(Opcodes.IFNE, passed);
+				mv.visitTypeInsn(Opcodes.NEW, "java/lang/AssertionError");
+				mv.visitInsn(Opcodes.DUP);
+				writeMessage(chain);
+				mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/AssertionError", "<init>",
+						"(Ljava/lang/Object;)V", false);
+				mv.visitInsn(Opcodes.ATHROW);
+				if (passed != next) {
+					mv.visitLabel(passed);
+					mv.visitFrame(Opcodes.F_NEW, locals.length, locals, chain.endStack.length, chain.endStack);
+				}
+			}
+			Label end = new Label();
+			mv.visitLabel(end);
+			for (int i = 0; i < chain.size(); i++) {
+				mv.visitLocalVariable("branch" + chain.lines.get(i), "Z", null, start, end, chain.firstSlot + i);
+			}
+		}
+
+		/**
+		 * Pushes the message of chain's assertions: its id, a space, and its flags separated by commas.
+		 */
+		private void writeMessage(BytecodeChains.Chain chain) {
+			String id = owner.replace('/', '.') + "#" + signature + "@" + chain.lines.get(0);
+			mv.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+			mv.visitInsn(Opcodes.DUP);
+			mv.visitLdcInsn(id + " ");
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V",
+					false);
+			for (int i = 0; i < chain.size(); i++) {
+				if (i > 0) {
+					mv.visitIntInsn(Opcodes.BIPUSH, ',');
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+							"(C)Ljava/lang/StringBuilder;", false);
+				}
+				mv.visitVarInsn(Opcodes.ILOAD, chain.firstSlot + i);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append",
+						"(Z)Ljava/lang/StringBuilder;", false);
+			}
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;",
+					false);
+		}
+
+		/**
+		 * @return locals extended with the flags of the chains active at the frame at event,
+		 *  or, if event is -1, at the assertions of the given chain
+		 */
+		private Object[] frameLocals(Object[] locals, BytecodeChains.Chain assertionsOf, int event) {
+			List<Object> extended = new ArrayList<>(Arrays.asList(locals));
+			int slots = 0;
+			for (Object local : locals) {
+				slots += local == Opcodes.LONG || local == Opcodes.DOUBLE ? 2 : 1;
+			}
+			for (; slots < scan.getMaxLocals(); slots++) {
+				extended.add(Opcodes.TOP);
+			}
+			int flags = 0;
+			for (BytecodeChains.Chain chain : scan.getChains()) {
+				flags = Math.max(flags, chain.firstSlot + chain.size() - scan.getMaxLocals());
+			}
+			Object[] added = new Object[flags];
+			Arrays.fill(added, Opcodes.TOP);
+			boolean any = false;
+			for (BytecodeChains.Chain chain : scan.getChains()) {
+				boolean active = event >= 0 ? BytecodeChains.isActive(chain, event)
+						: chain == assertionsOf || (chain.initAt < assertionsOf.initAt
+								&& assertionsOf.endAt <= chain.endAt)
+								|| (chain.initAt < assertionsOf.endAt && assertionsOf.endAt < chain.endAt);
+				if (active) {
+					any = true;
+					Arrays.fill(added, chain.firstSlot - scan.getMaxLocals(),
+							chain.firstSlot - scan.getMaxLocals() + chain.size(), Opcodes.INTEGER);
+				}
+			}
+			if (!any) {
+				return locals;
+			}
+			int length = added.length;
+			while (added[length - 1] == Opcodes.TOP) {
+				length--;
+			}
+			extended.addAll(Arrays.asList(added).subList(0, length));
+			return extended.toArray();
+		}
+
+		@Override
+		public void visitLineNumber(int line, Label start) {
+			event++;
+			super.visitLineNumber(line, start);
+		}
+
+		@Override
+		public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+			Object[] locals = frameLocals(Arrays.copyOf(local, numLocal), null, event);
+			event++;
+			super.visitFrame(type, locals.length, locals, numStack, stack);
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+			beforeInstruction();
+			super.visitInsn(opcode);
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand) {
+			beforeInstruction();
+			super.visitIntInsn(opcode, operand);
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int var) {
+			beforeInstruction();
+			super.visitVarInsn(opcode, var);
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type) {
+			beforeInstruction();
+			super.visitTypeInsn(opcode, type);
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+			beforeInstruction();
+			super.visitFieldInsn(opcode, owner, name, descriptor);
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+				boolean isInterface) {
+			beforeInstruction();
+			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String descriptor, Handle handle,
+				Object... arguments) {
+			beforeInstruction();
+			super.visitInvokeDynamicInsn(name, descriptor, handle, arguments);
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label) {
+			int jump = event;
+			beforeInstruction();
+			BytecodeChains.Chain chain = scan.retarget(jump, 0);
+			super.visitJumpInsn(opcode, chain == null ? label : assertions.get(chain));
+		}
+
+		@Override
+		public void visitLdcInsn(Object value) {
+			beforeInstruction();
+			super.visitLdcInsn(value);
+		}
+
+		@Override
+		public void visitIincInsn(int var, int increment) {
+			beforeInstruction();
+			super.visitIincInsn(var, increment);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+			int jump = event;
+			beforeInstruction();
+			Label[] targets = retarget(jump, dflt, labels);
+			super.visitTableSwitchInsn(min, max, targets[0], Arrays.copyOfRange(targets, 1, targets.length));
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+			int jump = event;
+			beforeInstruction();
+			Label[] targets = retarget(jump, dflt, labels);
+			super.visitLookupSwitchInsn(targets[0], keys, Arrays.copyOfRange(targets, 1, targets.length));
+		}
+
+		private Label[] retarget(int jump, Label dflt, Label[] labels) {
+			Label[] targets = new Label[labels.length + 1];
+			for (int t = 0; t < targets.length; t++) {
+				BytecodeChains.Chain chain = scan.retarget(jump, t);
+				targets[t] = chain != null ? assertions.get(chain) : t == 0 ? dflt : labels[t - 1];
+			}
+			return targets;
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+			beforeInstruction();
+			super.visitMultiANewArrayInsn(descriptor, numDimensions);
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public void close() {
+	}
+}
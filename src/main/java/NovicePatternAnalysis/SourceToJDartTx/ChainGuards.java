@@ -0,0 +1,229 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtArrayAccess;
+import spoon.reflect.code.CtArrayWrite;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtTargetedExpression;
+import spoon.reflect.code.CtThisAccess;
+import spoon.reflect.code.CtTypeAccess;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableAccess;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.code.CtVariableWrite;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtVariableReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * The guards of a chain of if statements: for each if statement, the conditions that must hold
+ *  for its then branch to run, and the variables those conditions read.
+ *
+ * The guard of an if statement reached through an else-if ladder includes the negated
+ *  conditions of the ladder above it.
+ * A chain's guards are independent when none reads a variable written by an earlier if statement
+ *  in the chain, and none reads a field after an earlier if statement calls a method.
+ *  Writing an element or field of a variable's value writes the variable, and so does passing its value,
+ *  unless it is primitive, to a method, or calling a method on it.
+ *  Only then can the guards be reasoned about as if they were all evaluated on the same state.
+ */
+public class ChainGuards {
+
+	private final List<? extends CtIf> chain;
+	private final List<List<CtExpression<Boolean>>> conditions = new ArrayList<>();
+	private final List<Map<String, CtTypeReference<?>>> reads = new ArrayList<>();
+	private boolean independent = true;
+	private boolean typed = true;
+
+	public ChainGuards(List<? extends CtIf> chain) {
+		this.chain = chain;
+
+		Set<String> written = new HashSet<>();
+		boolean calls = false;
+		for (CtIf ifStatement : chain) {
+			List<CtExpression<Boolean>> guard = guardConditions(ifStatement);
+			Map<String, CtTypeReference<?>> read = new LinkedHashMap<>();
+			for (CtExpression<Boolean> condition : guard) {
+				for (CtVariableRead<?> variableRead : condition.getElements(new TypeFilter<>(CtVariableRead.class))) {
+					CtVariableReference<?> variable = variableRead.getVariable();
+					if (written.contains(key(variable))
+							|| (variable instanceof CtFieldReference<?> && calls)) {
+						independent = false;
+					}
+					if (!(variable instanceof CtFieldReference<?>)) {
+						typed &= variable.getType() != null;
+						read.put(variable.getSimpleName(), variable.getType());
+					}
+				}
+			}
+			conditions.add(guard);
+			reads.add(read);
+
+			CtIf topLevel = topLevel(ifStatement);
+			for (CtVariableWrite<?> write : topLevel.getElements(new TypeFilter<>(CtVariableWrite.class))) {
+				written.add(key(write.getVariable()));
+				addRoot(written, write);
+			}
+			for (CtArrayWrite<?> write : topLevel.getElements(new TypeFilter<>(CtArrayWrite.class))) {
+				addRoot(written, write);
+			}
+			List<CtAbstractInvocation<?>> invocations = topLevel.getElements(
+					new TypeFilter<CtAbstractInvocation<?>>(CtAbstractInvocation.class));
+			for (CtAbstractInvocation<?> invocation : invocations) {
+				for (CtExpression<?> argument : invocation.getArguments()) {
+					if (argument.getType() == null || !argument.getType().isPrimitive()) {
+						addRoot(written, argument);
+					}
+				}
+				if (invocation instanceof CtTargetedExpression<?, ?>) {
+					addRoot(written, ((CtTargetedExpression<?, ?>) invocation).getTarget());
+				}
+			}
+			calls |= !invocations.isEmpty();
+		}
+	}
+
+	public List<? extends CtIf> getChain() {
+		return chain;
+	}
+
+	public int size() {
+		return chain.size();
+	}
+
+	/**
+	 * @return the conditions of the guard of the i-th if statement, outermost first.
+	 *  These are the model's own expressions, not copies.
+	 */
+	public List<CtExpression<Boolean>> getConditions(int i) {
+		return Collections.unmodifiableList(conditions.get(i));
+	}
+
+	/**
+	 * @return a copy of the guard of the i-th if statement, as a single expression
+	 */
+	public CtExpression<Boolean> guard(int i) {
+		List<CtExpression<Boolean>> guard = conditions.get(i);
+		CtExpression<Boolean> result = guard.get(0).clone();
+		for (int k = 1; k < guard.size(); k++) {
+			result = and(result, guard.get(k).clone());
+		}
+		return result;
+	}
+
+	/**
+	 * @return the local variables and parameters read by the guard of the i-th if statement, by name,
+	 *  in order of first appearance
+	 */
+	public Map<String, CtTypeReference<?>> getReads(int i) {
+		return Collections.unmodifiableMap(reads.get(i));
+	}
+
+	public boolean isIndependent() {
+		return independent;
+	}
+
+	/**
+	 * @return true if the type of every local variable and parameter read by the guards is known
+	 */
+	public boolean isTyped() {
+		return typed;
+	}
+
+	/**
+	 * @return the if statement at the top of the else-if ladder containing ifStatement,
+	 *  which is a statement of the chain's block, or ifStatement itself if it is not in a ladder
+	 */
+	public static CtIf topLevel(CtIf ifStatement) {
+		CtIf current = ifStatement;
+		CtIf ladder;
+		while ((ladder = elseParent(current)) != null) {
+			current = ladder;
+		}
+		return current;
+	}
+
+	static CtExpression<Boolean> and(CtExpression<Boolean> left, CtExpression<Boolean> right) {
+		Factory factory = left.getFactory();
+		CtBinaryOperator<Boolean> and = factory.Code().<Boolean>createBinaryOperator(left, right,
+				BinaryOperatorKind.AND);
+		and.setType(factory.Type().booleanPrimitiveType());
+		return and;
+	}
+
+	private static List<CtExpression<Boolean>> guardConditions(CtIf ifStatement) {
+		List<CtExpression<Boolean>> conditions = new ArrayList<>();
+		conditions.add(ifStatement.getCondition());
+		CtIf current = ifStatement;
+		CtIf ladder;
+		while ((ladder = elseParent(current)) != null) {
+			conditions.add(0, negate(ladder.getCondition()));
+			current = ladder;
+		}
+		return conditions;
+	}
+
+	/**
+	 * @return the if statement whose else branch holds only ifStatement, or null if there is none
+	 */
+	private static CtIf elseParent(CtIf ifStatement) {
+		CtElement branch = ifStatement;
+		CtElement parent = ifStatement.getParent();
+		if (parent instanceof CtBlock<?> && ((CtBlock<?>) parent).getStatements().size() == 1) {
+			branch = parent;
+			parent = parent.getParent();
+		}
+		if (parent instanceof CtIf && ((CtIf) parent).getElseStatement() == branch) {
+			return (CtIf) parent;
+		}
+		return null;
+	}
+
+	private static CtExpression<Boolean> negate(CtExpression<Boolean> condition) {
+		Factory factory = condition.getFactory();
+		CtUnaryOperator<Boolean> not = factory.Core().createUnaryOperator();
+		not.setKind(UnaryOperatorKind.NOT);
+		not.setOperand(condition.clone());
+		not.setType(factory.Type().booleanPrimitiveType());
+		return not;
+	}
+
+	/**
+	 * Adds to written the variable whose value expression is part of, such as a for a[0] or a.b.c,
+	 *  if there is one.
+	 */
+	private static void addRoot(Set<String> written, CtExpression<?> expression) {
+		CtExpression<?> current = expression;
+		while (current instanceof CtArrayAccess<?, ?> || current instanceof CtFieldAccess<?>) {
+			CtExpression<?> target = ((CtTargetedExpression<?, ?>) current).getTarget();
+			if (target == null || target instanceof CtThisAccess<?> || target instanceof CtTypeAccess<?>) {
+				break;
+			}
+			current = target;
+		}
+		if (current instanceof CtVariableAccess<?>) {
+			written.add(key(((CtVariableAccess<?>) current).getVariable()));
+		}
+	}
+
+	private static String key(CtVariableReference<?> variable) {
+		return (variable instanceof CtFieldReference<?> ? "field:" : "") + variable.getSimpleName();
+	}
+}
@@ -0,0 +1,312 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a chain of if statements found by BranchCounterProcessor:
+ *  where it was found, and the names of the variables generated for its branches,
+ *  or of the slices generated for it by PredicateSlicer,
+ *  or the verdict reached for it without either.
+ * A chain in a method with the same MethodShape as one already analyzed is a duplicate,
+ *  whose results are those of its representative with names remapped, see remap(String, ChainInfo).
+ */
+public class ChainInfo {
+
+	private final String type;
+	private final String method;
+	private final List<Integer> lines;
+	private final List<String> variables;
+	private final List<String> slices;
+	private final Verdict verdict;
+	private final String shape;
+	private final String duplicateOf;
+	private final int assertions;
+	private final int assertLine;
+	private final long cost;
+	private final List<String> inputs;
+	private final boolean exits;
+
+	public ChainInfo(String type, String method, List<Integer> lines, List<String> variables) {
+		this(type, method, lines, variables, Collections.<String>emptyList());
+	}
+
+	public ChainInfo(String type, String method, List<Integer> lines, List<String> variables, List<String> slices) {
+		this(type, method, lines, variables, slices, Verdict.UNKNOWN);
+	}
+
+	public ChainInfo(String type, String method, List<Integer> lines, List<String> variables, List<String> slices,
+			Verdict verdict) {
+		this(type, method, lines, variables, slices, verdict, "", "", 0, 0);
+	}
+
+	ChainInfo(String type, String method, List<Integer> lines, List<String> variables, List<String> slices,
+			Verdict verdict, String shape, String duplicateOf, int assertions, int assertLine) {
+		this(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions, assertLine, 0,
+				Collections.<String>emptyList(), false);
+	}
+
+	ChainInfo(String type, String method, List<Integer> lines, List<String> variables, List<String> slices,
+			Verdict verdict, String shape, String duplicateOf, int assertions, int assertLine, long cost,
+			List<String> inputs, boolean exits) {
+		this.type = type;
+		this.method = method;
+		this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+		this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+		this.slices = Collections.unmodifiableList(new ArrayList<>(slices));
+		this.verdict = verdict;
+		this.shape = shape;
+		this.duplicateOf = duplicateOf;
+		this.assertions = assertions;
+		this.assertLine = assertLine;
+		this.cost = cost;
+		this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+		this.exits = exits;
+	}
+
+	/**
+	 * @param duplicateOf the key of the chain this one duplicates, see key(String, String),
+	 *  or an empty string if it isn't a duplicate
+	 * @return a copy of this chain with the given shape
+	 */
+	public ChainInfo withShape(String shape, String duplicateOf) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return a copy of this chain with the given number of assertions, inserted before the given source line
+	 */
+	public ChainInfo withAssertions(int assertions, int assertLine) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return a copy of this chain with the given verdict
+	 */
+	public ChainInfo withVerdict(Verdict verdict) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return a copy of this chain with the given estimated cost of analyzing it
+	 */
+	public ChainInfo withCost(long cost) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return a copy of this chain with the given inputs, see getInputs()
+	 */
+	public ChainInfo withInputs(List<String> inputs) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return a copy of this chain with the given answer to hasExits()
+	 */
+	public ChainInfo withExits(boolean exits) {
+		return new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf, assertions,
+				assertLine, cost, inputs, exits);
+	}
+
+	/**
+	 * @return the qualified name of the type declaring the chain
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the signature of the method or constructor containing the chain,
+	 *  or an empty string if the chain is in an initializer
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return the source line of each if statement in the chain
+	 */
+	public List<Integer> getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return the generated variable names for the chain, depending on the encoding:
+	 *  one per branch, or one for the whole chain. Empty if the chain was sliced instead.
+	 */
+	public List<String> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * @return the names of the methods PredicateSlicer generated for each pair of branches,
+	 *  or an empty list if the chain was instrumented in its method
+	 */
+	public List<String> getSlices() {
+		return slices;
+	}
+
+	public boolean isSliced() {
+		return !slices.isEmpty();
+	}
+
+	/**
+	 * @return the verdict a PairOracle reached for the chain without analyzing it,
+	 *  or UNKNOWN if the chain was instrumented or sliced for analysis
+	 */
+	public Verdict getVerdict() {
+		return verdict;
+	}
+
+	public boolean isDecided() {
+		return verdict != Verdict.UNKNOWN;
+	}
+
+	/**
+	 * @return the key of the chain in a ShapeIndex: its method's shape and its position in the method,
+	 *  or an empty string if shapes weren't computed
+	 */
+	public String getShape() {
+		return shape;
+	}
+
+	/**
+	 * @return the key of the chain this one duplicates, see key(String, String), or an empty string if it isn't one
+	 */
+	public String getDuplicateOf() {
+		return duplicateOf;
+	}
+
+	public boolean isDuplicate() {
+		return !duplicateOf.isEmpty();
+	}
+
+	/**
+	 * @return the number of assertions inserted for the chain, 0 unless it was instrumented in its method
+	 */
+	public int getAssertions() {
+		return assertions;
+	}
+
+	/**
+	 * @return the source line the chain's assertions were inserted before: the line of the return statement
+	 *  ending the chain's block, or else the line closing the block. 0 if no assertions were inserted.
+	 */
+	public int getAssertLine() {
+		return assertLine;
+	}
+
+	/**
+	 * @return true if a return, throw, break or continue after the chain's first if statement can leave
+	 *  without reaching the chain's assertions, which then don't check every path that takes its branches
+	 */
+	public boolean hasExits() {
+		return exits;
+	}
+
+	/**
+	 * @return the AnalysisCost estimate for the chain, or 0 if it wasn't estimated
+	 */
+	public long getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return the parameters, as pN for the Nth, and fields, as this.name, whose values flow into the chain's
+	 *  conditions, see ConditionInputs. Empty if they weren't computed, or if the chain depends on every input.
+	 */
+	public List<String> getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return an id for the chain, unique within a corpus of distinct types
+	 */
+	public String getId() {
+		return type + "#" + method + "@" + lines.get(0);
+	}
+
+	/**
+	 * Chains of different submissions may have the same id, so a run keys them by their submission as well.
+	 * The key has no tabs, so that it fits in a field of toLine().
+	 * @return a key for the chain with the given id, found in the submission file, unique within a run
+	 */
+	public static String key(String file, String id) {
+		return file + "|" + id;
+	}
+
+	/**
+	 * Maps a generated name of representative, this chain's representative,
+	 *  to the corresponding name for this chain: a variable such as branchNN, or a slice.
+	 * @return the name for this chain, or name unchanged if representative has no such name
+	 */
+	public String remap(String name, ChainInfo representative) {
+		int i = representative.getVariables().indexOf(name);
+		if (i >= 0 && i < variables.size()) {
+			return variables.get(i);
+		}
+		i = representative.getSlices().indexOf(name);
+		if (i >= 0 && i < slices.size()) {
+			return slices.get(i);
+		}
+		return name;
+	}
+
+	/**
+	 * Encodes this chain as a single tab-separated line.
+	 */
+	public String toLine() {
+		return type + "\t" + method + "\t" + join(lines) + "\t" + join(variables) + "\t" + join(slices) + "\t"
+				+ verdict + "\t" + shape + "\t" + duplicateOf + "\t" + assertions + "\t" + assertLine
+				+ "\t" + cost + "\t" + join(inputs) + "\t" + exits;
+	}
+
+	/**
+	 * Decodes a chain from a line produced by toLine().
+	 */
+	public static ChainInfo fromLine(String line) {
+		String[] fields = line.split("\t", -1);
+		if (fields.length != 13) {
+			throw new IllegalArgumentException("Malformed chain: " + line);
+		}
+
+		List<Integer> lines = new ArrayList<>();
+		for (String l : fields[2].split(",")) {
+			lines.add(Integer.valueOf(l));
+		}
+		return new ChainInfo(fields[0], fields[1], lines, split(fields[3]), split(fields[4]), Verdict.valueOf(fields[5]),
+				fields[6], fields[7], Integer.parseInt(fields[8]), Integer.parseInt(fields[9]), Long.parseLong(fields[10]),
+				split(fields[11]), Boolean.parseBoolean(fields[12]));
+	}
+
+	private static List<String> split(String joined) {
+		List<String> values = new ArrayList<>();
+		if (!joined.isEmpty()) {
+			Collections.addAll(values, joined.split(","));
+		}
+		return values;
+	}
+
+	private static String join(List<?> values) {
+		StringBuilder sb = new StringBuilder();
+		for (Object value : values) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return type + "#" + method + " " + lines;
+	}
+}
@@ -0,0 +1,355 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtArrayAccess;
+import spoon.reflect.code.CtAssignment;
+import spoon.reflect.code.CtCFlowBreak;
+import spoon.reflect.code.CtConditional;
+import spoon.reflect.code.CtDo;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtFor;
+import spoon.reflect.code.CtForEach;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLocalVariable;
+import spoon.reflect.code.CtSwitch;
+import spoon.reflect.code.CtTargetedExpression;
+import spoon.reflect.code.CtThisAccess;
+import spoon.reflect.code.CtTypeAccess;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableAccess;
+import spoon.reflect.code.CtWhile;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtVariable;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.reflect.code.CtIfImpl;
+
+/**
+ * Computes the inputs of a chain: the parameters of its method, and the fields of its class,
+ *  whose values flow into the conditions of its if statements, so that the analysis can keep only those symbolic
+ *  and leave the rest concrete, see JDartJob.
+ *
+ * Values flow through assignments to variables, through calls to library methods taking a variable
+ *  that may change it, and from the conditions of the statements deciding whether an assignment,
+ *  the chain itself, or an early exit from the method is reached.
+ * An array or object flows through its aliases too: writes through a local variable given a reference
+ *  to it, or to part of it, change it as well.
+ * A method or constructor of the submission may read or write anything, so a chain whose conditions depend
+ *  on a call to one, or on a field in a method making one, depends on every input.
+ */
+public class ConditionInputs {
+
+	private final CtExecutable<?> executable;
+	private final Set<CtVariable<?>> followed = Collections.newSetFromMap(new IdentityHashMap<CtVariable<?>, Boolean>());
+	private final Deque<CtElement> pending = new ArrayDeque<>();
+	private final Set<Integer> parameters = new TreeSet<>();
+	private final Set<String> fields = new TreeSet<>();
+	private boolean everything;
+
+	private List<CtAssignment<?, ?>> assignments;
+	private List<CtUnaryOperator<?>> increments;
+	private List<CtAbstractInvocation<?>> invocations;
+	private List<CtLocalVariable<?>> locals;
+
+	private ConditionInputs(CtExecutable<?> executable) {
+		this.executable = executable;
+	}
+
+	/**
+	 * @return the inputs of chain, which must not have been instrumented yet: pN for the Nth parameter of its method,
+	 *  in order, and then this.name for each field. Empty if the chain depends on every input, or on none.
+	 */
+	public static List<String> of(List<CtIfImpl> chain) {
+		CtExecutable<?> executable = chain.get(0).getParent(CtExecutable.class);
+		while (executable != null && executable.getParent(CtExecutable.class) != null) {
+			executable = executable.getParent(CtExecutable.class);
+		}
+		if (executable == null) {
+			return Collections.emptyList();
+		}
+
+		ConditionInputs inputs = new ConditionInputs(executable);
+		for (CtIfImpl ifStatement : chain) {
+			inputs.add(ifStatement.getCondition());
+			inputs.addControl(ifStatement);
+		}
+		for (CtCFlowBreak exit : find(executable, CtCFlowBreak.class)) {
+			inputs.addControl(exit);
+		}
+		return inputs.compute();
+	}
+
+	private List<String> compute() {
+		while (!pending.isEmpty() && !everything) {
+			CtElement expression = pending.poll();
+			for (CtAbstractInvocation<?> invocation : find(expression, CtAbstractInvocation.class)) {
+				if (isSubmissionCall(invocation)) {
+					everything = true;
+				}
+			}
+			for (CtVariableAccess<?> access : find(expression, CtVariableAccess.class)) {
+				CtVariable<?> variable = access.getVariable().getDeclaration();
+				if (variable != null) {
+					follow(variable);
+				}
+			}
+		}
+		if (!fields.isEmpty()) {
+			for (CtAbstractInvocation<?> invocation : invocations()) {
+				everything |= isSubmissionCall(invocation);
+			}
+		}
+		if (everything) {
+			return Collections.emptyList();
+		}
+
+		List<String> inputs = new ArrayList<>();
+		for (int parameter : parameters) {
+			inputs.add("p" + parameter);
+		}
+		inputs.addAll(fields);
+		return inputs;
+	}
+
+	/**
+	 * Records variable as an input if it is one, and queues the expressions its value flows from.
+	 */
+	private void follow(CtVariable<?> variable) {
+		if (!followed.add(variable)) {
+			return;
+		}
+		if (variable instanceof CtParameter<?> && variable.getParent() == executable) {
+			for (int i = 0; i < executable.getParameters().size(); i++) {
+				if (executable.getParameters().get(i) == variable) {
+					parameters.add(i);
+				}
+			}
+		}
+		else if (variable instanceof CtField<?>) {
+			if (!((CtModifiable) variable).isStatic()) {
+				fields.add("this." + variable.getSimpleName());
+			}
+		}
+		else if (variable instanceof CtLocalVariable<?>) {
+			add(variable.getDefaultExpression());
+			addControl(variable);
+			if (variable.getParent() instanceof CtForEach
+					&& ((CtForEach) variable.getParent()).getVariable() == variable) {
+				add(((CtForEach) variable.getParent()).getExpression());
+			}
+		}
+
+		for (CtAssignment<?, ?> assignment : assignments()) {
+			if (root(assignment.getAssigned()) == variable) {
+				add(assignment.getAssigned());
+				add(assignment.getAssignment());
+				addControl(assignment);
+			}
+		}
+		for (CtUnaryOperator<?> increment : increments()) {
+			if (isIncrement(increment.getKind()) && root(increment.getOperand()) == variable) {
+				addControl(increment);
+			}
+		}
+		if (!(variable instanceof CtField<?>) && isReference(variable)) {
+			// A library method may change an array or object it is given, e.g. Arrays.fill
+			for (CtAbstractInvocation<?> invocation : invocations()) {
+				if (takes(invocation, variable)) {
+					add(invocation);
+					addControl(invocation);
+				}
+			}
+			followAliases(variable);
+		}
+	}
+
+	/**
+	 * Follows the variables, other than fields, that may be given a reference to the array or object of variable,
+	 *  or to part of it, since a write through one of them is a write to it.
+	 */
+	private void followAliases(CtVariable<?> variable) {
+		for (CtLocalVariable<?> local : locals()) {
+			CtExpression<?> initializer = local.getParent() instanceof CtForEach
+					&& ((CtForEach) local.getParent()).getVariable() == local
+					? ((CtForEach) local.getParent()).getExpression() : local.getDefaultExpression();
+			if (isReference(local) && reads(initializer, variable)) {
+				follow(local);
+			}
+		}
+		for (CtAssignment<?, ?> assignment : assignments()) {
+			CtVariable<?> assigned = assignment.getAssigned() instanceof CtVariableAccess<?>
+					? ((CtVariableAccess<?>) assignment.getAssigned()).getVariable().getDeclaration() : null;
+			if (assigned != null && !(assigned instanceof CtField<?>) && isReference(assigned)
+					&& reads(assignment.getAssignment(), variable)) {
+				follow(assigned);
+			}
+		}
+	}
+
+	private static boolean isReference(CtVariable<?> variable) {
+		return variable.getType() == null || !variable.getType().isPrimitive();
+	}
+
+	/**
+	 * @return whether expression accesses variable
+	 */
+	private static boolean reads(CtExpression<?> expression, CtVariable<?> variable) {
+		if (expression == null) {
+			return false;
+		}
+		for (CtVariableAccess<?> access : find(expression, CtVariableAccess.class)) {
+			if (access.getVariable().getDeclaration() == variable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void add(CtElement expression) {
+		if (expression != null) {
+			pending.add(expression);
+		}
+	}
+
+	/**
+	 * Queues the conditions of the statements and expressions enclosing element within the method.
+	 */
+	private void addControl(CtElement element) {
+		for (CtElement parent = element.getParent(); parent != null && parent != executable;
+				parent = parent.getParent()) {
+			if (parent instanceof CtIf) {
+				add(((CtIf) parent).getCondition());
+			}
+			else if (parent instanceof CtWhile) {
+				add(((CtWhile) parent).getLoopingExpression());
+			}
+			else if (parent instanceof CtDo) {
+				add(((CtDo) parent).getLoopingExpression());
+			}
+			else if (parent instanceof CtFor) {
+				add(((CtFor) parent).getExpression());
+			}
+			else if (parent instanceof CtForEach) {
+				add(((CtForEach) parent).getExpression());
+			}
+			else if (parent instanceof CtSwitch<?>) {
+				add(((CtSwitch<?>) parent).getSelector());
+			}
+			else if (parent instanceof CtConditional<?>) {
+				add(((CtConditional<?>) parent).getCondition());
+			}
+		}
+	}
+
+	/**
+	 * @return whether variable is the target or an argument of invocation, or the array or object one is part of
+	 */
+	private static boolean takes(CtAbstractInvocation<?> invocation, CtVariable<?> variable) {
+		List<CtExpression<?>> operands = new ArrayList<CtExpression<?>>(invocation.getArguments());
+		if (invocation instanceof CtTargetedExpression<?, ?>) {
+			operands.add(((CtTargetedExpression<?, ?>) invocation).getTarget());
+		}
+		for (CtExpression<?> operand : operands) {
+			if (operand != null && root(operand) == variable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the variable whose value expression reads or writes part of: itself, or the array or object
+	 *  an element or field of which it accesses. A field of this is a variable in its own right.
+	 */
+	private static CtVariable<?> root(CtExpression<?> expression) {
+		while (true) {
+			if (expression instanceof CtArrayAccess<?, ?>) {
+				expression = ((CtArrayAccess<?, ?>) expression).getTarget();
+				continue;
+			}
+			if (expression instanceof CtFieldAccess<?>) {
+				CtExpression<?> target = ((CtFieldAccess<?>) expression).getTarget();
+				if (target != null && !(target instanceof CtThisAccess<?>) && !(target instanceof CtTypeAccess<?>)) {
+					expression = target;
+					continue;
+				}
+			}
+			return expression instanceof CtVariableAccess<?>
+					? ((CtVariableAccess<?>) expression).getVariable().getDeclaration() : null;
+		}
+	}
+
+	private static boolean isIncrement(UnaryOperatorKind kind) {
+		return kind == UnaryOperatorKind.PREINC || kind == UnaryOperatorKind.PREDEC || kind == UnaryOperatorKind.POSTINC
+				|| kind == UnaryOperatorKind.POSTDEC;
+	}
+
+	/**
+	 * @return whether invocation calls a method or constructor declared in the submission
+	 */
+	private static boolean isSubmissionCall(CtAbstractInvocation<?> invocation) {
+		return invocation.getExecutable() != null && invocation.getExecutable().getDeclaration() != null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<CtAssignment<?, ?>> assignments() {
+		if (assignments == null) {
+			assignments = (List) find(executable, CtAssignment.class);
+		}
+		return assignments;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<CtUnaryOperator<?>> increments() {
+		if (increments == null) {
+			increments = (List) find(executable, CtUnaryOperator.class);
+		}
+		return increments;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<CtAbstractInvocation<?>> invocations() {
+		if (invocations == null) {
+			invocations = (List) find(executable, CtAbstractInvocation.class);
+		}
+		return invocations;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private List<CtLocalVariable<?>> locals() {
+		if (locals == null) {
+			locals = (List) find(executable, CtLocalVariable.class);
+		}
+		return locals;
+	}
+
+	/**
+	 * @return the elements of kind within root, including root itself
+	 */
+	private static <T> List<T> find(CtElement root, final Class<T> kind) {
+		final List<T> found = new ArrayList<>();
+		new CtScanner() {
+			@Override
+			protected void enter(CtElement element) {
+				if (kind.isInstance(element)) {
+					found.add(kind.cast(element));
+				}
+			}
+		}.scan(root);
+		return found;
+	}
+}
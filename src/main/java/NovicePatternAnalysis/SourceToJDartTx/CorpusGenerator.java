@@ -0,0 +1,227 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates compilable synthetic submissions with a known number of chains, for scaling and stress tests.
+ *
+ * Usage: [-o outputDir] [-f files] [-m methods] [-c chains] [-l length] [-d depth] [-n nesting] [-s noise]
+ *  [--seed seed]
+ * Each file has the given number of methods, and each method the given number of chains, separated by
+ *  noise statements that contain no if statements. Each chain has the given length, and starts with an
+ *  else-if ladder of the given depth whose last if statement has no else branch, as in Examples.depthTest.
+ * The last branch of each chain holds another chain, down to the given nesting level,
+ *  as in Examples.nestedScopesExample.
+ * The files are written as GenN.java in outputDir, with expected.tsv listing each file's number of chains.
+ */
+public class CorpusGenerator {
+
+	/** The file listing the expected number of chains in each generated file */
+	public static final String EXPECTED = "expected.tsv";
+
+	private String outputDir = "corpus";
+	private int files = 1;
+	private int methods = 10;
+	private int chains = 2;
+	private int length = 3;
+	private int depth = 1;
+	private int nesting = 0;
+	private int noise = 2;
+	private long seed = 0;
+
+	public static void main(String[] args) throws IOException {
+		CorpusGenerator generator = parse(args);
+		Map<Path, Integer> expected = generator.generate(Paths.get(generator.outputDir));
+		int total = 0;
+		for (int count : expected.values()) {
+			total += count;
+		}
+		System.out.println(String.format("%d files, %d chains in %s", expected.size(), total, generator.outputDir));
+	}
+
+	public static CorpusGenerator parse(String[] args) {
+		CorpusGenerator generator = new CorpusGenerator();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			switch (arg) {
+			case "-o":
+				generator.outputDir = requireValue(args, ++i, arg);
+				break;
+			case "-f":
+				generator.files = requireCount(args, ++i, arg, 1);
+				break;
+			case "-m":
+				generator.methods = requireCount(args, ++i, arg, 1);
+				break;
+			case "-c":
+				generator.chains = requireCount(args, ++i, arg, 0);
+				break;
+			case "-l":
+				generator.length = requireCount(args, ++i, arg, 2);
+				break;
+			case "-d":
+				generator.depth = requireCount(args, ++i, arg, 1);
+				break;
+			case "-n":
+				generator.nesting = requireCount(args, ++i, arg, 0);
+				break;
+			case "-s":
+				generator.noise = requireCount(args, ++i, arg, 0);
+				break;
+			case "--seed":
+				generator.seed = Long.parseLong(requireValue(args, ++i, arg));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		return generator;
+	}
+
+	private static String requireValue(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+		return args[i];
+	}
+
+	private static int requireCount(String[] args, int i, String option, int min) {
+		int value = Integer.parseInt(requireValue(args, i, option));
+		if (value < min) {
+			throw new IllegalArgumentException(option + " must be at least " + min);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of chains BranchCounterProcessor finds in each generated file
+	 */
+	public int expectedChains() {
+		return methods * chains * (nesting + 1);
+	}
+
+	/**
+	 * Writes the files, and expected.tsv, to dir.
+	 * @return the expected number of chains in each file
+	 */
+	public Map<Path, Integer> generate(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		Map<Path, Integer> expected = new LinkedHashMap<>();
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < files; i++) {
+			String name = "Gen" + i;
+			Path file = dir.resolve(name + ".java");
+			try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+				write(writer, name, new Random(seed + i));
+			}
+			expected.put(file, expectedChains());
+			lines.add(file.getFileName() + "\t" + expectedChains());
+		}
+		Files.write(dir.resolve(EXPECTED), lines, StandardCharsets.UTF_8);
+		return expected;
+	}
+
+	/**
+	 * @return the source of a single file declaring the class name
+	 */
+	public String source(String name) throws IOException {
+		StringWriter out = new StringWriter();
+		write(out, name, new Random(seed));
+		return out.toString();
+	}
+
+	private void write(Writer out, String name, Random random) throws IOException {
+		out.write("public class " + name + " {\n\n");
+		out.write("\tprivate int count;\n");
+		for (int m = 0; m < methods; m++) {
+			out.write("\n\tpublic int m" + m + "(int x, int z) {\n");
+			out.write("\t\tint y = 0;\n");
+			for (int c = 0; c < chains; c++) {
+				writeNoise(out, "\t\t", random);
+				writeChain(out, "\t\t", nesting, random);
+			}
+			out.write("\t\treturn y;\n");
+			out.write("\t}\n");
+		}
+		out.write("}\n");
+	}
+
+	/**
+	 * Writes a chain of length if statements, the first the head of an else-if ladder,
+	 *  and a nested chain in the last branch if level is above 0.
+	 */
+	private void writeChain(Writer out, String indent, int level, Random random) throws IOException {
+		for (int d = 0; d < depth; d++) {
+			out.write(d == 0 ? indent + "if (" : " else if (");
+			out.write(condition(random) + ") {\n");
+			out.write(indent + "\ty += " + (d + 1) + ";\n");
+			out.write(indent + "}");
+		}
+		out.write("\n");
+
+		for (int i = 1; i < length; i++) {
+			out.write(indent + "if (" + condition(random) + ") {\n");
+			out.write(indent + "\ty -= " + i + ";\n");
+			if (i == length - 1 && level > 0) {
+				writeNoise(out, indent + "\t", random);
+				writeChain(out, indent + "\t", level - 1, random);
+			}
+			out.write(indent + "}\n");
+		}
+	}
+
+	/**
+	 * Writes a statement that ends any chain before it, and noise statements without if statements.
+	 */
+	private void writeNoise(Writer out, String indent, Random random) throws IOException {
+		out.write(indent + "count++;\n");
+		for (int i = 0; i < noise; i++) {
+			switch (random.nextInt(4)) {
+			case 0:
+				out.write(indent + "y += x * " + random.nextInt(10) + ";\n");
+				break;
+			case 1:
+				out.write(indent + "y = Math.max(y, z - " + random.nextInt(10) + ");\n");
+				break;
+			case 2:
+				out.write(indent + "for (int i = 0; i < " + random.nextInt(5) + "; i++) {\n");
+				out.write(indent + "\ty ^= i;\n");
+				out.write(indent + "}\n");
+				break;
+			default:
+				out.write(indent + "z = y % " + (random.nextInt(9) + 1) + ";\n");
+			}
+		}
+	}
+
+	/**
+	 * @return a guard: comparisons of x with constants, which IntervalChecker can decide,
+	 *  or of x with z, which it can't
+	 */
+	private static String condition(Random random) {
+		int k = random.nextInt(20) - 10;
+		switch (random.nextInt(5)) {
+		case 0:
+			return "x < " + k;
+		case 1:
+			return "x > " + k;
+		case 2:
+			return "x == " + k;
+		case 3:
+			return "x % " + (random.nextInt(4) + 2) + " == 0";
+		default:
+			return "x * z > " + k;
+		}
+	}
+}
@@ -0,0 +1,478 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Transforms a corpus of submissions, each in its own Spoon model,
+ *  across a fixed-size pool of worker threads, started in the order of their paths.
+ * Each submission is started as soon as one before it finishes, and its result is reported and counted
+ *  then rather than kept, so a slow submission doesn't hold up the others.
+ * With a heap budget, the number of submissions in flight adapts to the peak heap usage,
+ *  so peak memory depends on the largest submissions rather than the corpus size.
+ * With JDart, each submission's undecided chains are queued for analysis as soon as it is transformed,
+ *  see JDartRunner, so analysis overlaps with transforming the rest of the corpus.
+ *  The deadline for the analysis, if any, starts with the run.
+ * The verdicts reached once a submission was written, by JDart for its chains, and from their representatives
+ *  for duplicates, are written back at the end of the run: to the memo, the manifest and the report's totals.
+ */
+public class CorpusRunner {
+
+	private final TransformOptions options;
+
+	public CorpusRunner(TransformOptions options) {
+		this.options = options;
+	}
+
+	public void run() throws IOException, InterruptedException {
+		Map<Path, Path> inputs = options.isBytecode() ? collectInputs(options.getInputs(), ".class", ".jar")
+				: collectInputs(options.getInputs());
+		Path outputDir = Paths.get(options.getOutputDir());
+		final VerdictMemo memo = options.getMemoFile() == null ? null
+				: new VerdictMemo(Paths.get(options.getMemoFile()));
+		List<Map.Entry<Path, Path>> pending = new ArrayList<>(inputs.entrySet());
+		Collections.sort(pending, new Comparator<Map.Entry<Path, Path>>() {
+			@Override
+			public int compare(Map.Entry<Path, Path> a, Map.Entry<Path, Path> b) {
+				return a.getKey().compareTo(b.getKey());
+			}
+		});
+		List<Path> order = new ArrayList<>();
+		for (Map.Entry<Path, Path> entry : pending) {
+			order.add(entry.getKey());
+		}
+		final Transformer transformer = options.isBytecode() ? new BytecodeInstrumenter(options)
+				: new SubmissionTransformer(options, memo, options.isDedup() ? new ShapeIndex(order) : null);
+		Path report = options.getReportFile() == null ? null : Paths.get(options.getReportFile());
+		final RunSnapshots snapshots = options.getSnapshotSeconds() == 0 ? null
+				: new RunSnapshots(Paths.get(report + ".snapshots"), inputs.size(), options.getSnapshotSeconds());
+		final ManifestWriter manifest = options.getManifestFile() == null ? null
+				: new ManifestWriter(Paths.get(options.getManifestFile()));
+		final FuzzPrefilter fuzzer = options.getFuzzIterations() == 0 ? null
+				: new FuzzPrefilter(options.getFuzzIterations(), options.getThreads());
+		final JDartRunner jdart = options.getJDart() == null ? null
+				: new JDartRunner(Paths.get(options.getJDart()), outputDir.resolve("jdart"), options.getThreads(),
+						options.getJobSeconds(), options.getJobMegabytes(), options.getRetries(),
+						options.getDeadlineMinutes() * 60);
+
+		final RunReport runReport = report == null ? null : new RunReport(report, options.getThreads());
+		Summary summary = new Summary();
+		final Duplicates duplicates = options.isDedup() ? new Duplicates() : null;
+
+		RunReport.resetPeakHeap();
+		long peakHeap = 0;
+		long budget = options.getHeapBudget();
+		int limit = options.getThreads();
+		int inFlight = 0;
+		int completed = 0;
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(options.getThreads());
+		CompletionService<TransformResult> done = new ExecutorCompletionService<>(pool);
+		try {
+			Iterator<Map.Entry<Path, Path>> next = pending.iterator();
+			while (next.hasNext() || inFlight > 0) {
+				// Submissions are started in order as others finish, so a slow one holds up only its own worker
+				while (next.hasNext() && inFlight < limit) {
+					Map.Entry<Path, Path> entry = next.next();
+					final Path input = entry.getKey();
+					final Path output = outputDir.resolve(entry.getValue());
+					done.submit(new Callable<TransformResult>() {
+						@Override
+						public TransformResult call() throws IOException, InterruptedException {
+							TransformResult result = transformer.transform(input, output);
+							if (fuzzer != null) {
+								result = fuzzer.filter(result);
+								record(memo, result.getChains());
+							}
+							if (duplicates != null) {
+								duplicates.add(result);
+							}
+							if (jdart != null) {
+								jdart.submit(JDartJob.of(result, options.getEncoding()));
+							}
+							if (manifest != null) {
+								manifest.write(result);
+							}
+							if (snapshots != null) {
+								snapshots.completed(result);
+							}
+							if (runReport != null) {
+								runReport.add(result);
+							}
+							return result;
+						}
+					});
+					inFlight++;
+				}
+
+				TransformResult result;
+				try {
+					result = done.take().get();
+				}
+				catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+				inFlight--;
+				completed++;
+				System.out.println(result);
+				summary.add(result);
+
+				if (budget > 0) {
+					long peak = RunReport.peakHeapBytes();
+					if (peak > budget || completed >= limit) {
+						peakHeap = Math.max(peakHeap, peak);
+						limit = nextConcurrency(limit, peak, budget, options.getThreads());
+						completed = 0;
+						RunReport.resetPeakHeap();
+					}
+				}
+			}
+			peakHeap = Math.max(peakHeap, RunReport.peakHeapBytes());
+
+			if (jdart != null) {
+				List<JDartJob.Outcome> outcomes = jdart.finish();
+				Map<String, List<ChainInfo>> decided = JDartJob.decided(outcomes);
+				printSummary(outcomes, decided);
+				for (Map.Entry<String, List<ChainInfo>> file : decided.entrySet()) {
+					record(memo, file.getValue());
+					writeBack(file.getKey(), file.getValue(), manifest, runReport);
+					if (duplicates != null) {
+						duplicates.decided(file.getKey(), file.getValue());
+					}
+				}
+			}
+			if (duplicates != null) {
+				for (Map.Entry<String, List<ChainInfo>> file : duplicates.resolve().entrySet()) {
+					writeBack(file.getKey(), file.getValue(), manifest, runReport);
+				}
+			}
+			long elapsedNanos = System.nanoTime() - start;
+			summary.print(elapsedNanos, options.getThreads());
+			if (runReport != null) {
+				runReport.finish(elapsedNanos, peakHeap);
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			transformer.close();
+			if (memo != null) {
+				memo.close();
+			}
+			if (jdart != null) {
+				jdart.close();
+			}
+			if (snapshots != null) {
+				snapshots.close();
+			}
+			if (manifest != null) {
+				manifest.close();
+			}
+			if (runReport != null) {
+				runReport.close();
+			}
+		}
+	}
+
+	/**
+	 * Records the verdicts the analysis reached for chains in memo, if there is one.
+	 */
+	private static void record(VerdictMemo memo, List<ChainInfo> chains) throws IOException {
+		if (memo == null) {
+			return;
+		}
+		for (ChainInfo chain : chains) {
+			memo.record(chain);
+		}
+	}
+
+	/**
+	 * Writes chains of the submission file, decided once its chains were written, to manifest and runReport.
+	 */
+	private static void writeBack(String file, List<ChainInfo> chains, ManifestWriter manifest,
+			RunReport runReport) throws IOException {
+		if (manifest != null) {
+			manifest.write(file, chains);
+		}
+		if (runReport != null) {
+			runReport.decided(chains);
+		}
+	}
+
+	/**
+	 * Adapts the number of submissions transformed at once to the heap budget.
+	 * Each submission's model is released once its output is written,
+	 *  so the models alive at any time are those of the submissions in flight.
+	 * @param peak the peak heap usage since the limit was last adapted, which is as soon as it goes over budget,
+	 *  or otherwise once as many submissions as the limit have finished
+	 * @return half of limit, but at least 1, if peak was over budget, one more than limit,
+	 *  but at most threads, if peak was under half the budget, and otherwise limit
+	 */
+	static int nextConcurrency(int limit, long peak, long budget, int threads) {
+		if (peak > budget) {
+			return Math.max(1, limit / 2);
+		}
+		if (peak < budget / 2) {
+			return Math.min(threads, limit + 1);
+		}
+		return limit;
+	}
+
+	/**
+	 * The counts printed at the end of a run, added up as submissions finish rather than from their results.
+	 */
+	private static class Summary {
+
+		private final Map<TransformResult.Status, Integer> counts = new EnumMap<>(TransformResult.Status.class);
+		private int files = 0;
+		private int chains = 0;
+		private int decided = 0;
+		private int duplicates = 0;
+		private int methodsSkipped = 0;
+
+		Summary() {
+			for (TransformResult.Status status : TransformResult.Status.values()) {
+				counts.put(status, 0);
+			}
+		}
+
+		void add(TransformResult result) {
+			files++;
+			counts.put(result.getStatus(), counts.get(result.getStatus()) + 1);
+			chains += result.getChains().size();
+			for (ChainInfo chain : result.getChains()) {
+				if (chain.isDecided()) {
+					decided++;
+				}
+				if (chain.isDuplicate()) {
+					duplicates++;
+				}
+			}
+			methodsSkipped += result.getMethodsSkipped();
+		}
+
+		void print(long elapsedNanos, int threads) {
+			double seconds = elapsedNanos / 1e9;
+			System.out.println(String.format(
+					"%d files (%d failed, %d cached, %d skipped), %d methods skipped, "
+							+ "%d chains (%d decided, %d duplicates) in %.2f s on %d threads: %.1f files/s",
+					files, counts.get(TransformResult.Status.FAILED), counts.get(TransformResult.Status.CACHED),
+					counts.get(TransformResult.Status.SKIPPED), methodsSkipped, chains, decided, duplicates, seconds,
+					threads, seconds > 0 ? files / seconds : 0.0));
+		}
+	}
+
+	/**
+	 * The duplicates left undecided when their submissions were written, see ShapeIndex,
+	 *  and the verdicts of the chains that may represent them, to decide them once the analysis is done.
+	 */
+	private static class Duplicates {
+
+		/** The undecided duplicates, by the key of their representative, see ChainInfo.key(String, String) */
+		private final Map<String, List<ManifestWriter.Entry>> undecided = new HashMap<>();
+		private final Map<String, Verdict> verdicts = new HashMap<>();
+
+		synchronized void add(TransformResult result) {
+			for (ChainInfo chain : result.getChains()) {
+				if (chain.isDuplicate() && !chain.isDecided()) {
+					if (!undecided.containsKey(chain.getDuplicateOf())) {
+						undecided.put(chain.getDuplicateOf(), new ArrayList<ManifestWriter.Entry>());
+					}
+					undecided.get(chain.getDuplicateOf())
+							.add(new ManifestWriter.Entry(result.getInput().toString(), chain));
+				}
+			}
+			decided(result.getInput().toString(), result.getChains());
+		}
+
+		/**
+		 * Records the verdicts of the chains among chains, those of the submission file,
+		 *  that are decided and aren't duplicates.
+		 */
+		synchronized void decided(String file, List<ChainInfo> chains) {
+			for (ChainInfo chain : chains) {
+				if (chain.isDecided() && !chain.isDuplicate()) {
+					verdicts.put(ChainInfo.key(file, chain.getId()), chain.getVerdict());
+				}
+			}
+		}
+
+		/**
+		 * @return the duplicates whose representatives were decided, with their verdicts, by their submission
+		 */
+		synchronized Map<String, List<ChainInfo>> resolve() {
+			Map<String, List<ChainInfo>> byFile = new TreeMap<>();
+			for (Map.Entry<String, List<ManifestWriter.Entry>> entries : undecided.entrySet()) {
+				Verdict verdict = verdicts.get(entries.getKey());
+				if (verdict == null) {
+					continue;
+				}
+				for (ManifestWriter.Entry entry : entries.getValue()) {
+					if (!byFile.containsKey(entry.getFile())) {
+						byFile.put(entry.getFile(), new ArrayList<ChainInfo>());
+					}
+					byFile.get(entry.getFile()).add(entry.getChain().withVerdict(verdict));
+				}
+			}
+			return byFile;
+		}
+	}
+
+	private static void printSummary(List<JDartJob.Outcome> outcomes, Map<String, List<ChainInfo>> decided) {
+		Map<JDartJob.Status, Integer> counts = new EnumMap<>(JDartJob.Status.class);
+		for (JDartJob.Status status : JDartJob.Status.values()) {
+			counts.put(status, 0);
+		}
+		for (JDartJob.Outcome outcome : outcomes) {
+			counts.put(outcome.getStatus(), counts.get(outcome.getStatus()) + 1);
+		}
+		int chains = 0;
+		for (List<ChainInfo> file : decided.values()) {
+			chains += file.size();
+		}
+		System.out.println(String.format("%d JDart jobs (%d done, %d timed out, %d crashed, %d skipped, "
+				+ "%d deferred), %d chains decided", outcomes.size(), counts.get(JDartJob.Status.DONE),
+				counts.get(JDartJob.Status.TIMEOUT), counts.get(JDartJob.Status.CRASHED),
+				counts.get(JDartJob.Status.SKIPPED), counts.get(JDartJob.Status.DEFERRED), chains));
+	}
+
+	/**
+	 * Expands the given inputs into submissions, each mapped to its path under the output directory.
+	 * A .java file given, or found directly in a directory given, is a submission of its own,
+	 *  mapped to its file name, and each subdirectory of a directory given is a single submission
+	 *  of all the .java files beneath it, mapped to its name. An input given more than once is only included once.
+	 * @throws IOException if an input doesn't exist, or two submissions would be written to the same path
+	 */
+	static Map<Path, Path> collectInputs(List<String> inputs) throws IOException {
+		Map<Path, Path> submissions = new LinkedHashMap<>();
+		collect(inputs, true, new String[] { ".java" }, submissions, new HashMap<Path, Path>(), new HashSet<Path>());
+		return submissions;
+	}
+
+	/**
+	 * Expands the given inputs into files with any of the given suffixes, each mapped to its path relative to
+	 *  the directory it was found in, or its file name if it was given, which is also its path under the output
+	 *  directory. An input given more than once is only included once.
+	 * @throws IOException if an input doesn't exist, or two files would be written to the same path
+	 */
+	static Map<Path, Path> collectInputs(List<String> inputs, String... suffixes) throws IOException {
+		Map<Path, Path> files = new LinkedHashMap<>();
+		collect(inputs, false, suffixes, files, new HashMap<Path, Path>(), new HashSet<Path>());
+		return files;
+	}
+
+	/**
+	 * Adds the submissions, or files, of inputs to found, checking their outputs against those in outputs.
+	 * @param outputs the input written to each output so found, by its normalized output
+	 * @param seen the normalized absolute path of each input in found
+	 */
+	private static void collect(List<String> inputs, boolean submissions, final String[] suffixes,
+			Map<Path, Path> found, Map<Path, Path> outputs, Set<Path> seen) throws IOException {
+		for (String input : inputs) {
+			if (input.startsWith("@")) {
+				List<String> listed = new ArrayList<>();
+				for (String line : Files.readAllLines(Paths.get(input.substring(1)), StandardCharsets.UTF_8)) {
+					if (!line.trim().isEmpty()) {
+						listed.add(line.trim());
+					}
+				}
+				collect(listed, submissions, suffixes, found, outputs, seen);
+				continue;
+			}
+
+			final Path path = Paths.get(input);
+			if (Files.isDirectory(path)) {
+				final Map<Path, Path> matches = new TreeMap<>();
+				final int depth = submissions ? 1 : Integer.MAX_VALUE;
+				Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), depth, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						if (attrs.isDirectory()) {
+							// A subdirectory at the depth limit
+							if (containsJavaFiles(file)) {
+								matches.put(file, path.relativize(file));
+							}
+						}
+						else if (matches(file, suffixes)) {
+							matches.put(file, path.relativize(file));
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+				for (Map.Entry<Path, Path> match : matches.entrySet()) {
+					add(match.getKey(), match.getValue(), found, outputs, seen);
+				}
+			}
+			else if (Files.isRegularFile(path)) {
+				add(path, path.getFileName(), found, outputs, seen);
+			}
+			else {
+				throw new IOException("No such file or directory: " + input);
+			}
+		}
+	}
+
+	private static boolean matches(Path file, String[] suffixes) {
+		for (String suffix : suffixes) {
+			if (file.toString().endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether dir contains a .java file, at any depth
+	 */
+	private static boolean containsJavaFiles(Path dir) throws IOException {
+		final boolean[] found = { false };
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				found[0] = file.toString().endsWith(".java");
+				return found[0] ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+			}
+		});
+		return found[0];
+	}
+
+	/**
+	 * Adds input to found, unless it is there already.
+	 */
+	private static void add(Path input, Path output, Map<Path, Path> found, Map<Path, Path> outputs, Set<Path> seen)
+			throws IOException {
+		if (!seen.add(input.toAbsolutePath().normalize())) {
+			return;
+		}
+		Path previous = outputs.put(output.normalize(), input);
+		if (previous != null) {
+			throw new IOException(previous + " and " + input + " would both be written to " + output);
+		}
+		found.put(input, output);
+	}
+}
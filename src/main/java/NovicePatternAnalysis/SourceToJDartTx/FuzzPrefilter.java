@@ -0,0 +1,718 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Decides chains overlapping by running their methods on random and boundary inputs,
+ *  before they are left to a concolic analysis such as JDart, which costs orders of magnitude more per chain.
+ *
+ * The classes compiled from a submission, see InMemoryCompiler, are loaded with assertions enabled,
+ *  and each method with undecided chains is called on inputs generated from its parameter types:
+ *  boundary values, the constants its code compares against and their neighbours, and random values,
+ *  with strings and arrays built from them. Since the XOR checks of the flags encoding also fail
+ *  when no branch is taken, an AssertionError alone doesn't show an overlap: the loaded classes
+ *  report the chain variables their assertions read, by the names the class's debug information gives them,
+ *  and a chain is OVERLAPPING once an assertion has read two of its branches taken.
+ *  The classes are loaded with their chain assertions rewritten to report rather than throw, see Observer.
+ *  A chain sliced by PredicateSlicer is OVERLAPPING once any of its slices returns true.
+ *  Chains that no input overlaps are left UNKNOWN, since random inputs can't show exclusivity.
+ *
+ * As the code of submissions isn't trusted, their methods run in a JVM of their own, see main,
+ *  with at most a given number of such JVMs at once. A method still running at its time limit,
+ *  as a submission can loop forever, ends its JVM, and the methods after it run in a new one.
+ *  Their output is discarded, and their reads from standard input see its end.
+ *  Submissions that call System.exit aren't run.
+ */
+public class FuzzPrefilter {
+
+	private static final long TIME_LIMIT_MILLIS = 2000;
+	/** The time a JVM is given to start, on top of the time limits of its methods */
+	private static final long STARTUP_MILLIS = 10000;
+	/** The methods to run, in the directory written for a submission, see main */
+	private static final String METHODS = "methods.txt";
+	private static final String CLASSES = "classes";
+	private static final String OBSERVER = Type.getInternalName(FuzzPrefilter.class);
+	/** The branches taken, by chain variable, as the fuzzing thread's last assertions read them */
+	private static final ThreadLocal<Map<String, Integer>> TAKEN = new ThreadLocal<Map<String, Integer>>() {
+		@Override
+		protected Map<String, Integer> initialValue() {
+			return new HashMap<>();
+		}
+	};
+
+	private final int iterations;
+	private final long timeLimitMillis;
+	private final Semaphore running;
+	private final List<String> command;
+
+	public FuzzPrefilter(int iterations, int threads) {
+		this(iterations, threads, TIME_LIMIT_MILLIS);
+	}
+
+	FuzzPrefilter(int iterations, int threads, long timeLimitMillis) {
+		this.iterations = iterations;
+		this.timeLimitMillis = timeLimitMillis;
+		this.running = new Semaphore(threads);
+		this.command = Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+				System.getProperty("java.class.path"), FuzzPrefilter.class.getName());
+	}
+
+	/**
+	 * Runs the methods of result's undecided chains, and the slices of those that were sliced, on generated inputs.
+	 * @return result, with the chains an input was found to overlap marked OVERLAPPING,
+	 *  or result itself if it has no classes or no undecided chains
+	 */
+	public TransformResult filter(TransformResult result) throws IOException, InterruptedException {
+		Map<String, byte[]> classes = result.getClasses();
+		// The chains to run each method or slice for, by its type and its signature or name
+		Map<String, List<ChainInfo>> byMethod = new LinkedHashMap<>();
+		for (ChainInfo chain : result.getChains()) {
+			if (chain.isDecided() || chain.isDuplicate() || !classes.containsKey(chain.getType())) {
+				continue;
+			}
+			if (chain.isSliced()) {
+				for (String slice : chain.getSlices()) {
+					byMethod.put(chain.getType() + "\t" + slice, Collections.singletonList(chain));
+				}
+				continue;
+			}
+			String key = chain.getType() + "\t" + chain.getMethod();
+			if (!byMethod.containsKey(key)) {
+				byMethod.put(key, new ArrayList<ChainInfo>());
+			}
+			byMethod.get(key).add(chain);
+		}
+		if (byMethod.isEmpty()) {
+			return result;
+		}
+		for (byte[] bytes : classes.values()) {
+			ClassSites sites = new ClassSites();
+			new ClassReader(bytes).accept(sites, 0);
+			if (sites.exits) {
+				return result;
+			}
+		}
+
+		TransformMetrics metrics = result.getMetrics();
+		metrics.begin(TransformMetrics.Phase.FUZZ);
+		List<List<ChainInfo>> methods = new ArrayList<>(byMethod.values());
+		Set<ChainInfo> overlapping = new HashSet<>();
+		Path dir = Files.createTempDirectory("fuzz");
+		try {
+			write(dir, classes, new ArrayList<>(byMethod.keySet()), methods);
+			running.acquire();
+			try {
+				for (int next = 0; next < methods.size();) {
+					next = run(dir, next, methods, overlapping);
+				}
+			}
+			finally {
+				// Only once the JVM is gone
+				running.release();
+			}
+		}
+		finally {
+			delete(dir);
+			metrics.end();
+		}
+		if (overlapping.isEmpty()) {
+			return result;
+		}
+
+		List<ChainInfo> chains = new ArrayList<>();
+		for (ChainInfo chain : result.getChains()) {
+			chains.add(overlapping.contains(chain) ? chain.withVerdict(Verdict.OVERLAPPING) : chain);
+		}
+		return result.withChains(chains);
+	}
+
+	/**
+	 * Writes the classes to run, and the methods to run with the variables of each of their chains, to dir.
+	 * A slice is written by its name, which also stands for the variables of its only chain.
+	 * @param targets the type and the signature of each method, or the name of each slice, separated by a tab
+	 */
+	private static void write(Path dir, Map<String, byte[]> classes, List<String> targets,
+			List<List<ChainInfo>> methods) throws IOException {
+		Files.createDirectories(dir.resolve(CLASSES));
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			Files.write(dir.resolve(CLASSES).resolve(entry.getKey() + ".class"), entry.getValue());
+		}
+		List<String> lines = new ArrayList<>();
+		for (int m = 0; m < methods.size(); m++) {
+			StringBuilder line = new StringBuilder(targets.get(m));
+			String target = targets.get(m).substring(targets.get(m).indexOf('\t') + 1);
+			if (target.indexOf('(') < 0) {
+				lines.add(line.append('\t').append(target).toString());
+				continue;
+			}
+			for (ChainInfo chain : methods.get(m)) {
+				line.append('\t');
+				for (int v = 0; v < chain.getVariables().size(); v++) {
+					line.append(v == 0 ? "" : ",").append(chain.getVariables().get(v));
+				}
+			}
+			lines.add(line.toString());
+		}
+		Files.write(dir.resolve(METHODS), lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Runs the methods from first on in a JVM of its own, adding the chains found overlapping to overlapping.
+	 * The JVM is killed if it outlives the time limits of its methods, and is gone once this returns.
+	 * @return the index of the method to go on with: the one after the method that ended the JVM, if one did,
+	 *  and otherwise the number of methods
+	 */
+	private int run(Path dir, int first, List<List<ChainInfo>> methods, Set<ChainInfo> overlapping)
+			throws IOException, InterruptedException {
+		List<String> arguments = new ArrayList<>(command);
+		arguments.addAll(Arrays.asList(dir.toString(), String.valueOf(first), String.valueOf(iterations),
+				String.valueOf(timeLimitMillis)));
+		File log = dir.resolve("output-" + first + ".txt").toFile();
+		Process process = new ProcessBuilder(arguments).redirectErrorStream(true).redirectOutput(log).start();
+		process.getOutputStream().close();
+		try {
+			if (!process.waitFor(timeLimitMillis * (methods.size() - first) + STARTUP_MILLIS,
+					TimeUnit.MILLISECONDS)) {
+				process.destroyForcibly().waitFor();
+			}
+		}
+		catch (InterruptedException e) {
+			process.destroyForcibly().waitFor();
+			throw e;
+		}
+
+		int started = -1;
+		int done = -1;
+		for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+			String[] words = line.split(" ");
+			if (words[0].equals("started") && words.length == 2) {
+				started = Integer.parseInt(words[1]);
+			}
+			else if (words[0].equals("done") && words.length == 2) {
+				done = Integer.parseInt(words[1]);
+			}
+			else if (words[0].equals("overlapping") && words.length == 3) {
+				overlapping.add(methods.get(Integer.parseInt(words[1])).get(Integer.parseInt(words[2])));
+			}
+		}
+		// A JVM that ended without a method running, e.g. one that couldn't start, won't do better next time
+		return started > done ? started + 1 : methods.size();
+	}
+
+	/**
+	 * Runs the methods written by filter to a directory, from a given one on, reporting on standard output
+	 *  as each is started and done, and the chains found overlapping.
+	 * A method still running at its time limit ends the JVM, as that is the only way to stop it.
+	 * @param args the directory, the index of the first method, the iterations and the time limit in milliseconds
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path dir = Paths.get(args[0]);
+		int first = Integer.parseInt(args[1]);
+		int iterations = Integer.parseInt(args[2]);
+		long timeLimitMillis = Long.parseLong(args[3]);
+		PrintStream report = System.out;
+		PrintStream discard = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		});
+		System.setOut(discard);
+		System.setErr(discard);
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+
+		Map<String, ClassSites> sites = new HashMap<>();
+		Map<String, byte[]> observed = new HashMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.resolve(CLASSES))) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				name = name.substring(0, name.length() - ".class".length());
+				ClassReader reader = new ClassReader(Files.readAllBytes(file));
+				ClassSites classSites = new ClassSites();
+				reader.accept(classSites, 0);
+				sites.put(name, classSites);
+				ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+				reader.accept(new Observer(writer, classSites), 0);
+				observed.put(name, writer.toByteArray());
+			}
+		}
+		ClassLoader loader = InMemoryCompiler.loader(observed, FuzzPrefilter.class.getClassLoader());
+		loader.setDefaultAssertionStatus(true);
+
+		List<String> methods = Files.readAllLines(dir.resolve(METHODS), StandardCharsets.UTF_8);
+		for (int m = first; m < methods.size(); m++) {
+			String[] fields = methods.get(m).split("\t");
+			List<List<String>> chains = new ArrayList<>();
+			for (int c = 2; c < fields.length; c++) {
+				chains.add(Arrays.asList(fields[c].split(",")));
+			}
+			report.println("started " + m);
+			report.flush();
+			MethodRun run = new MethodRun(loader, sites.get(fields[0]), fields[0], fields[1], chains, iterations);
+			Thread thread = new Thread(run, "fuzz " + fields[0] + "." + fields[1]);
+			thread.setDaemon(true);
+			thread.start();
+			thread.join(timeLimitMillis);
+			for (int c : run.getOverlapping()) {
+				report.println("overlapping " + m + " " + c);
+			}
+			if (thread.isAlive()) {
+				break;
+			}
+			report.println("done " + m);
+		}
+		report.flush();
+		// Without waiting for the method still running, or any thread the submission started
+		Runtime.getRuntime().halt(0);
+	}
+
+	/**
+	 * Records a flag or counter read by an assertion, called by the loaded classes.
+	 * @return value, for the assertion to go on with
+	 */
+	public static int observe(int value, String variable) {
+		TAKEN.get().put(variable, value);
+		return value;
+	}
+
+	/**
+	 * Records a mask read by an assertion, called by the loaded classes.
+	 * @return value, for the assertion to go on with
+	 */
+	public static long observe(long value, String variable) {
+		TAKEN.get().put(variable, Long.bitCount(value));
+		return value;
+	}
+
+	/**
+	 * Calls a method on generated inputs until every one of its chains overlaps, or the inputs run out.
+	 * A slice, named without parameters, overlaps its chain when it returns true.
+	 */
+	private static class MethodRun implements Runnable {
+		private final ClassLoader loader;
+		private final ClassSites sites;
+		private final String type;
+		private final String method;
+		/** The variables of each chain of the method */
+		private final List<List<String>> chains;
+		private final int iterations;
+		private final Set<Integer> overlapping = new TreeSet<>();
+
+		MethodRun(ClassLoader loader, ClassSites sites, String type, String method, List<List<String>> chains,
+				int iterations) {
+			this.loader = loader;
+			this.sites = sites;
+			this.type = type;
+			this.method = method;
+			this.chains = chains;
+			this.iterations = iterations;
+		}
+
+		/**
+		 * @return the indexes of the chains found overlapping so far
+		 */
+		synchronized List<Integer> getOverlapping() {
+			return new ArrayList<>(overlapping);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Class<?> owner = Class.forName(type, false, loader);
+				Executable executable = find(owner, method);
+				if (executable == null) {
+					return;
+				}
+				executable.setAccessible(true);
+				Constructor<?> receiver = null;
+				if (executable instanceof Method && !Modifier.isStatic(executable.getModifiers())) {
+					receiver = owner.getDeclaredConstructor();
+					receiver.setAccessible(true);
+				}
+				String descriptor = executable instanceof Method ? Type.getMethodDescriptor((Method) executable)
+						: Type.getConstructorDescriptor((Constructor<?>) executable);
+				String name = executable instanceof Constructor<?> ? "<init>" : executable.getName();
+				Inputs inputs = new Inputs(sites.constants(name + descriptor), method.hashCode());
+				Class<?>[] parameters = executable.getParameterTypes();
+				Map<String, Integer> taken = TAKEN.get();
+				boolean slice = method.indexOf('(') < 0;
+				for (int i = 0; i < iterations && getOverlapping().size() < chains.size(); i++) {
+					Object[] arguments = new Object[parameters.length];
+					for (int p = 0; p < parameters.length; p++) {
+						arguments[p] = inputs.next(parameters[p], 0);
+					}
+					taken.clear();
+					Object returned = null;
+					try {
+						if (executable instanceof Constructor<?>) {
+							((Constructor<?>) executable).newInstance(arguments);
+						}
+						else {
+							returned = ((Method) executable).invoke(receiver == null ? null : receiver.newInstance(),
+									arguments);
+						}
+					}
+					catch (InvocationTargetException e) {
+						// Submissions throw, e.g. on null inputs, and what their assertions read so far still counts
+					}
+					if (slice && Boolean.TRUE.equals(returned)) {
+						synchronized (this) {
+							overlapping.add(0);
+						}
+					}
+					for (int c = 0; c < chains.size(); c++) {
+						int branches = 0;
+						for (String variable : chains.get(c)) {
+							Integer count = taken.get(variable);
+							branches += count == null ? 0 : count;
+						}
+						if (branches > 1) {
+							synchronized (this) {
+								overlapping.add(c);
+							}
+						}
+					}
+				}
+			}
+			catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+				// The method can't be called from here, so its chains are left to the analysis
+			}
+		}
+	}
+
+	/**
+	 * @return the method or constructor of type with the given Spoon signature, or the only method
+	 *  with the given name if signature has no parameters, or null if there is none
+	 */
+	static Executable find(Class<?> type, String signature) {
+		int open = signature.indexOf('(');
+		String name = open < 0 ? signature : signature.substring(0, open);
+		String parameters = open < 0 ? null : signature.substring(open + 1, signature.lastIndexOf(')'));
+		List<Executable> candidates = new ArrayList<>();
+		if (name.equals(type.getName()) || name.equals(type.getSimpleName())) {
+			candidates.addAll(Arrays.asList(type.getDeclaredConstructors()));
+		}
+		for (Method method : type.getDeclaredMethods()) {
+			if (method.getName().equals(name) && !method.isBridge() && !method.isSynthetic()) {
+				candidates.add(method);
+			}
+		}
+		for (Executable candidate : candidates) {
+			StringBuilder names = new StringBuilder();
+			for (Class<?> parameter : candidate.getParameterTypes()) {
+				names.append(names.length() == 0 ? "" : ",").append(parameter.getTypeName());
+			}
+			if (names.toString().equals(parameters)) {
+				return candidate;
+			}
+		}
+		return candidates.size() == 1 ? candidates.get(0) : null;
+	}
+
+	/**
+	 * Generates arguments from a method's constants, boundary values and random values.
+	 */
+	static class Inputs {
+		private static final long[] BOUNDARIES = { 0, 1, -1, 2, -2, 10, -10, 100, Integer.MAX_VALUE,
+				Integer.MIN_VALUE };
+		private static final int MAX_LENGTH = 6;
+
+		private final List<Number> numbers = new ArrayList<>();
+		private final List<String> strings = new ArrayList<>();
+		private final Random random;
+
+		Inputs(Set<Object> constants, long seed) {
+			random = new Random(seed);
+			Set<Number> values = new HashSet<>();
+			for (long boundary : BOUNDARIES) {
+				values.add(boundary);
+			}
+			strings.add("");
+			for (Object constant : constants) {
+				if (constant instanceof Number) {
+					Number number = (Number) constant;
+					if (number instanceof Double || number instanceof Float) {
+						double value = number.doubleValue();
+						values.addAll(Arrays.<Number>asList(value, value - 0.5, value + 0.5, Math.floor(value) - 1,
+								Math.ceil(value) + 1));
+					}
+					else {
+						long value = number.longValue();
+						values.addAll(Arrays.<Number>asList(value, value - 1, value + 1));
+					}
+				}
+				else if (constant instanceof String) {
+					strings.add((String) constant);
+				}
+			}
+			numbers.addAll(values);
+		}
+
+		/**
+		 * @return an argument of the given type, or null for types that can't be generated
+		 */
+		Object next(Class<?> type, int depth) {
+			boolean near = random.nextInt(4) != 0;
+			Number number = near ? numbers.get(random.nextInt(numbers.size()))
+					: (Number) (random.nextBoolean() ? (long) random.nextInt(2001) - 1000 : random.nextGaussian() * 1000);
+			if (!type.isPrimitive() && type != String.class && random.nextInt(20) == 0) {
+				return null;
+			}
+			if (type == int.class || type == Integer.class) {
+				return number.intValue();
+			}
+			if (type == long.class || type == Long.class) {
+				return number.longValue();
+			}
+			if (type == double.class || type == Double.class) {
+				return number.doubleValue();
+			}
+			if (type == float.class || type == Float.class) {
+				return number.floatValue();
+			}
+			if (type == short.class || type == Short.class) {
+				return number.shortValue();
+			}
+			if (type == byte.class || type == Byte.class) {
+				return number.byteValue();
+			}
+			if (type == char.class || type == Character.class) {
+				return random.nextBoolean() ? (char) number.intValue() : (char) (' ' + random.nextInt(95));
+			}
+			if (type == boolean.class || type == Boolean.class) {
+				return random.nextBoolean();
+			}
+			if (type == String.class) {
+				if (random.nextInt(3) != 0) {
+					return strings.get(random.nextInt(strings.size()));
+				}
+				char[] chars = new char[random.nextInt(MAX_LENGTH + 1)];
+				for (int i = 0; i < chars.length; i++) {
+					chars[i] = (char) (' ' + random.nextInt(95));
+				}
+				return new String(chars);
+			}
+			if (type.isArray() && depth < 2) {
+				Object array = Array.newInstance(type.getComponentType(), random.nextInt(MAX_LENGTH + 1));
+				for (int i = 0; i < Array.getLength(array); i++) {
+					Object element = next(type.getComponentType(), depth + 1);
+					if (element != null || !type.getComponentType().isPrimitive()) {
+						Array.set(array, i, element);
+					}
+				}
+				return array;
+			}
+			return type.isPrimitive() ? 0 : null;
+		}
+	}
+
+	/**
+	 * What the fuzzer needs to know of a compiled class: the constants in each of its methods,
+	 *  the loads of chain variables in each, and whether it calls System.exit.
+	 * Methods are keyed by name and descriptor, and loads by their position among the method's
+	 *  variable instructions, since the local variable table only names slots once the code has been visited.
+	 */
+	private static class ClassSites extends ClassVisitor {
+		final Map<String, Set<Object>> constants = new HashMap<>();
+		final Map<String, Map<Integer, String>> loads = new HashMap<>();
+		boolean exits = false;
+
+		ClassSites() {
+			super(Opcodes.ASM9);
+		}
+
+		Set<Object> constants(String method) {
+			Set<Object> values = constants.get(method);
+			return values == null ? new HashSet<>() : values;
+		}
+
+		Map<Integer, String> loads(String method) {
+			Map<Integer, String> methodLoads = loads.get(method);
+			return methodLoads == null ? new HashMap<Integer, String>() : methodLoads;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+				String[] exceptions) {
+			final Set<Object> methodConstants = new HashSet<>();
+			final Map<Integer, String> methodLoads = new HashMap<>();
+			constants.put(name + descriptor, methodConstants);
+			loads.put(name + descriptor, methodLoads);
+			return new MethodVisitor(Opcodes.ASM9) {
+				/** The slot of each variable instruction, and the number of them before each label */
+				private final List<Integer> slots = new ArrayList<>();
+				private final List<Boolean> isLoad = new ArrayList<>();
+				private final Map<Label, Integer> positions = new HashMap<>();
+
+				@Override
+				public void visitLabel(Label label) {
+					positions.put(label, slots.size());
+				}
+
+				@Override
+				public void visitInsn(int opcode) {
+					if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+						methodConstants.add(opcode - Opcodes.ICONST_0);
+					}
+				}
+
+				@Override
+				public void visitIntInsn(int opcode, int operand) {
+					if (opcode != Opcodes.NEWARRAY) {
+						methodConstants.add(operand);
+					}
+				}
+
+				@Override
+				public void visitLdcInsn(Object value) {
+					if (value instanceof Number || value instanceof String) {
+						methodConstants.add(value);
+					}
+				}
+
+				@Override
+				public void visitVarInsn(int opcode, int var) {
+					slots.add(var);
+					isLoad.add(opcode == Opcodes.ILOAD || opcode == Opcodes.LLOAD);
+				}
+
+				@Override
+				public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+						boolean isInterface) {
+					if ((owner.equals("java/lang/System") && name.equals("exit"))
+							|| (owner.equals("java/lang/Runtime") && (name.equals("exit") || name.equals("halt")))) {
+						exits = true;
+					}
+				}
+
+				@Override
+				public void visitLocalVariable(String name, String descriptor, String signature, Label start,
+						Label end, int index) {
+					if (name.startsWith("branch") && positions.containsKey(start) && positions.containsKey(end)) {
+						for (int i = positions.get(start); i < positions.get(end); i++) {
+							if (slots.get(i) == index && isLoad.get(i)) {
+								methodLoads.put(i, name);
+							}
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Reports each load of a chain variable found by ClassSites to observe, leaving its value on the stack.
+	 * In the methods that load them, a failed assertion drops its error rather than throwing it,
+	 *  going on as if it had passed: a chain whose check fails because none of its branches were taken
+	 *  would otherwise end the call before the checks of later chains are reached.
+	 */
+	private static class Observer extends ClassVisitor {
+		private final ClassSites sites;
+
+		Observer(ClassVisitor next, ClassSites sites) {
+			super(Opcodes.ASM9, next);
+			this.sites = sites;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+				String[] exceptions) {
+			final Map<Integer, String> loads = sites.loads(name + descriptor);
+			MethodVisitor next = super.visitMethod(access, name, descriptor, signature, exceptions);
+			if (loads.isEmpty()) {
+				return next;
+			}
+			return new MethodVisitor(Opcodes.ASM9, next) {
+				private int position = 0;
+				private boolean assertionFailed = false;
+
+				@Override
+				public void visitInsn(int opcode) {
+					// javac and BytecodeInstrumenter both follow the throw with the code for a passed assertion
+					super.visitInsn(opcode == Opcodes.ATHROW && assertionFailed ? Opcodes.POP : opcode);
+					assertionFailed = false;
+				}
+
+				@Override
+				public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+						boolean isInterface) {
+					super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+					assertionFailed = opcode == Opcodes.INVOKESPECIAL && owner.equals("java/lang/AssertionError");
+				}
+
+				@Override
+				public void visitLabel(Label label) {
+					super.visitLabel(label);
+					assertionFailed = false;
+				}
+
+				@Override
+				public void visitVarInsn(int opcode, int var) {
+					assertionFailed = false;
+					super.visitVarInsn(opcode, var);
+					String variable = loads.get(position++);
+					if (variable != null) {
+						boolean mask = opcode == Opcodes.LLOAD;
+						super.visitLdcInsn(variable);
+						super.visitMethodInsn(Opcodes.INVOKESTATIC, OBSERVER, "observe",
+								mask ? "(JLjava/lang/String;)J" : "(ILjava/lang/String;)I", false);
+					}
+				}
+			};
+		}
+	}
+
+	private static void delete(Path tree) throws IOException {
+		Files.walkFileTree(tree, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
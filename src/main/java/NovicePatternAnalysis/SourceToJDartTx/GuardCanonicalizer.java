@@ -0,0 +1,250 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtThisAccess;
+import spoon.reflect.code.CtTypeAccess;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtVariableReference;
+
+/**
+ * Writes the guards of a pair of branches in a canonical form, so that pairs with the same logic
+ *  get the same key in a VerdictMemo, whatever their variables are called.
+ *
+ * Variables are renamed in order of first appearance, as v0, v1, ... for locals and parameters
+ *  and f0, f1, ... for fields, each followed by its type.
+ * Comparisons are written with a constant on the right, and otherwise with < or <= rather than > or >=,
+ *  and integral constants are written in decimal, so {@code 0 > n} and {@code x < 0x0} are both
+ *  {@code (v0:int<0)}. Long constants keep their L, since they change how arithmetic around them overflows.
+ */
+public class GuardCanonicalizer {
+
+	private final Map<String, String> names = new HashMap<>();
+	private int variables = 0;
+	private int fields = 0;
+
+	private GuardCanonicalizer() {
+	}
+
+	/**
+	 * @return the canonical form of the guards of the i-th and j-th if statements of guards' chain,
+	 *  or null if a guard contains an expression other than variables, literals and operators
+	 */
+	public static String canonical(ChainGuards guards, int i, int j) {
+		GuardCanonicalizer canonicalizer = new GuardCanonicalizer();
+		StringBuilder out = new StringBuilder();
+		if (!canonicalizer.append(out, guards.getConditions(i))) {
+			return null;
+		}
+		out.append(" ; ");
+		if (!canonicalizer.append(out, guards.getConditions(j))) {
+			return null;
+		}
+		return out.toString();
+	}
+
+	private boolean append(StringBuilder out, List<CtExpression<Boolean>> conditions) {
+		for (int k = 0; k < conditions.size(); k++) {
+			if (k > 0) {
+				out.append("&&");
+			}
+			if (!append(out, conditions.get(k))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean append(StringBuilder out, CtExpression<?> expression) {
+		for (CtTypeReference<?> cast : expression.getTypeCasts()) {
+			out.append('(').append(cast.getQualifiedName()).append(')');
+		}
+
+		if (expression instanceof CtFieldAccess<?>) {
+			CtExpression<?> target = ((CtFieldAccess<?>) expression).getTarget();
+			if (target != null && !(target instanceof CtThisAccess<?>) && !(target instanceof CtTypeAccess<?>)) {
+				return false;
+			}
+		}
+		if (expression instanceof CtVariableRead<?>) {
+			out.append(name(((CtVariableRead<?>) expression).getVariable()));
+			return true;
+		}
+		Long integral = integral(expression);
+		if (integral != null) {
+			out.append(integral).append(isLong(expression) ? "L" : "");
+			return true;
+		}
+		if (expression instanceof CtLiteral<?>) {
+			String literal = literal(((CtLiteral<?>) expression).getValue());
+			out.append(literal);
+			return literal != null;
+		}
+		if (expression instanceof CtUnaryOperator<?>) {
+			CtUnaryOperator<?> unary = (CtUnaryOperator<?>) expression;
+			out.append(unary.getKind()).append('(');
+			boolean result = append(out, unary.getOperand());
+			out.append(')');
+			return result;
+		}
+		if (expression instanceof CtBinaryOperator<?>) {
+			CtBinaryOperator<?> binary = (CtBinaryOperator<?>) expression;
+			CtExpression<?> left = binary.getLeftHandOperand();
+			CtExpression<?> right = binary.getRightHandOperand();
+			BinaryOperatorKind kind = binary.getKind();
+			BinaryOperatorKind flipped = flip(kind);
+			boolean leftConstant = left instanceof CtLiteral<?> || integral(left) != null;
+			boolean rightConstant = right instanceof CtLiteral<?> || integral(right) != null;
+			if (flipped != null && ((leftConstant && !rightConstant)
+					|| (leftConstant == rightConstant && (kind == BinaryOperatorKind.GT || kind == BinaryOperatorKind.GE)))) {
+				CtExpression<?> swap = left;
+				left = right;
+				right = swap;
+				kind = flipped;
+			}
+
+			out.append('(');
+			boolean result = append(out, left);
+			out.append(symbol(kind));
+			result &= append(out, right);
+			out.append(')');
+			return result;
+		}
+		return false;
+	}
+
+	private String name(CtVariableReference<?> variable) {
+		boolean field = variable instanceof CtFieldReference<?>;
+		String key = (field ? "field:" : "") + variable.getSimpleName();
+		String name = names.get(key);
+		if (name == null) {
+			name = (field ? "f" + fields++ : "v" + variables++) + ":"
+					+ (variable.getType() == null ? "?" : variable.getType().getQualifiedName());
+			names.put(key, name);
+		}
+		return name;
+	}
+
+	private static String literal(Object value) {
+		if (value instanceof Character) {
+			return String.valueOf((int) (Character) value);
+		}
+		if (value instanceof Float || value instanceof Double) {
+			return ((Number) value).doubleValue() + "d";
+		}
+		if (value instanceof Boolean || value == null) {
+			return String.valueOf(value);
+		}
+		if (value instanceof String) {
+			// Escape the separators used by VerdictMemo
+			return "\"" + ((String) value).replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n")
+					.replace("\r", "\\r") + "\"";
+		}
+		return null;
+	}
+
+	/**
+	 * @return the value of expression if it is an integral literal, possibly negated, otherwise null
+	 */
+	private static Long integral(CtExpression<?> expression) {
+		if (!expression.getTypeCasts().isEmpty()) {
+			return null;
+		}
+		if (expression instanceof CtLiteral<?>) {
+			Object value = ((CtLiteral<?>) expression).getValue();
+			if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+				return ((Number) value).longValue();
+			}
+		}
+		if (expression instanceof CtUnaryOperator<?>
+				&& ((CtUnaryOperator<?>) expression).getKind() == UnaryOperatorKind.NEG) {
+			Long operand = integral(((CtUnaryOperator<?>) expression).getOperand());
+			return operand == null ? null : -operand;
+		}
+		return null;
+	}
+
+	private static boolean isLong(CtExpression<?> expression) {
+		if (expression instanceof CtUnaryOperator<?>) {
+			return isLong(((CtUnaryOperator<?>) expression).getOperand());
+		}
+		return ((CtLiteral<?>) expression).getValue() instanceof Long;
+	}
+
+	/**
+	 * @return the comparison with its operands swapped, or null if kind isn't a comparison
+	 */
+	private static BinaryOperatorKind flip(BinaryOperatorKind kind) {
+		switch (kind) {
+		case LT:
+			return BinaryOperatorKind.GT;
+		case LE:
+			return BinaryOperatorKind.GE;
+		case GT:
+			return BinaryOperatorKind.LT;
+		case GE:
+			return BinaryOperatorKind.LE;
+		case EQ:
+		case NE:
+			return kind;
+		default:
+			return null;
+		}
+	}
+
+	private static String symbol(BinaryOperatorKind kind) {
+		switch (kind) {
+		case OR:
+			return "||";
+		case AND:
+			return "&&";
+		case BITOR:
+			return "|";
+		case BITXOR:
+			return "^";
+		case BITAND:
+			return "&";
+		case EQ:
+			return "==";
+		case NE:
+			return "!=";
+		case LT:
+			return "<";
+		case GT:
+			return ">";
+		case LE:
+			return "<=";
+		case GE:
+			return ">=";
+		case SL:
+			return "<<";
+		case SR:
+			return ">>";
+		case USR:
+			return ">>>";
+		case PLUS:
+			return "+";
+		case MINUS:
+			return "-";
+		case MUL:
+			return "*";
+		case DIV:
+			return "/";
+		case MOD:
+			return "%";
+		default:
+			return kind.name();
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles instrumented sources in memory with the system Java compiler,
+ *  so that the analysis stage gets class files without each submission being written out,
+ *  compiled by a separate javac process and read back from disk.
+ *
+ * Sources are compiled against the tool's own classpath, with debug information
+ *  so that analyses can map instructions back to the lines ChainInfo gives.
+ * The compiler is shared, and each thread keeps its own standard file manager, which indexes the classpath
+ *  once rather than on every compilation, so submissions can be compiled on several threads at once.
+ */
+public class InMemoryCompiler {
+
+	private static final List<String> OPTIONS = Arrays.asList("-g", "-nowarn", "-proc:none");
+
+	private final JavaCompiler compiler;
+	private final ThreadLocal<StandardJavaFileManager> standardFiles = new ThreadLocal<StandardJavaFileManager>() {
+		@Override
+		protected StandardJavaFileManager initialValue() {
+			return compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+		}
+	};
+
+	public InMemoryCompiler() {
+		compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("In-memory compilation needs a JDK, not a JRE");
+		}
+	}
+
+	/**
+	 * Compiles sources together.
+	 * @param sources the text of each source file, by its path relative to an output root
+	 * @return the bytes of each class compiled, by its binary name
+	 * @throws IllegalArgumentException if the sources don't compile, with the compiler's errors
+	 */
+	public Map<String, byte[]> compile(Map<Path, String> sources) throws IOException {
+		return compile(sources, Collections.<Path>emptyList());
+	}
+
+	/**
+	 * Compiles sources together, looking up any other types they use in the source roots of sourcepath,
+	 *  e.g. those of the files next to a submission given on its own. Those types aren't compiled into the result.
+	 */
+	public Map<String, byte[]> compile(Map<Path, String> sources, List<Path> sourcepath) throws IOException {
+		List<String> options = new ArrayList<>(OPTIONS);
+		if (!sourcepath.isEmpty()) {
+			StringBuilder roots = new StringBuilder();
+			for (Path root : sourcepath) {
+				if (roots.length() > 0) {
+					roots.append(File.pathSeparatorChar);
+				}
+				roots.append(root.toAbsolutePath());
+			}
+			Collections.addAll(options, "-sourcepath", roots.toString(), "-implicit:none");
+		}
+
+		List<JavaFileObject> units = new ArrayList<>();
+		for (Map.Entry<Path, String> source : sources.entrySet()) {
+			units.add(new Source(source.getKey(), source.getValue()));
+		}
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		try (ClassFileManager files = new ClassFileManager(standardFiles.get(), classes)) {
+			if (!compiler.getTask(null, files, diagnostics, options, null, units).call()) {
+				StringBuilder errors = new StringBuilder("Doesn't compile:");
+				for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+						errors.append(' ').append(diagnostic.getSource() == null ? "" : diagnostic.getSource().getName())
+								.append(':').append(diagnostic.getLineNumber()).append(": ")
+								.append(diagnostic.getMessage(Locale.ROOT));
+					}
+				}
+				throw new IllegalArgumentException(errors.toString());
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * @return a class loader defining the given classes, by binary name, before delegating to parent
+	 *  for any others
+	 */
+	public static ClassLoader loader(Map<String, byte[]> classes, ClassLoader parent) {
+		return new ByteClassLoader(classes, parent);
+	}
+
+	/**
+	 * A source file held in memory.
+	 */
+	private static class Source extends SimpleJavaFileObject {
+		private final String text;
+
+		Source(Path path, String text) {
+			super(URI.create("string:///" + path.toString().replace('\\', '/')), Kind.SOURCE);
+			this.text = text;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return text;
+		}
+	}
+
+	/**
+	 * A class file written to memory, into the map of classes by binary name.
+	 */
+	private static class ClassFile extends SimpleJavaFileObject {
+		private final String name;
+		private final Map<String, byte[]> classes;
+
+		ClassFile(String name, Map<String, byte[]> classes) {
+			super(URI.create("bytes:///" + name.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+			this.name = name;
+			this.classes = classes;
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					synchronized (classes) {
+						classes.put(name, toByteArray());
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Reads sources and the classpath as the standard file manager does, but writes class files to memory.
+	 */
+	private static class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		private final Map<String, byte[]> classes;
+
+		ClassFileManager(StandardJavaFileManager standard, Map<String, byte[]> classes) {
+			super(standard);
+			this.classes = classes;
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+				JavaFileObject.Kind kind, FileObject sibling) {
+			return new ClassFile(className, classes);
+		}
+
+		@Override
+		public void close() throws IOException {
+			// The standard file manager is kept for the thread's next compilation
+			flush();
+		}
+	}
+
+	/**
+	 * Defines classes from their bytes, and serves the bytes as resources,
+	 *  for analyses that read class files rather than loading them.
+	 */
+	private static class ByteClassLoader extends ClassLoader {
+		private final Map<String, byte[]> classes;
+
+		ByteClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+			super(parent);
+			this.classes = Collections.unmodifiableMap(new LinkedHashMap<>(classes));
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			// The submission's classes come first, in case the tool's classpath has classes of the same name
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loaded = findLoadedClass(name);
+				if (loaded == null && classes.containsKey(name)) {
+					loaded = findClass(name);
+				}
+				if (loaded == null) {
+					return super.loadClass(name, resolve);
+				}
+				if (resolve) {
+					resolveClass(loaded);
+				}
+				return loaded;
+			}
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = classes.get(name);
+			if (bytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		public InputStream getResourceAsStream(String name) {
+			if (name.endsWith(".class")) {
+				byte[] bytes = classes.get(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+				if (bytes != null) {
+					return new ByteArrayInputStream(bytes);
+				}
+			}
+			return super.getResourceAsStream(name);
+		}
+	}
+}
@@ -0,0 +1,437 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtArrayAccess;
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtCFlowBreak;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtLoop;
+import spoon.reflect.code.CtNewArray;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtThisAccess;
+import spoon.reflect.code.CtTypeAccess;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.code.CtVariableWrite;
+import spoon.reflect.code.UnaryOperatorKind;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtVariableReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Decides pairs of branches whose guards compare a single integral variable against constants,
+ *  such as {@code x < 0} and {@code x > 0}, or {@code x % 2 == 0} and {@code x % 2 != 0},
+ *  by computing the set of values each guard accepts as a union of intervals.
+ *
+ * A pair is EXCLUSIVE when the two sets don't intersect.
+ * A pair is OVERLAPPING when they do, the variable is a parameter the method never assigns,
+ *  and nothing before the second if statement can stop it being reached,
+ *  so that calling the method with a value in the intersection takes both branches.
+ * Everything else, including guards over several variables, fields or method calls, is UNKNOWN.
+ */
+public class IntervalChecker implements PairOracle {
+
+	@Override
+	public Verdict decide(ChainGuards guards, int i, int j) {
+		if (!guards.isIndependent()) {
+			return Verdict.UNKNOWN;
+		}
+		Constraint first = constraint(guards.getConditions(i));
+		Constraint second = constraint(guards.getConditions(j));
+		if (first == null || second == null || !first.term.key.equals(second.term.key)) {
+			return Verdict.UNKNOWN;
+		}
+
+		if (first.values.intersect(second.values).isEmpty()) {
+			return Verdict.EXCLUSIVE;
+		}
+		if (reachedForEveryValue(guards, j, first.term.variable)) {
+			return Verdict.OVERLAPPING;
+		}
+		return Verdict.UNKNOWN;
+	}
+
+	/**
+	 * A variable, or a variable modulo a positive constant, and the values it can take.
+	 */
+	private static class Term {
+		final String key;
+		final CtVariableReference<?> variable;
+		final Intervals domain;
+
+		Term(String key, CtVariableReference<?> variable, Intervals domain) {
+			this.key = key;
+			this.variable = variable;
+			this.domain = domain;
+		}
+	}
+
+	/**
+	 * The values of a term for which a condition holds.
+	 */
+	private static class Constraint {
+		final Term term;
+		final Intervals values;
+
+		Constraint(Term term, Intervals values) {
+			this.term = term;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * @return the values for which every condition holds, or null if they aren't all over the same term
+	 */
+	private static Constraint constraint(List<CtExpression<Boolean>> conditions) {
+		Constraint result = null;
+		for (CtExpression<Boolean> condition : conditions) {
+			Constraint next = constraint(condition);
+			if (next == null || (result != null && !result.term.key.equals(next.term.key))) {
+				return null;
+			}
+			result = result == null ? next : new Constraint(result.term, result.values.intersect(next.values));
+		}
+		return result;
+	}
+
+	private static Constraint constraint(CtExpression<?> condition) {
+		if (!condition.getTypeCasts().isEmpty()) {
+			return null;
+		}
+		if (condition instanceof CtUnaryOperator<?>) {
+			CtUnaryOperator<?> unary = (CtUnaryOperator<?>) condition;
+			Constraint operand = unary.getKind() == UnaryOperatorKind.NOT ? constraint(unary.getOperand()) : null;
+			return operand == null ? null
+					: new Constraint(operand.term, operand.values.complement().intersect(operand.term.domain));
+		}
+		if (!(condition instanceof CtBinaryOperator<?>)) {
+			return null;
+		}
+
+		CtBinaryOperator<?> binary = (CtBinaryOperator<?>) condition;
+		BinaryOperatorKind kind = binary.getKind();
+		if (kind == BinaryOperatorKind.AND || kind == BinaryOperatorKind.OR) {
+			Constraint left = constraint(binary.getLeftHandOperand());
+			Constraint right = constraint(binary.getRightHandOperand());
+			if (left == null || right == null || !left.term.key.equals(right.term.key)) {
+				return null;
+			}
+			return new Constraint(left.term, kind == BinaryOperatorKind.AND ? left.values.intersect(right.values)
+					: left.values.union(right.values));
+		}
+
+		Term term = term(binary.getLeftHandOperand());
+		Long constant = constant(binary.getRightHandOperand());
+		if (term == null || constant == null) {
+			// Constant on the left, as in 0 < x
+			term = term(binary.getRightHandOperand());
+			constant = constant(binary.getLeftHandOperand());
+			kind = flip(kind);
+		}
+		if (term == null || constant == null || kind == null) {
+			return null;
+		}
+		Intervals values = compare(kind, constant);
+		return values == null ? null : new Constraint(term, values.intersect(term.domain));
+	}
+
+	/**
+	 * @return the term read by expression: a local variable, parameter or field of this or of a class
+	 *  of integral type, optionally modulo a positive constant, or null if expression is anything else
+	 */
+	private static Term term(CtExpression<?> expression) {
+		if (!expression.getTypeCasts().isEmpty()) {
+			return null;
+		}
+		if (expression instanceof CtFieldAccess<?>) {
+			// A field of another object is keyed by its name alone, so it could be taken for that of this
+			CtExpression<?> target = ((CtFieldAccess<?>) expression).getTarget();
+			if (target != null && !(target instanceof CtThisAccess<?>) && !(target instanceof CtTypeAccess<?>)) {
+				return null;
+			}
+		}
+		if (expression instanceof CtVariableRead<?>) {
+			CtVariableReference<?> variable = ((CtVariableRead<?>) expression).getVariable();
+			Intervals domain = domain(variable.getType());
+			if (domain == null) {
+				return null;
+			}
+			String key = (variable instanceof CtFieldReference<?> ? "field:" : "") + variable.getSimpleName();
+			return new Term(key, variable, domain);
+		}
+		if (expression instanceof CtBinaryOperator<?>
+				&& ((CtBinaryOperator<?>) expression).getKind() == BinaryOperatorKind.MOD) {
+			CtBinaryOperator<?> mod = (CtBinaryOperator<?>) expression;
+			Term dividend = term(mod.getLeftHandOperand());
+			Long divisor = constant(mod.getRightHandOperand());
+			if (dividend == null || dividend.key.indexOf('%') >= 0 || divisor == null || divisor <= 0) {
+				return null;
+			}
+			// The remainder has the sign of the dividend
+			long low = dividend.domain.min() >= 0 ? 0 : -(divisor - 1);
+			return new Term(dividend.key + "%" + divisor, dividend.variable,
+					Intervals.of(low, divisor - 1).intersect(dividend.domain));
+		}
+		return null;
+	}
+
+	/**
+	 * @return the value of expression if it is an integral or char literal, possibly negated, otherwise null
+	 */
+	private static Long constant(CtExpression<?> expression) {
+		if (!expression.getTypeCasts().isEmpty()) {
+			return null;
+		}
+		if (expression instanceof CtLiteral<?>) {
+			Object value = ((CtLiteral<?>) expression).getValue();
+			if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+				return ((Number) value).longValue();
+			}
+			if (value instanceof Character) {
+				return (long) (Character) value;
+			}
+			return null;
+		}
+		if (expression instanceof CtUnaryOperator<?>
+				&& ((CtUnaryOperator<?>) expression).getKind() == UnaryOperatorKind.NEG) {
+			Long operand = constant(((CtUnaryOperator<?>) expression).getOperand());
+			return operand == null || operand == Long.MIN_VALUE ? null : -operand;
+		}
+		return null;
+	}
+
+	private static Intervals domain(CtTypeReference<?> type) {
+		if (type == null || !type.isPrimitive()) {
+			return null;
+		}
+		switch (type.getSimpleName()) {
+		case "byte":
+			return Intervals.of(Byte.MIN_VALUE, Byte.MAX_VALUE);
+		case "short":
+			return Intervals.of(Short.MIN_VALUE, Short.MAX_VALUE);
+		case "char":
+			return Intervals.of(Character.MIN_VALUE, Character.MAX_VALUE);
+		case "int":
+			return Intervals.of(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		case "long":
+			return Intervals.of(Long.MIN_VALUE, Long.MAX_VALUE);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return the values v for which {@code v kind constant} holds, or null if kind isn't a comparison
+	 */
+	private static Intervals compare(BinaryOperatorKind kind, long constant) {
+		switch (kind) {
+		case LT:
+			return constant == Long.MIN_VALUE ? Intervals.EMPTY : Intervals.of(Long.MIN_VALUE, constant - 1);
+		case LE:
+			return Intervals.of(Long.MIN_VALUE, constant);
+		case GT:
+			return constant == Long.MAX_VALUE ? Intervals.EMPTY : Intervals.of(constant + 1, Long.MAX_VALUE);
+		case GE:
+			return Intervals.of(constant, Long.MAX_VALUE);
+		case EQ:
+			return Intervals.of(constant, constant);
+		case NE:
+			return Intervals.of(constant, constant).complement();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return the comparison with its operands swapped, or null if kind isn't a comparison
+	 */
+	private static BinaryOperatorKind flip(BinaryOperatorKind kind) {
+		switch (kind) {
+		case LT:
+			return BinaryOperatorKind.GT;
+		case LE:
+			return BinaryOperatorKind.GE;
+		case GT:
+			return BinaryOperatorKind.LT;
+		case GE:
+			return BinaryOperatorKind.LE;
+		case EQ:
+		case NE:
+			return kind;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if the j-th if statement of guards' chain is reached, with its guard evaluated
+	 *  on the value passed for variable, whatever that value is
+	 */
+	private static boolean reachedForEveryValue(ChainGuards guards, int j, CtVariableReference<?> variable) {
+		if (!(variable instanceof CtParameterReference<?>)) {
+			return false;
+		}
+		CtIf first = ChainGuards.topLevel(guards.getChain().get(0));
+		CtIf last = ChainGuards.topLevel(guards.getChain().get(j));
+		CtExecutable<?> executable = first.getParent(CtExecutable.class);
+		if (!(executable instanceof CtMethod<?> || executable instanceof CtConstructor<?>)
+				|| first.getParent() != executable.getBody()) {
+			return false;
+		}
+
+		for (CtVariableWrite<?> write : executable.getBody().getElements(new TypeFilter<>(CtVariableWrite.class))) {
+			if (write.getVariable() instanceof CtParameterReference<?>
+					&& write.getVariable().getSimpleName().equals(variable.getSimpleName())) {
+				return false;
+			}
+		}
+
+		CtBlock<?> body = executable.getBody();
+		for (CtStatement statement : body.getStatements()) {
+			if (statement == last) {
+				return true;
+			}
+			if (mayNotComplete(statement)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true unless statement certainly runs to completion, conservatively:
+	 *  it contains no jumps, loops, calls, array accesses, divisions by variables, casts or dereferences
+	 */
+	private static boolean mayNotComplete(CtStatement statement) {
+		List<Class<? extends CtElement>> kinds = new ArrayList<>();
+		kinds.add(CtCFlowBreak.class);
+		kinds.add(CtLoop.class);
+		kinds.add(CtAbstractInvocation.class);
+		kinds.add(CtArrayAccess.class);
+		kinds.add(CtNewArray.class);
+		kinds.add(CtAssert.class);
+		for (Class<? extends CtElement> kind : kinds) {
+			if (!statement.getElements(new TypeFilter<>(kind)).isEmpty()) {
+				return true;
+			}
+		}
+
+		for (CtExpression<?> expression : statement.getElements(new TypeFilter<>(CtExpression.class))) {
+			if (!expression.getTypeCasts().isEmpty()) {
+				return true;
+			}
+			if (expression instanceof CtBinaryOperator<?>) {
+				CtBinaryOperator<?> binary = (CtBinaryOperator<?>) expression;
+				if ((binary.getKind() == BinaryOperatorKind.DIV || binary.getKind() == BinaryOperatorKind.MOD)
+						&& !isNonZeroConstant(binary.getRightHandOperand())) {
+					return true;
+				}
+			}
+			if (expression instanceof CtFieldAccess<?>) {
+				CtExpression<?> target = ((CtFieldAccess<?>) expression).getTarget();
+				if (target != null && !(target instanceof CtThisAccess<?>) && !(target instanceof CtTypeAccess<?>)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isNonZeroConstant(CtExpression<?> expression) {
+		Long constant = constant(expression);
+		return constant != null && constant != 0;
+	}
+
+	/**
+	 * An immutable set of longs, as a sorted list of disjoint, non-adjacent closed intervals.
+	 */
+	private static final class Intervals {
+		static final Intervals EMPTY = new Intervals(new ArrayList<long[]>());
+
+		private final List<long[]> ranges;
+
+		private Intervals(List<long[]> ranges) {
+			this.ranges = ranges;
+		}
+
+		static Intervals of(long low, long high) {
+			List<long[]> ranges = new ArrayList<>();
+			if (low <= high) {
+				ranges.add(new long[] { low, high });
+			}
+			return new Intervals(ranges);
+		}
+
+		boolean isEmpty() {
+			return ranges.isEmpty();
+		}
+
+		long min() {
+			return ranges.get(0)[0];
+		}
+
+		Intervals intersect(Intervals other) {
+			List<long[]> result = new ArrayList<>();
+			int a = 0;
+			int b = 0;
+			while (a < ranges.size() && b < other.ranges.size()) {
+				long[] x = ranges.get(a);
+				long[] y = other.ranges.get(b);
+				long low = Math.max(x[0], y[0]);
+				long high = Math.min(x[1], y[1]);
+				if (low <= high) {
+					result.add(new long[] { low, high });
+				}
+				if (x[1] < y[1]) {
+					a++;
+				}
+				else {
+					b++;
+				}
+			}
+			return new Intervals(result);
+		}
+
+		Intervals union(Intervals other) {
+			return complement().intersect(other.complement()).complement();
+		}
+
+		/**
+		 * @return every long not in this set
+		 */
+		Intervals complement() {
+			List<long[]> result = new ArrayList<>();
+			long next = Long.MIN_VALUE;
+			boolean done = false;
+			for (long[] range : ranges) {
+				if (range[0] > next) {
+					result.add(new long[] { next, range[0] - 1 });
+				}
+				if (range[1] == Long.MAX_VALUE) {
+					done = true;
+					break;
+				}
+				next = range[1] + 1;
+			}
+			if (!done) {
+				result.add(new long[] { next, Long.MAX_VALUE });
+			}
+			return new Intervals(result);
+		}
+	}
+}
@@ -0,0 +1,783 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A JDart analysis of the undecided chains of one method of a submission,
+ *  or of one slice of a chain sliced by PredicateSlicer.
+ *
+ * A job is written to a directory of its own: the submission's compiled classes, with the method
+ *  made accessible to the driver if it was private, a driver class whose main calls the method on default values,
+ *  and job.jpf, the JPF configuration that has JDart explore the method concolically from that call.
+ *  The driver of a slice fails an assertion when the slice returns true, i.e. when both of its branches are taken.
+ * When the ConditionInputs of every chain of the job are known, only those are symbolic,
+ *  and the other parameters keep the driver's values, so JDart doesn't explore paths the chains can't tell apart.
+ *
+ * The outcome is read from JDart's summary of the paths it explored, and from the failed assertions it reports,
+ *  whose messages name the chain that failed, see BranchCounterProcessor.Encoding. A chain is OVERLAPPING when
+ *  a failure shows two of its branches taken together: by its flags, its mask, or the slice that returned true.
+ *  It is EXCLUSIVE when every path was explored without a failure, if the chain's assertions check every pair
+ *  of its branches, as a mask, a slice, or the single assertion of two flags do, and are reached on every path,
+ *  which a chain that has exits, see ChainInfo.hasExits(), can't promise. A counter only fails when
+ *  exactly one branch was taken, so it shows the chain EXCLUSIVE when every path explored fails it.
+ *  A sliced chain is decided from the jobs of all of its slices, see decided(List).
+ */
+public class JDartJob {
+
+	/** The name of the configuration JDart is run on, in the job's directory */
+	public static final String CONFIG = "job.jpf";
+	static final String DRIVER = "JDartDriver";
+
+	private static final Pattern PATHS = Pattern.compile("#\\s*(OK|ERROR|DONT_KNOW) paths[^:\\n]*:\\s*(\\d+)",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern FAILURE = Pattern.compile("java\\.lang\\.AssertionError:\\s*(\\S+ \\S+)");
+
+	/**
+	 * How a job ended.
+	 */
+	public enum Status {
+		/** JDart finished and summarized the paths it explored */
+		DONE,
+		/** JDart ran past the job's time limit and was killed */
+		TIMEOUT,
+		/** JDart exited without a summary on every attempt, e.g. out of memory */
+		CRASHED,
+		/** The method can't be driven, e.g. an instance method of a class without a no-argument constructor */
+		SKIPPED,
+		/** The job wasn't expected to end before the batch's deadline, so it wasn't started, see JobScheduler */
+		DEFERRED
+	}
+
+	private final String file;
+	private final String type;
+	private final String method;
+	private final List<ChainInfo> chains;
+	private final String slice;
+	private final Map<String, byte[]> classes;
+	private final BranchCounterProcessor.Encoding encoding;
+
+	JDartJob(String file, String type, String method, List<ChainInfo> chains, String slice,
+			Map<String, byte[]> classes, BranchCounterProcessor.Encoding encoding) {
+		this.file = file;
+		this.type = type;
+		this.method = method;
+		this.chains = Collections.unmodifiableList(new ArrayList<>(chains));
+		this.slice = slice;
+		this.classes = classes;
+		this.encoding = encoding;
+	}
+
+	/**
+	 * @return a job for each method of result with instrumented chains that are neither decided nor duplicates,
+	 *  followed by a job for each slice of the sliced chains that aren't, or none if result has no compiled classes
+	 */
+	public static List<JDartJob> of(TransformResult result, BranchCounterProcessor.Encoding encoding) {
+		String file = result.getInput().toString();
+		Map<String, List<ChainInfo>> byMethod = new LinkedHashMap<>();
+		List<JDartJob> sliceJobs = new ArrayList<>();
+		for (ChainInfo chain : result.getChains()) {
+			if (chain.isDecided() || chain.isDuplicate() || !result.getClasses().containsKey(chain.getType())) {
+				continue;
+			}
+			if (chain.isSliced()) {
+				for (String slice : chain.getSlices()) {
+					sliceJobs.add(new JDartJob(file, chain.getType(), chain.getMethod(),
+							Collections.singletonList(chain), slice, result.getClasses(), encoding));
+				}
+				continue;
+			}
+			String key = chain.getType() + "#" + chain.getMethod();
+			if (!byMethod.containsKey(key)) {
+				byMethod.put(key, new ArrayList<ChainInfo>());
+			}
+			byMethod.get(key).add(chain);
+		}
+		List<JDartJob> jobs = new ArrayList<>();
+		for (List<ChainInfo> chains : byMethod.values()) {
+			jobs.add(new JDartJob(file, chains.get(0).getType(), chains.get(0).getMethod(), chains, null,
+					result.getClasses(), encoding));
+		}
+		jobs.addAll(sliceJobs);
+		return jobs;
+	}
+
+	/**
+	 * @return the chains outcomes decide, by the submission they were found in, each once: with the verdict
+	 *  of its method's job, or for a sliced chain, OVERLAPPING if the job of any of its slices shows
+	 *  its pair of branches overlapping, and EXCLUSIVE if the jobs of all of its slices show their pairs exclusive
+	 */
+	public static Map<String, List<ChainInfo>> decided(List<Outcome> outcomes) {
+		Map<String, ChainInfo> decided = new LinkedHashMap<>();
+		Map<String, String> files = new HashMap<>();
+		Map<String, Integer> exclusiveSlices = new HashMap<>();
+		for (Outcome outcome : outcomes) {
+			for (ChainInfo chain : outcome.job.chains) {
+				String key = ChainInfo.key(outcome.job.file, chain.getId());
+				Verdict verdict = outcome.verdict(chain);
+				if (verdict == Verdict.EXCLUSIVE && outcome.job.slice != null) {
+					Integer slices = exclusiveSlices.get(key);
+					exclusiveSlices.put(key, slices = slices == null ? 1 : slices + 1);
+					if (slices < chain.getSlices().size()) {
+						continue;
+					}
+				}
+				if (verdict != Verdict.UNKNOWN && (verdict == Verdict.OVERLAPPING || !decided.containsKey(key))) {
+					decided.put(key, chain.withVerdict(verdict));
+					files.put(key, outcome.job.file);
+				}
+			}
+		}
+		Map<String, List<ChainInfo>> byFile = new LinkedHashMap<>();
+		for (Map.Entry<String, ChainInfo> chain : decided.entrySet()) {
+			String file = files.get(chain.getKey());
+			if (!byFile.containsKey(file)) {
+				byFile.put(file, new ArrayList<ChainInfo>());
+			}
+			byFile.get(file).add(chain.getValue());
+		}
+		return byFile;
+	}
+
+	/**
+	 * @return the submission the method was found in
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the Spoon signature of the method, as ChainInfo gives it
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	public List<ChainInfo> getChains() {
+		return chains;
+	}
+
+	/**
+	 * @return the name of the slice the job analyzes, or null if it analyzes the method
+	 */
+	public String getSlice() {
+		return slice;
+	}
+
+	/**
+	 * @return the estimated cost of the job: the sum of its chains' AnalysisCost estimates,
+	 *  with a chain that wasn't estimated, e.g. one found in bytecode, costing as much as a chain
+	 *  of as many if statements with simple conditions in a method without loops or parameters,
+	 *  and a slice costing as much as a method of its two guards
+	 */
+	public long getCost() {
+		if (slice != null) {
+			return AnalysisCost.of(2, 0, 0, 0);
+		}
+		long cost = 0;
+		for (ChainInfo chain : chains) {
+			cost += chain.getCost() > 0 ? chain.getCost() : AnalysisCost.of(chain.getLines().size(), 0, 0, 0);
+		}
+		return cost;
+	}
+
+	/**
+	 * Writes the job's classes, driver and configuration to dir.
+	 * @throws IllegalArgumentException if the method can't be driven, with the reason
+	 */
+	public void write(Path dir) throws IOException {
+		Target target = findTarget();
+		Path classesDir = dir.resolve("classes");
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			byte[] bytes = entry.getValue();
+			if (entry.getKey().equals(type)) {
+				bytes = open(bytes, target);
+			}
+			writeClass(classesDir, entry.getKey(), bytes);
+		}
+		writeClass(classesDir, driverName(), driver(target));
+		Files.write(dir.resolve(CONFIG), config(classesDir, target).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void writeClass(Path classesDir, String name, byte[] bytes) throws IOException {
+		Path path = classesDir.resolve(name.replace('.', '/') + ".class");
+		Files.createDirectories(path.getParent());
+		Files.write(path, bytes);
+	}
+
+	/**
+	 * @return the driver's binary name, in the package of the method's class so it can call package-private methods
+	 */
+	String driverName() {
+		int dot = type.lastIndexOf('.');
+		return dot < 0 ? DRIVER : type.substring(0, dot + 1) + DRIVER;
+	}
+
+	/**
+	 * @return the JPF configuration exploring the method from the driver's call, with classes on the classpath
+	 */
+	String config(Path classesDir, Target target) {
+		Type[] parameters = Type.getArgumentTypes(target.descriptor);
+		StringBuilder spec = new StringBuilder(type).append('.').append(target.name).append('(');
+		for (int i = 0; i < parameters.length; i++) {
+			spec.append(i == 0 ? "" : ",").append('p').append(i).append(':').append(parameters[i].getClassName());
+		}
+		spec.append(')');
+
+		StringBuilder config = new StringBuilder();
+		config.append("# ").append(file).append(": chains at lines");
+		for (ChainInfo chain : chains) {
+			config.append(' ').append(chain.getLines());
+		}
+		if (slice != null) {
+			config.append(", slice ").append(slice);
+		}
+		config.append('\n');
+		config.append("@using = jpf-jdart\n");
+		config.append("shell = gov.nasa.jpf.jdart.JDart\n");
+		config.append("symbolic.dp = z3\n");
+		config.append("vm.enable_assertions = *\n");
+		config.append("classpath = ").append(classesDir.toAbsolutePath().toString().replace('\\', '/')).append('\n');
+		config.append("target = ").append(driverName()).append('\n');
+		config.append("concolic.method.chains = ").append(spec).append('\n');
+		config.append("concolic.method = chains\n");
+
+		List<String> inputs = getInputs();
+		if (!inputs.isEmpty()) {
+			List<String> concrete = new ArrayList<>();
+			for (int i = 0; i < parameters.length; i++) {
+				if (!inputs.contains("p" + i)) {
+					concrete.add("p" + i);
+				}
+			}
+			config.append("concolic.method.chains.config = chains\n");
+			config.append("jdart.configs.chains.symbolic.include = ").append(join(inputs)).append('\n');
+			if (!concrete.isEmpty()) {
+				config.append("jdart.configs.chains.symbolic.exclude = ").append(join(concrete)).append('\n');
+			}
+		}
+		return config.toString();
+	}
+
+	/**
+	 * @return the inputs of all of the job's chains, see ChainInfo.getInputs(),
+	 *  or none if those of any chain aren't known, in which case every parameter is symbolic
+	 */
+	public List<String> getInputs() {
+		List<String> inputs = new ArrayList<>();
+		for (ChainInfo chain : chains) {
+			if (chain.getInputs().isEmpty()) {
+				return Collections.emptyList();
+			}
+			for (String input : chain.getInputs()) {
+				if (!inputs.contains(input)) {
+					inputs.add(input);
+				}
+			}
+		}
+		Collections.sort(inputs);
+		return inputs;
+	}
+
+	private static String join(List<String> values) {
+		StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			joined.append(joined.length() == 0 ? "" : ";").append(value);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * The compiled form of the method, and what the driver needs to call it.
+	 */
+	static class Target {
+		final String name;
+		final String descriptor;
+		final boolean isStatic;
+		final boolean isPrivate;
+		final boolean privateConstructor;
+
+		Target(String name, String descriptor, boolean isStatic, boolean isPrivate, boolean privateConstructor) {
+			this.name = name;
+			this.descriptor = descriptor;
+			this.isStatic = isStatic;
+			this.isPrivate = isPrivate;
+			this.privateConstructor = privateConstructor;
+		}
+	}
+
+	/**
+	 * Matches the Spoon signature of the method, or the name of the slice, against the methods of its compiled class.
+	 * @throws IllegalArgumentException if there is no such method, or it can't be called from a driver
+	 */
+	Target findTarget() {
+		final String name = slice != null ? slice : method.substring(0, method.indexOf('('));
+		final String parameters = slice != null ? null
+				: method.substring(method.indexOf('(') + 1, method.lastIndexOf(')'));
+		final String simpleName = type.substring(type.lastIndexOf('.') + 1);
+		final boolean constructor = slice == null && (name.equals(type) || name.equals(simpleName));
+		final List<Object[]> candidates = new ArrayList<>();
+		final int[] classAccess = new int[1];
+		final int[] noArgConstructor = { -1 };
+		new ClassReader(classes.get(type)).accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName,
+					String[] interfaces) {
+				classAccess[0] = access;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String methodName, String descriptor, String signature,
+					String[] exceptions) {
+				if (methodName.equals("<init>") && descriptor.equals("()V")) {
+					noArgConstructor[0] = access;
+				}
+				if ((access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) == 0
+						&& methodName.equals(constructor ? "<init>" : name)) {
+					candidates.add(new Object[] { methodName, descriptor, access });
+				}
+				return null;
+			}
+		}, ClassReader.SKIP_CODE);
+
+		Object[] match = candidates.size() == 1 ? candidates.get(0) : null;
+		for (Object[] candidate : candidates) {
+			StringBuilder names = new StringBuilder();
+			for (Type parameter : Type.getArgumentTypes((String) candidate[1])) {
+				names.append(names.length() == 0 ? "" : ",").append(parameter.getClassName());
+			}
+			if (names.toString().equals(parameters)) {
+				match = candidate;
+			}
+		}
+		if (match == null) {
+			throw new IllegalArgumentException("No compiled method " + type + "." + (slice != null ? slice : method));
+		}
+		int access = (Integer) match[2];
+		boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+		if ((access & Opcodes.ACC_ABSTRACT) != 0) {
+			throw new IllegalArgumentException("Abstract method " + type + "." + method);
+		}
+		if (!isStatic && ((classAccess[0] & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE)) != 0
+				|| (!constructor && noArgConstructor[0] < 0))) {
+			throw new IllegalArgumentException("No instance of " + type + " to call " + method + " on");
+		}
+		return new Target((String) match[0], (String) match[1], isStatic, (access & Opcodes.ACC_PRIVATE) != 0,
+				!isStatic && !constructor && (noArgConstructor[0] & Opcodes.ACC_PRIVATE) != 0);
+	}
+
+	/**
+	 * @return bytes, with the method, and the constructor the driver calls, made package-private if they were private
+	 */
+	private static byte[] open(byte[] bytes, final Target target) {
+		if (!target.isPrivate && !target.privateConstructor) {
+			return bytes;
+		}
+		ClassWriter writer = new ClassWriter(0);
+		new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+					String[] exceptions) {
+				if ((name.equals(target.name) && descriptor.equals(target.descriptor))
+						|| (target.privateConstructor && name.equals("<init>") && descriptor.equals("()V"))) {
+					access &= ~Opcodes.ACC_PRIVATE;
+				}
+				return super.visitMethod(access, name, descriptor, signature, exceptions);
+			}
+		}, 0);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @return a class whose main calls the method on zeros, empty strings and arrays, and nulls,
+	 *  from which JDart makes the parameters symbolic, and for a slice, fails an assertion whose message is
+	 *  the chain's id and the slice's name if the slice returns true
+	 */
+	byte[] driver(Target target) {
+		String owner = type.replace('.', '/');
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, driverName().replace('.', '/'), null,
+				"java/lang/Object", null);
+		MethodVisitor main = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main",
+				"([Ljava/lang/String;)V", null, null);
+		main.visitCode();
+		if (!target.isStatic) {
+			main.visitTypeInsn(Opcodes.NEW, owner);
+			main.visitInsn(Opcodes.DUP);
+			if (!target.name.equals("<init>")) {
+				main.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", "()V", false);
+			}
+		}
+		for (Type parameter : Type.getArgumentTypes(target.descriptor)) {
+			pushDefault(main, parameter);
+		}
+		Type returned = Type.getReturnType(target.descriptor);
+		if (target.name.equals("<init>")) {
+			main.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", target.descriptor, false);
+			returned = Type.getObjectType(owner);
+		}
+		else {
+			main.visitMethodInsn(target.isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL, owner, target.name,
+					target.descriptor, false);
+		}
+		if (slice != null) {
+			Label exclusive = new Label();
+			main.visitJumpInsn(Opcodes.IFEQ, exclusive);
+			main.visitTypeInsn(Opcodes.NEW, "java/lang/AssertionError");
+			main.visitInsn(Opcodes.DUP);
+			main.visitLdcInsn(chains.get(0).getId() + " " + slice);
+			main.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/AssertionError", "<init>", "(Ljava/lang/Object;)V",
+					false);
+			main.visitInsn(Opcodes.ATHROW);
+			main.visitLabel(exclusive);
+			main.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+		}
+		else if (returned.getSize() > 0) {
+			main.visitInsn(returned.getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+		}
+		main.visitInsn(Opcodes.RETURN);
+		main.visitMaxs(0, 0);
+		main.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static void pushDefault(MethodVisitor mv, Type type) {
+		switch (type.getSort()) {
+		case Type.LONG:
+			mv.visitInsn(Opcodes.LCONST_0);
+			break;
+		case Type.FLOAT:
+			mv.visitInsn(Opcodes.FCONST_0);
+			break;
+		case Type.DOUBLE:
+			mv.visitInsn(Opcodes.DCONST_0);
+			break;
+		case Type.ARRAY:
+			mv.visitInsn(Opcodes.ICONST_0);
+			Type element = Type.getType(type.getDescriptor().substring(1));
+			if (element.getSort() == Type.OBJECT || element.getSort() == Type.ARRAY) {
+				mv.visitTypeInsn(Opcodes.ANEWARRAY, element.getInternalName());
+			}
+			else {
+				mv.visitIntInsn(Opcodes.NEWARRAY, newArrayType(element));
+			}
+			break;
+		case Type.OBJECT:
+			if (type.getClassName().equals("java.lang.String")) {
+				mv.visitLdcInsn("");
+			}
+			else {
+				mv.visitInsn(Opcodes.ACONST_NULL);
+			}
+			break;
+		default:
+			mv.visitInsn(Opcodes.ICONST_0);
+		}
+	}
+
+	private static int newArrayType(Type element) {
+		switch (element.getSort()) {
+		case Type.BOOLEAN:
+			return Opcodes.T_BOOLEAN;
+		case Type.CHAR:
+			return Opcodes.T_CHAR;
+		case Type.BYTE:
+			return Opcodes.T_BYTE;
+		case Type.SHORT:
+			return Opcodes.T_SHORT;
+		case Type.LONG:
+			return Opcodes.T_LONG;
+		case Type.FLOAT:
+			return Opcodes.T_FLOAT;
+		case Type.DOUBLE:
+			return Opcodes.T_DOUBLE;
+		default:
+			return Opcodes.T_INT;
+		}
+	}
+
+	/**
+	 * What came of running a job.
+	 */
+	public static class Outcome {
+		private final JDartJob job;
+		private final Status status;
+		private final int attempts;
+		private final long millis;
+		private final int okPaths;
+		private final int errorPaths;
+		private final int dontKnowPaths;
+		private final List<String> failures;
+		private final String error;
+
+		Outcome(JDartJob job, Status status, int attempts, long millis, int okPaths, int errorPaths,
+				int dontKnowPaths, List<String> failures, String error) {
+			this.job = job;
+			this.status = status;
+			this.attempts = attempts;
+			this.millis = millis;
+			this.okPaths = okPaths;
+			this.errorPaths = errorPaths;
+			this.dontKnowPaths = dontKnowPaths;
+			this.failures = failures;
+			this.error = error;
+		}
+
+		public JDartJob getJob() {
+			return job;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the number of times JDart was started for the job
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * @return the wall-clock time of the job's attempts, in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		public int getErrorPaths() {
+			return errorPaths;
+		}
+
+		/**
+		 * @return the messages of the failed assertions JDart reported, each once:
+		 *  the id of the chain that failed, a space, and what was recorded for it, see BranchCounterProcessor.Encoding
+		 */
+		public List<String> getFailures() {
+			return failures;
+		}
+
+		/**
+		 * @return the masks of the failed BITMASK assertions JDart reported
+		 */
+		public List<Long> getMasks() {
+			List<Long> masks = new ArrayList<>();
+			for (ChainInfo chain : job.chains) {
+				if (job.slice == null && job.encodingOf(chain) == BranchCounterProcessor.Encoding.BITMASK) {
+					for (String value : failures(chain)) {
+						masks.add(BranchMask.fromMessage(value));
+					}
+				}
+			}
+			return masks;
+		}
+
+		/**
+		 * @return why the job was skipped, or the end of JDart's output if it crashed, or null
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * @return the job's chains, with the verdicts the outcome shows, see JDartJob.
+		 *  The job of a slice only decides its chain when it shows the slice's branches overlapping.
+		 */
+		public List<ChainInfo> getChains() {
+			List<ChainInfo> decided = new ArrayList<>();
+			for (ChainInfo chain : job.chains) {
+				Verdict verdict = verdict(chain);
+				decided.add(verdict == Verdict.UNKNOWN || (verdict == Verdict.EXCLUSIVE && job.slice != null) ? chain
+						: chain.withVerdict(verdict));
+			}
+			return decided;
+		}
+
+		/**
+		 * @return the verdict the outcome shows for chain, or for a slice job, for the pair of branches of its slice
+		 */
+		Verdict verdict(ChainInfo chain) {
+			if (status != Status.DONE) {
+				return Verdict.UNKNOWN;
+			}
+			List<String> values = failures(chain);
+			for (String value : values) {
+				if (!coFiringLines(chain, value).isEmpty()) {
+					return Verdict.OVERLAPPING;
+				}
+			}
+			if (dontKnowPaths > 0) {
+				return Verdict.UNKNOWN;
+			}
+			BranchCounterProcessor.Encoding encoding = job.encodingOf(chain);
+			if (job.slice != null) {
+				return errorPaths == 0 ? Verdict.EXCLUSIVE : Verdict.UNKNOWN;
+			}
+			if (chain.hasExits()) {
+				// A path that takes two branches may leave before the assertions, and end without an error
+				return Verdict.UNKNOWN;
+			}
+			if (encoding == BranchCounterProcessor.Encoding.BITMASK
+					|| (encoding == BranchCounterProcessor.Encoding.FLAGS && chain.getLines().size() == 2)) {
+				return errorPaths == 0 ? Verdict.EXCLUSIVE : Verdict.UNKNOWN;
+			}
+			if (encoding == BranchCounterProcessor.Encoding.COUNTER && okPaths == 0 && errorPaths > 0
+					&& !values.isEmpty() && values.size() == failures.size()) {
+				return Verdict.EXCLUSIVE;
+			}
+			return Verdict.UNKNOWN;
+		}
+
+		/**
+		 * @return what the failures JDart reported recorded for chain
+		 */
+		private List<String> failures(ChainInfo chain) {
+			List<String> values = new ArrayList<>();
+			String prefix = chain.getId() + " ";
+			for (String failure : failures) {
+				if (failure.startsWith(prefix)) {
+					values.add(failure.substring(prefix.length()));
+				}
+			}
+			return values;
+		}
+
+		/**
+		 * @return every pair {line i, line j} of if statements in chain that value, recorded for chain
+		 *  by a failed assertion, shows taken together, or none if value doesn't fit chain
+		 */
+		private List<int[]> coFiringLines(ChainInfo chain, String value) {
+			List<int[]> lines = new ArrayList<>();
+			if (job.slice != null) {
+				if (value.equals(job.slice)) {
+					String[] names = job.slice.split("_");
+					lines.add(new int[] { Integer.parseInt(names[1]), Integer.parseInt(names[2]) });
+				}
+				return lines;
+			}
+			switch (job.encodingOf(chain)) {
+			case BITMASK:
+				try {
+					return BranchMask.coFiringLines(chain, BranchMask.fromMessage(value));
+				}
+				catch (IllegalArgumentException e) {
+					return lines;
+				}
+			case FLAGS:
+				String[] flags = value.split(",");
+				if (flags.length != chain.getLines().size()) {
+					return lines;
+				}
+				for (int i = 0; i < flags.length; i++) {
+					for (int j = i + 1; j < flags.length && flags[i].equals("true"); j++) {
+						if (flags[j].equals("true")) {
+							lines.add(new int[] { chain.getLines().get(i), chain.getLines().get(j) });
+						}
+					}
+				}
+				return lines;
+			default:
+				// A counter fails only when exactly one branch was taken
+				return lines;
+			}
+		}
+
+		/**
+		 * @return the outcome as a line of JSON, with the verdict of each chain by its first line,
+		 *  or for a slice job, that of the slice's pair of branches
+		 */
+		public String toJson() {
+			StringBuilder json = new StringBuilder();
+			json.append("{\"file\": ").append(RunReport.quote(job.file));
+			json.append(", \"type\": ").append(RunReport.quote(job.type));
+			json.append(", \"method\": ").append(RunReport.quote(job.method));
+			if (job.slice != null) {
+				json.append(", \"slice\": ").append(RunReport.quote(job.slice));
+			}
+			json.append(", \"status\": \"").append(status).append('"');
+			json.append(", \"cost\": ").append(job.getCost());
+			json.append(", \"attempts\": ").append(attempts);
+			json.append(", \"millis\": ").append(millis);
+			json.append(", \"okPaths\": ").append(okPaths);
+			json.append(", \"errorPaths\": ").append(errorPaths);
+			json.append(", \"dontKnowPaths\": ").append(dontKnowPaths);
+			json.append(", \"failures\": [");
+			for (int i = 0; i < failures.size(); i++) {
+				json.append(i == 0 ? "" : ", ").append(RunReport.quote(failures.get(i)));
+			}
+			json.append("], \"verdicts\": {");
+			for (int i = 0; i < job.chains.size(); i++) {
+				ChainInfo chain = job.chains.get(i);
+				json.append(i == 0 ? "" : ", ").append('"').append(chain.getLines().get(0)).append("\": \"")
+						.append(verdict(chain)).append('"');
+			}
+			json.append('}');
+			if (error != null) {
+				json.append(", \"error\": ").append(RunReport.quote(error));
+			}
+			return json.append("}\n").toString();
+		}
+	}
+
+	/**
+	 * @return the outcome of JDart's output, or null if it has no summary of the paths explored
+	 */
+	Outcome parse(String output, int attempts, long millis) {
+		int[] paths = { -1, -1, -1 };
+		Matcher matcher = PATHS.matcher(output);
+		while (matcher.find()) {
+			String kind = matcher.group(1).toUpperCase(Locale.ROOT);
+			paths[kind.equals("OK") ? 0 : kind.equals("ERROR") ? 1 : 2] = Integer.parseInt(matcher.group(2));
+		}
+		if (paths[0] < 0 && paths[1] < 0) {
+			return null;
+		}
+		List<String> failures = new ArrayList<>();
+		matcher = FAILURE.matcher(output);
+		while (matcher.find()) {
+			if (!failures.contains(matcher.group(1))) {
+				failures.add(matcher.group(1));
+			}
+		}
+		return new Outcome(this, Status.DONE, attempts, millis, Math.max(0, paths[0]), Math.max(0, paths[1]),
+				Math.max(0, paths[2]), failures, null);
+	}
+
+	Outcome failed(Status status, int attempts, long millis, String error) {
+		return new Outcome(this, status, attempts, millis, 0, 0, 0, Collections.<String>emptyList(), error);
+	}
+
+	/**
+	 * @return the encoding chain was instrumented with, see BranchCounterProcessor
+	 */
+	private BranchCounterProcessor.Encoding encodingOf(ChainInfo chain) {
+		if (encoding == BranchCounterProcessor.Encoding.BITMASK && chain.getLines().size() > BranchMask.MAX_BRANCHES) {
+			return BranchCounterProcessor.Encoding.FLAGS;
+		}
+		return encoding;
+	}
+}
@@ -0,0 +1,195 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs JDartJobs on a pool of JDart processes, each in a JVM of its own,
+ *  so that analyzing a corpus keeps every core busy rather than one method being analyzed at a time.
+ *
+ * Each job runs in a directory of its own under the work directory, where JDart's output is kept.
+ * A job is killed at its time limit and recorded as TIMEOUT. A JDart process is given a maximum heap,
+ *  and a job whose process exits without a summary is retried, with twice the heap if it ran out of memory,
+ *  and recorded as CRASHED once its retries are used up.
+ * The outcome of each job is appended to results.jsonl in the work directory as soon as it ends, see JDartJob.Outcome.
+ *
+ * Queued jobs are started cheapest first by their AnalysisCost estimate, see JobScheduler.
+ * With a deadline for the whole batch, a job expected to end after it isn't started but recorded as DEFERRED,
+ *  and a job's time limit is cut to the time left, so that no job runs past the deadline.
+ */
+public class JDartRunner implements Closeable {
+
+	/** The file of outcomes, in the work directory */
+	public static final String RESULTS = "results.jsonl";
+	private static final int OUTPUT_TAIL = 2000;
+
+	private final List<String> command;
+	private final Path workDir;
+	private final long timeLimitMillis;
+	private final int heapMegabytes;
+	private final int retries;
+	private final JobScheduler<FutureTask<JDartJob.Outcome>> scheduler;
+	private final ExecutorService pool;
+	private final BufferedWriter results;
+	private final List<Future<JDartJob.Outcome>> outcomes = new ArrayList<>();
+
+	/**
+	 * @param jdart the JPF launcher jar, RunJPF.jar, of a JPF installation with the jpf-jdart extension
+	 * @param deadlineSeconds the time from now by which every job must have ended, or 0 for none
+	 */
+	public JDartRunner(Path jdart, Path workDir, int workers, long timeLimitSeconds, int heapMegabytes, int retries,
+			long deadlineSeconds) throws IOException {
+		this(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-jar",
+				jdart.toAbsolutePath().toString()), workDir, workers, timeLimitSeconds * 1000, heapMegabytes, retries,
+				deadlineSeconds * 1000);
+	}
+
+	/**
+	 * @param command the command JDart is started with, to which the heap option is added after the first word
+	 *  and the configuration file last
+	 */
+	JDartRunner(List<String> command, Path workDir, int workers, long timeLimitMillis, int heapMegabytes, int retries,
+			long deadlineMillis) throws IOException {
+		this.command = command;
+		this.workDir = workDir;
+		this.timeLimitMillis = timeLimitMillis;
+		this.heapMegabytes = heapMegabytes;
+		this.retries = retries;
+		this.scheduler = new JobScheduler<>(deadlineMillis);
+		Files.createDirectories(workDir);
+		this.results = Files.newBufferedWriter(workDir.resolve(RESULTS), StandardCharsets.UTF_8);
+		this.pool = Executors.newFixedThreadPool(workers);
+	}
+
+	/**
+	 * Queues jobs to run as soon as a worker is free, each worker starting the cheapest job queued.
+	 */
+	public synchronized void submit(List<JDartJob> jobs) {
+		for (final JDartJob job : jobs) {
+			final Path dir = workDir.resolve(String.format("%05d", outcomes.size()));
+			FutureTask<JDartJob.Outcome> task = new FutureTask<>(new Callable<JDartJob.Outcome>() {
+				@Override
+				public JDartJob.Outcome call() throws IOException, InterruptedException {
+					JDartJob.Outcome outcome = run(job, dir);
+					synchronized (results) {
+						results.write(outcome.toJson());
+						results.flush();
+					}
+					return outcome;
+				}
+			});
+			outcomes.add(task);
+			scheduler.add(task, job.getCost());
+			// One run for each job queued, of whichever is cheapest when a worker is free
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					scheduler.next().run();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Waits for every job submitted so far.
+	 * @return their outcomes, in the order they were submitted
+	 */
+	public List<JDartJob.Outcome> finish() throws InterruptedException {
+		List<Future<JDartJob.Outcome>> pending;
+		synchronized (this) {
+			pending = new ArrayList<>(outcomes);
+		}
+		List<JDartJob.Outcome> finished = new ArrayList<>();
+		for (Future<JDartJob.Outcome> outcome : pending) {
+			try {
+				finished.add(outcome.get());
+			}
+			catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return finished;
+	}
+
+	private JDartJob.Outcome run(JDartJob job, Path dir) throws IOException, InterruptedException {
+		if (!scheduler.fits(job.getCost())) {
+			return job.failed(JDartJob.Status.DEFERRED, 0, 0, null);
+		}
+		Files.createDirectories(dir);
+		try {
+			job.write(dir);
+		}
+		catch (IllegalArgumentException e) {
+			return job.failed(JDartJob.Status.SKIPPED, 0, 0, e.getMessage());
+		}
+
+		int heap = heapMegabytes;
+		long millis = 0;
+		String output = "";
+		for (int attempt = 1; attempt <= retries + 1; attempt++) {
+			long timeLimit = Math.min(timeLimitMillis, scheduler.remainingMillis());
+			List<String> arguments = new ArrayList<>(command);
+			arguments.add(1, "-Xmx" + heap + "m");
+			arguments.add(JDartJob.CONFIG);
+			File log = dir.resolve("output-" + attempt + ".txt").toFile();
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(arguments).directory(dir.toFile()).redirectErrorStream(true)
+					.redirectOutput(log).start();
+			boolean exited;
+			try {
+				exited = process.waitFor(timeLimit, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				process.destroyForcibly();
+				throw e;
+			}
+			if (!exited) {
+				process.destroyForcibly().waitFor();
+			}
+			millis += (System.nanoTime() - start) / 1000000;
+			if (!exited) {
+				return job.failed(JDartJob.Status.TIMEOUT, attempt, millis, null);
+			}
+
+			output = new String(Files.readAllBytes(log.toPath()), StandardCharsets.UTF_8);
+			JDartJob.Outcome outcome = job.parse(output, attempt, millis);
+			if (outcome != null) {
+				scheduler.finished(job.getCost(), millis);
+				return outcome;
+			}
+			if (output.contains("OutOfMemoryError")) {
+				heap *= 2;
+			}
+		}
+		return job.failed(JDartJob.Status.CRASHED, retries + 1, millis,
+				output.substring(Math.max(0, output.length() - OUTPUT_TAIL)).trim());
+	}
+
+	/**
+	 * Stops the workers, killing the JDart processes still running and abandoning the jobs not yet started,
+	 *  and closes the results.
+	 */
+	@Override
+	public void close() throws IOException {
+		pool.shutdownNow();
+		synchronized (results) {
+			results.close();
+		}
+	}
+}
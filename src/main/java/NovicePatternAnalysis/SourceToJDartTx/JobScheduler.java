@@ -0,0 +1,93 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.PriorityQueue;
+
+/**
+ * Hands out queued analysis jobs shortest-expected-first, so that a batch with a deadline resolves
+ *  as many chains as it can before it: a long job started early would hold a worker that could have
+ *  finished many short ones in the same time.
+ *
+ * A job's expected time is its AnalysisCost estimate times the milliseconds a unit of cost has taken so far,
+ *  over the jobs that finished. Before any has, every job fits. With a deadline, a job fits only if
+ *  its expected end is before the deadline, and since jobs are handed out cheapest first, once one doesn't fit,
+ *  none of those queued with it do either.
+ */
+public class JobScheduler<T> {
+
+	private final PriorityQueue<Queued<T>> queue = new PriorityQueue<>();
+	private final long deadlineNanos;
+	private long sequence;
+	private long costFinished;
+	private long millisFinished;
+
+	/**
+	 * @param deadlineMillis the time from now by which jobs must have ended, or 0 for none
+	 */
+	public JobScheduler(long deadlineMillis) {
+		this.deadlineNanos = deadlineMillis == 0 ? 0 : System.nanoTime() + deadlineMillis * 1000000;
+	}
+
+	private static class Queued<T> implements Comparable<Queued<T>> {
+		final T job;
+		final long cost;
+		final long sequence;
+
+		Queued(T job, long cost, long sequence) {
+			this.job = job;
+			this.cost = cost;
+			this.sequence = sequence;
+		}
+
+		/** Cheapest first, and jobs of equal cost in the order they were queued */
+		@Override
+		public int compareTo(Queued<T> other) {
+			int byCost = Long.compare(cost, other.cost);
+			return byCost != 0 ? byCost : Long.compare(sequence, other.sequence);
+		}
+	}
+
+	public synchronized void add(T job, long cost) {
+		queue.add(new Queued<>(job, cost, sequence++));
+	}
+
+	/**
+	 * @return the cheapest job queued, which is removed, or null if there is none
+	 */
+	public synchronized T next() {
+		Queued<T> next = queue.poll();
+		return next == null ? null : next.job;
+	}
+
+	/**
+	 * Records how long a job took to end on its own, to calibrate the expected time of those after it.
+	 */
+	public synchronized void finished(long cost, long millis) {
+		costFinished += cost;
+		millisFinished += millis;
+	}
+
+	/**
+	 * @return the expected time of a job of the given cost, in milliseconds, or -1 if no job has finished yet
+	 */
+	public synchronized long expectedMillis(long cost) {
+		if (costFinished == 0) {
+			return -1;
+		}
+		return (long) ((double) cost * millisFinished / costFinished);
+	}
+
+	/**
+	 * @return the time left before the deadline, in milliseconds, or Long.MAX_VALUE if there is none
+	 */
+	public long remainingMillis() {
+		return deadlineNanos == 0 ? Long.MAX_VALUE : Math.max(0, (deadlineNanos - System.nanoTime()) / 1000000);
+	}
+
+	/**
+	 * @return whether a job of the given cost started now is expected to end before the deadline
+	 */
+	public boolean fits(long cost) {
+		long remaining = remainingMillis();
+		return remaining > 0 && expectedMillis(cost) <= remaining;
+	}
+}
@@ -0,0 +1,101 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * A token-level scan of Java source, run before building a Spoon model,
+ *  to find the blocks that could contain a chain of if statements.
+ *
+ * A chain always includes two if statements that are direct children of the same block,
+ *  where the second is not the else branch of the first, so a block can only be
+ *  instrumented by BranchCounterProcessor if at least two if keywords not preceded by
+ *  else appear between its braces, outside of any nested braces.
+ * Blocks (and files) that fail this test can be passed through untouched.
+ */
+public class LexicalPrefilter {
+
+	private LexicalPrefilter() {
+	}
+
+	/**
+	 * @return the offsets of the opening braces of every block in source that could contain an if chain
+	 */
+	public static NavigableSet<Integer> candidateBlocks(String source) {
+		NavigableSet<Integer> candidates = new TreeSet<>();
+		Deque<int[]> blocks = new ArrayDeque<>(); // {offset of '{', number of if keywords}
+		boolean afterElse = false;
+
+		int i = 0;
+		int n = source.length();
+		while (i < n) {
+			char c = source.charAt(i);
+			if (c == '/' && i + 1 < n && source.charAt(i + 1) == '/') {
+				while (i < n && source.charAt(i) != '\n') {
+					i++;
+				}
+			}
+			else if (c == '/' && i + 1 < n && source.charAt(i + 1) == '*') {
+				i = indexOf(source, "*/", i + 2) + 2;
+			}
+			else if (c == '"' && source.startsWith("\"\"\"", i)) {
+				i = indexOf(source, "\"\"\"", i + 3) + 3;
+				afterElse = false;
+			}
+			else if (c == '"' || c == '\'') {
+				i = skipQuoted(source, i);
+				afterElse = false;
+			}
+			else if (Character.isJavaIdentifierStart(c)) {
+				int start = i;
+				while (i < n && Character.isJavaIdentifierPart(source.charAt(i))) {
+					i++;
+				}
+				String word = source.substring(start, i);
+				if (word.equals("if") && !afterElse && !blocks.isEmpty()) {
+					blocks.peek()[1]++;
+				}
+				afterElse = word.equals("else");
+			}
+			else if (Character.isWhitespace(c)) {
+				i++;
+			}
+			else {
+				if (c == '{') {
+					blocks.push(new int[] { i, 0 });
+				}
+				else if (c == '}' && !blocks.isEmpty()) {
+					int[] block = blocks.pop();
+					if (block[1] > 1) {
+						candidates.add(block[0]);
+					}
+				}
+				afterElse = false;
+				i++;
+			}
+		}
+
+		return candidates;
+	}
+
+	private static int skipQuoted(String source, int i) {
+		char quote = source.charAt(i++);
+		while (i < source.length()) {
+			char c = source.charAt(i++);
+			if (c == '\\') {
+				i++;
+			}
+			else if (c == quote || c == '\n') {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private static int indexOf(String source, String s, int from) {
+		int index = source.indexOf(s, from);
+		return index < 0 ? source.length() : index;
+	}
+}
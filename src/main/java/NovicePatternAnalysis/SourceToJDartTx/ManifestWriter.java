@@ -0,0 +1,214 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a manifest of the chains found in a corpus as each submission is transformed,
+ *  so that tools scheduling the analysis can start on the chains written so far
+ *  without parsing the transformed sources.
+ *
+ * Each chain is written with its submission, and everything ChainInfo records about it:
+ *  its method, the line of each if statement, the generated variables or slices,
+ *  its verdict, the number and location of its assertions and whether they can be bypassed,
+ *  its AnalysisCost estimate, and its inputs.
+ * A chain decided once its submission was written, e.g. by JDart, is written again with its verdict,
+ *  so the last record of a chain, by its submission and ChainInfo.getId(), is the one that holds.
+ * A manifest whose file name ends in .bin is binary, as read by read(Path), and otherwise
+ *  it is JSON, one object per line.
+ */
+public class ManifestWriter implements Closeable {
+
+	/** The first bytes of a binary manifest, followed by its version */
+	static final int MAGIC = 0x534a544d;
+	static final int VERSION = 4;
+
+	/**
+	 * A chain of a submission, as written to a manifest or read back from a binary one.
+	 */
+	public static class Entry {
+		private final String file;
+		private final ChainInfo chain;
+
+		Entry(String file, ChainInfo chain) {
+			this.file = file;
+			this.chain = chain;
+		}
+
+		/**
+		 * @return the submission the chain was found in
+		 */
+		public String getFile() {
+			return file;
+		}
+
+		public ChainInfo getChain() {
+			return chain;
+		}
+	}
+
+	private final boolean binary;
+	private final DataOutputStream out;
+
+	public ManifestWriter(Path file) throws IOException {
+		if (file.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+		this.binary = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".bin");
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+		if (binary) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Appends the chains of result, and flushes them to the file.
+	 */
+	public void write(TransformResult result) throws IOException {
+		write(result.getInput().toString(), result.getChains());
+	}
+
+	/**
+	 * Appends chains, found in the submission file, and flushes them to the file.
+	 */
+	public synchronized void write(String file, List<ChainInfo> chains) throws IOException {
+		for (ChainInfo chain : chains) {
+			if (binary) {
+				writeBinary(file, chain);
+			}
+			else {
+				out.write(json(file, chain).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		out.flush();
+	}
+
+	private void writeBinary(String file, ChainInfo chain) throws IOException {
+		out.writeUTF(file);
+		out.writeUTF(chain.getType());
+		out.writeUTF(chain.getMethod());
+		out.writeInt(chain.getLines().size());
+		for (int line : chain.getLines()) {
+			out.writeInt(line);
+		}
+		writeStrings(chain.getVariables());
+		writeStrings(chain.getSlices());
+		out.writeByte(chain.getVerdict().ordinal());
+		out.writeUTF(chain.getShape());
+		out.writeUTF(chain.getDuplicateOf());
+		out.writeInt(chain.getAssertions());
+		out.writeInt(chain.getAssertLine());
+		out.writeLong(chain.getCost());
+		writeStrings(chain.getInputs());
+		out.writeBoolean(chain.hasExits());
+	}
+
+	private void writeStrings(List<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (String value : values) {
+			out.writeUTF(value);
+		}
+	}
+
+	static String json(String file, ChainInfo chain) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"file\": ").append(RunReport.quote(file));
+		json.append(", \"type\": ").append(RunReport.quote(chain.getType()));
+		json.append(", \"method\": ").append(RunReport.quote(chain.getMethod()));
+		json.append(", \"lines\": ").append(chain.getLines());
+		json.append(", \"variables\": ");
+		appendStrings(json, chain.getVariables());
+		json.append(", \"slices\": ");
+		appendStrings(json, chain.getSlices());
+		json.append(", \"verdict\": \"").append(chain.getVerdict()).append('"');
+		json.append(", \"shape\": ").append(RunReport.quote(chain.getShape()));
+		json.append(", \"duplicateOf\": ").append(RunReport.quote(chain.getDuplicateOf()));
+		json.append(", \"assertions\": ").append(chain.getAssertions());
+		json.append(", \"assertLine\": ").append(chain.getAssertLine());
+		json.append(", \"cost\": ").append(chain.getCost());
+		json.append(", \"inputs\": ");
+		appendStrings(json, chain.getInputs());
+		json.append(", \"exits\": ").append(chain.hasExits());
+		return json.append("}\n").toString();
+	}
+
+	private static void appendStrings(StringBuilder json, List<String> values) {
+		json.append('[');
+		for (int i = 0; i < values.size(); i++) {
+			json.append(i == 0 ? "" : ", ").append(RunReport.quote(values.get(i)));
+		}
+		json.append(']');
+	}
+
+	/**
+	 * Reads the chains of a binary manifest, including one still being written.
+	 */
+	public static List<Entry> read(Path file) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		try (InputStream stream = Files.newInputStream(file);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a version " + VERSION + " manifest: " + file);
+			}
+			while (true) {
+				try {
+					entries.add(readEntry(in));
+				}
+				catch (EOFException e) {
+					// The end of the manifest, or of the last chain flushed so far
+					break;
+				}
+			}
+		}
+		return entries;
+	}
+
+	private static Entry readEntry(DataInputStream in) throws IOException {
+		String file = in.readUTF();
+		String type = in.readUTF();
+		String method = in.readUTF();
+		List<Integer> lines = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			lines.add(in.readInt());
+		}
+		List<String> variables = readStrings(in);
+		List<String> slices = readStrings(in);
+		Verdict verdict = Verdict.values()[in.readByte()];
+		String shape = in.readUTF();
+		String duplicateOf = in.readUTF();
+		int assertions = in.readInt();
+		int assertLine = in.readInt();
+		long cost = in.readLong();
+		List<String> inputs = readStrings(in);
+		boolean exits = in.readBoolean();
+		return new Entry(file, new ChainInfo(type, method, lines, variables, slices, verdict, shape, duplicateOf,
+				assertions, assertLine, cost, inputs, exits));
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		List<String> values = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			values.add(in.readUTF());
+		}
+		return values;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+}
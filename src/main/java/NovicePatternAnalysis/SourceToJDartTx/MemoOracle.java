@@ -0,0 +1,44 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+
+/**
+ * Looks pairs of guards up in a VerdictMemo before asking another oracle,
+ *  and records what that oracle decides, so each distinct pair is only decided once.
+ *
+ * Only EXCLUSIVE verdicts are reused. Whether two guards can both hold is a property of the guards alone
+ *  when they are independent, but whether both branches are actually taken also depends on the method
+ *  around them, so an OVERLAPPING verdict doesn't carry over to another chain with the same guards.
+ */
+public class MemoOracle implements PairOracle {
+
+	private final VerdictMemo memo;
+	private final PairOracle delegate;
+
+	/**
+	 * @param delegate the oracle for pairs missing from memo, or null to only use memo
+	 */
+	public MemoOracle(VerdictMemo memo, PairOracle delegate) {
+		this.memo = memo;
+		this.delegate = delegate;
+	}
+
+	@Override
+	public Verdict decide(ChainGuards guards, int i, int j) {
+		String key = guards.isIndependent() ? GuardCanonicalizer.canonical(guards, i, j) : null;
+		if (key != null && memo.get(key) == Verdict.EXCLUSIVE) {
+			return Verdict.EXCLUSIVE;
+		}
+
+		Verdict verdict = delegate == null ? Verdict.UNKNOWN : delegate.decide(guards, i, j);
+		if (key != null && verdict == Verdict.EXCLUSIVE) {
+			try {
+				memo.put(key, verdict);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("Can't record verdict", e);
+			}
+		}
+		return verdict;
+	}
+}
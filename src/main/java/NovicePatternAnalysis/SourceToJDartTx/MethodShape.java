@@ -0,0 +1,179 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtComment;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtOperatorAssignment;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtVariable;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.reference.CtVariableReference;
+import spoon.reflect.visitor.CtScanner;
+
+/**
+ * Computes a hash of the structure of a method that ignores its name, layout, comments and positions,
+ *  and the names of its variables, the fields it uses and the types of the submission,
+ *  which are numbered in order of first appearance.
+ * Copies of a method that differ only in those have the same shape, so have the same chains in the same order.
+ *
+ * What the method's behavior depends on beyond its body is part of its shape too: the declaration of each field
+ *  of the submission it uses, with its initializer, and the constructors of its class if it uses one of its
+ *  instance fields, and the shape of each method or constructor of the submission it calls, in turn.
+ *  Calls to library methods keep the library method's declaring type and signature.
+ */
+public class MethodShape extends CtScanner {
+
+	private final StringBuilder out = new StringBuilder();
+	private final Map<String, String> names = new HashMap<>();
+	/** The methods, constructors and fields described so far, by the order they were first described in */
+	private final Map<CtElement, Integer> described;
+
+	private MethodShape(Map<CtElement, Integer> described) {
+		this.described = described;
+	}
+
+	/**
+	 * @return the shape of method, as a hex string
+	 */
+	public static String of(CtExecutable<?> method) {
+		Map<CtElement, Integer> described = new IdentityHashMap<>();
+		described.put(method, 0);
+		MethodShape shape = new MethodShape(described);
+		shape.scan(method);
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest(shape.out.toString().getBytes(StandardCharsets.UTF_8))) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.substring(0, 32);
+	}
+
+	@Override
+	protected void enter(CtElement element) {
+		if (isComment(element)) {
+			return;
+		}
+		out.append('(').append(element.getClass().getSimpleName());
+		if (element instanceof CtVariable<?>) {
+			out.append(' ').append(name("", ((CtVariable<?>) element).getSimpleName()));
+		}
+		else if (element instanceof CtFieldReference<?>) {
+			CtFieldReference<?> field = (CtFieldReference<?>) element;
+			out.append(' ').append(name("f", field.getSimpleName()));
+			describe(field.getDeclaration());
+		}
+		else if (element instanceof CtVariableReference<?>) {
+			out.append(' ').append(name("", ((CtVariableReference<?>) element).getSimpleName()));
+		}
+		else if (element instanceof CtExecutableReference<?>) {
+			CtExecutableReference<?> executable = (CtExecutableReference<?>) element;
+			CtExecutable<?> declaration = executable.getDeclaration();
+			if (declaration != null && declaration.getBody() != null) {
+				describe(declaration);
+			}
+			else {
+				CtTypeReference<?> declaringType = executable.getDeclaringType();
+				out.append(' ').append(declaringType == null ? "" : declaringType.getQualifiedName()).append('#')
+						.append(executable.getSignature());
+			}
+		}
+		else if (element instanceof CtTypeReference<?>) {
+			CtTypeReference<?> type = (CtTypeReference<?>) element;
+			out.append(' ').append(type.getDeclaration() == null ? type.getQualifiedName()
+					: name("t", type.getQualifiedName()));
+		}
+		else if (element instanceof CtLiteral<?>) {
+			Object value = ((CtLiteral<?>) element).getValue();
+			out.append(' ').append(value == null ? "null" : value.getClass().getSimpleName() + ":" + value);
+		}
+		else if (element instanceof CtBinaryOperator<?>) {
+			out.append(' ').append(((CtBinaryOperator<?>) element).getKind());
+		}
+		else if (element instanceof CtUnaryOperator<?>) {
+			out.append(' ').append(((CtUnaryOperator<?>) element).getKind());
+		}
+		else if (element instanceof CtOperatorAssignment<?, ?>) {
+			out.append(' ').append(((CtOperatorAssignment<?, ?>) element).getKind());
+		}
+	}
+
+	@Override
+	protected void exit(CtElement element) {
+		if (!isComment(element)) {
+			out.append(')');
+		}
+	}
+
+	/**
+	 * Appends the shape of element, a method, constructor or field of the submission, the first time it is seen,
+	 *  and only its number after that, so that recursive calls end.
+	 */
+	private void describe(CtElement element) {
+		if (element == null) {
+			return;
+		}
+		Integer number = described.get(element);
+		if (number != null) {
+			out.append(" @").append(number);
+			return;
+		}
+		described.put(element, described.size());
+		MethodShape shape = new MethodShape(described);
+		if (element instanceof CtField<?>) {
+			CtField<?> field = (CtField<?>) element;
+			shape.out.append(new TreeSet<>(field.getModifiers()));
+			shape.scan(field.getType());
+			shape.scan(field.getDefaultExpression());
+			CtType<?> type = field.getDeclaringType();
+			if (!field.isStatic() && type instanceof CtClass<?>) {
+				// The fields the analysis starts with are those set by a constructor
+				for (CtConstructor<?> constructor : ((CtClass<?>) type).getConstructors()) {
+					shape.describe(constructor);
+				}
+			}
+		}
+		else {
+			shape.out.append(new TreeSet<>(((CtModifiable) element).getModifiers()));
+			shape.scan(element);
+		}
+		out.append(" @").append(described.get(element)).append('{').append(shape.out).append('}');
+	}
+
+	private String name(String prefix, String name) {
+		String key = prefix + ":" + name;
+		String renamed = names.get(key);
+		if (renamed == null) {
+			renamed = prefix + "v" + names.size();
+			names.put(key, renamed);
+		}
+		return renamed;
+	}
+
+	private static boolean isComment(CtElement element) {
+		return element instanceof CtComment || element.getParent(CtComment.class) != null;
+	}
+}
@@ -0,0 +1,161 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spoon.compiler.Environment;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+import spoon.reflect.visitor.PrettyPrinter;
+
+/**
+ * Produces transformed source by re-printing only the bodies of the methods
+ *  BranchCounterProcessor changed, and any members it added, and splicing them into the original text.
+ * Everything outside those bodies is copied from the original byte-for-byte,
+ *  so printing cost scales with the number of instrumented methods rather than the file size.
+ */
+public class MethodSplicer {
+
+	private final PrettyPrinter printer;
+
+	public MethodSplicer(Environment environment) {
+		this.printer = environment.createPrettyPrinter();
+	}
+
+	/**
+	 * @param original the source text the model was built from
+	 * @param instrumented the blocks BranchCounterProcessor changed, from original's model
+	 */
+	public String splice(String original, Collection<CtBlock<?>> instrumented) {
+		return splice(original, instrumented, Collections.<CtType<?>, List<CtTypeMember>>emptyMap());
+	}
+
+	/**
+	 * @param original the source text the model was built from
+	 * @param instrumented the blocks BranchCounterProcessor changed, from original's model
+	 * @param added members added to types of original's model, such as slices from PredicateSlicer,
+	 *  which are printed at the end of their type
+	 */
+	public String splice(String original, Collection<CtBlock<?>> instrumented,
+			Map<? extends CtType<?>, ? extends List<? extends CtTypeMember>> added) {
+		List<Edit> edits = new ArrayList<>();
+		Set<CtBlock<?>> bodies = new HashSet<>();
+		for (CtBlock<?> block : instrumented) {
+			CtBlock<?> body = outermostBody(block);
+			if (bodies.add(body)) {
+				edits.add(new Edit(body.getPosition().getSourceStart(), body.getPosition().getSourceEnd() + 1, body));
+			}
+		}
+		for (Map.Entry<? extends CtType<?>, ? extends List<? extends CtTypeMember>> entry : added.entrySet()) {
+			SourcePosition position = entry.getKey().getPosition();
+			if (position.isValidPosition() && !entry.getValue().isEmpty()) {
+				edits.add(new Edit(position.getSourceEnd(), position.getSourceEnd(), entry.getValue()));
+			}
+		}
+		Collections.sort(edits, new Comparator<Edit>() {
+			@Override
+			public int compare(Edit a, Edit b) {
+				return Integer.compare(a.start, b.start);
+			}
+		});
+
+		String newline = original.contains("\r\n") ? "\r\n" : "\n";
+		String level = original.contains("\n\t") ? "\t" : "    ";
+		StringBuilder out = new StringBuilder(original.length());
+		int copied = 0;
+		for (Edit edit : edits) {
+			// Edits inside a re-printed body are already part of it
+			if (edit.start < copied) {
+				continue;
+			}
+			out.append(original, copied, edit.start);
+			String indent = indentation(original, edit.start);
+			if (edit.body != null) {
+				appendIndented(out, printer.prettyprint(edit.body), indent, newline);
+			}
+			else {
+				for (CtTypeMember member : edit.members) {
+					out.append(newline).append(indent).append(level);
+					appendIndented(out, printer.prettyprint(member), indent + level, newline);
+					out.append(newline).append(indent);
+				}
+			}
+			copied = edit.end;
+		}
+		out.append(original, copied, original.length());
+		return out.toString();
+	}
+
+	/**
+	 * Replaces the text of a body with its printed form,
+	 *  or inserts the printed form of added members at the end of a type.
+	 */
+	private static class Edit {
+		final int start;
+		final int end;
+		final CtBlock<?> body;
+		final List<? extends CtTypeMember> members;
+
+		Edit(int start, int end, CtBlock<?> body) {
+			this.start = start;
+			this.end = end;
+			this.body = body;
+			this.members = null;
+		}
+
+		Edit(int start, int end, List<? extends CtTypeMember> members) {
+			this.start = start;
+			this.end = end;
+			this.body = null;
+			this.members = members;
+		}
+	}
+
+	/**
+	 * @return the body of the outermost method, constructor, initializer or lambda enclosing block,
+	 *  or block itself if it has no enclosing executable with a positioned body
+	 */
+	private static CtBlock<?> outermostBody(CtBlock<?> block) {
+		CtBlock<?> body = block;
+		CtExecutable<?> executable = block.getParent(CtExecutable.class);
+		while (executable != null) {
+			if (executable.getBody() != null && executable.getBody().getPosition().isValidPosition()) {
+				body = executable.getBody();
+			}
+			executable = executable.getParent(CtExecutable.class);
+		}
+		return body;
+	}
+
+	/**
+	 * @return the leading whitespace of the line containing offset
+	 */
+	private static String indentation(String text, int offset) {
+		int lineStart = text.lastIndexOf('\n', offset - 1) + 1;
+		int end = lineStart;
+		while (end < offset && (text.charAt(end) == ' ' || text.charAt(end) == '\t')) {
+			end++;
+		}
+		return text.substring(lineStart, end);
+	}
+
+	private static void appendIndented(StringBuilder out, String printed, String indent, String newline) {
+		String[] lines = printed.split("\r?\n", -1);
+		out.append(lines[0]);
+		for (int i = 1; i < lines.length; i++) {
+			out.append(newline);
+			if (!lines[i].isEmpty()) {
+				out.append(indent).append(lines[i]);
+			}
+		}
+	}
+}
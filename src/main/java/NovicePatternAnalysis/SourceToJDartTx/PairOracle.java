@@ -0,0 +1,14 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+/**
+ * Decides, without running the program, whether two branches of a chain can be taken together.
+ * BranchCounterProcessor only instruments chains whose verdict is UNKNOWN.
+ */
+public interface PairOracle {
+
+	/**
+	 * @return the verdict for the then branches of the i-th and j-th if statements of guards' chain,
+	 *  where i < j
+	 */
+	Verdict decide(ChainGuards guards, int i, int j);
+}
@@ -0,0 +1,117 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtReturn;
+import spoon.reflect.code.CtVariableRead;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Extracts the guards of a chain of if statements into small generated methods,
+ *  one per pair of branches, of the form
+ *
+ *  private boolean overlap_XX_YY(params) {
+ *  	return guardXX && guardYY;
+ *  }
+ *
+ * where XX and YY are the lines of the two if statements, and params are the local
+ *  variables and parameters the guards read. Analyzing these methods is bounded by the
+ *  conditions, rather than by everything else the enclosing method does.
+ *
+ * A chain can't be sliced, and must be analyzed in its method, when its ChainGuards aren't
+ *  independent, since a guard would then depend on state the slice can't see.
+ */
+public class PredicateSlicer {
+
+	private PredicateSlicer() {
+	}
+
+	/**
+	 * @return a slice for each pair of if statements in chain, in order,
+	 *  or null if chain must be analyzed in its enclosing method
+	 */
+	public static List<CtMethod<Boolean>> slice(List<? extends CtIf> chain) {
+		CtType<?> type = chain.get(0).getParent(CtType.class);
+		if (!(type instanceof CtClass<?>)) {
+			return null;
+		}
+
+		ChainGuards guards = new ChainGuards(chain);
+		if (!guards.isIndependent() || !guards.isTyped()) {
+			return null;
+		}
+
+		boolean isStatic = isStaticContext(chain.get(0), type);
+		List<CtMethod<Boolean>> slices = new ArrayList<>();
+		for (int i = 0; i < chain.size(); i++) {
+			for (int j = i + 1; j < chain.size(); j++) {
+				Map<String, CtTypeReference<?>> parameters = new LinkedHashMap<>(guards.getReads(i));
+				parameters.putAll(guards.getReads(j));
+				slices.add(createSlice(type.getFactory(), name(chain.get(i), chain.get(j)), isStatic, parameters,
+						guards.guard(i), guards.guard(j)));
+			}
+		}
+		return slices;
+	}
+
+	/**
+	 * @return the name of the slice for the pair of if statements first and second
+	 */
+	public static String name(CtIf first, CtIf second) {
+		return "overlap_" + first.getPosition().getLine() + "_" + second.getPosition().getLine();
+	}
+
+	private static CtMethod<Boolean> createSlice(Factory factory, String name, boolean isStatic,
+			Map<String, CtTypeReference<?>> parameters, CtExpression<Boolean> first, CtExpression<Boolean> second) {
+		CtMethod<Boolean> slice = factory.Core().createMethod();
+		slice.setSimpleName(name);
+		slice.setType(factory.Type().booleanPrimitiveType());
+		slice.addModifier(ModifierKind.PRIVATE);
+		if (isStatic) {
+			slice.addModifier(ModifierKind.STATIC);
+		}
+
+		Map<String, CtParameter<?>> declared = new LinkedHashMap<>();
+		for (Map.Entry<String, CtTypeReference<?>> entry : parameters.entrySet()) {
+			CtParameter<?> parameter = factory.Executable().createParameter(slice, entry.getValue().clone(),
+					entry.getKey());
+			declared.put(entry.getKey(), parameter);
+		}
+
+		CtReturn<Boolean> result = factory.Core().createReturn();
+		result.setReturnedExpression(ChainGuards.and(first.clone(), second.clone()));
+		slice.setBody(factory.Code().createCtBlock(result));
+
+		// Point reads of the original locals at the slice's parameters
+		for (CtVariableRead<?> variableRead : slice.getBody().getElements(new TypeFilter<>(CtVariableRead.class))) {
+			CtParameter<?> parameter = declared.get(variableRead.getVariable().getSimpleName());
+			if (parameter != null && !(variableRead.getVariable() instanceof CtFieldReference<?>)) {
+				variableRead.replace(factory.Code().createVariableRead(parameter.getReference(), false));
+			}
+		}
+		return slice;
+	}
+
+	private static boolean isStaticContext(CtElement element, CtType<?> type) {
+		CtElement member = element;
+		while (member.getParent() != null && member.getParent() != type) {
+			member = member.getParent();
+		}
+		return member instanceof CtModifiable && ((CtModifiable) member).isStatic();
+	}
+}
@@ -0,0 +1,240 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A machine-readable report of a corpus run: for each submission, its status, the wall and CPU time
+ *  of each TransformMetrics.Phase, the processor's counters and the chains decided, followed by totals for the run
+ *  and the peak heap usage. The total of chains decided includes those decided after their submission's row
+ *  was written, e.g. by JDart, see decided.
+ *
+ * The report is JSON if its file name ends in .json, and CSV otherwise,
+ *  with one row per submission and a last row whose input is TOTAL.
+ *  Rows are written as submissions finish, in the order they finish.
+ */
+public class RunReport implements Closeable {
+
+	private final Writer out;
+	private final boolean json;
+	private final int threads;
+	private final long[] wall = new long[TransformMetrics.Phase.values().length];
+	private final long[] cpu = new long[TransformMetrics.Phase.values().length];
+	private final long[] totals = new long[5];
+	private int files = 0;
+
+	/**
+	 * Starts the report in file. A row is written for each submission as it is added, see add,
+	 *  so the report doesn't keep the results of the run.
+	 */
+	public RunReport(Path file, int threads) throws IOException {
+		if (file.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+		this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		this.json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+		this.threads = threads;
+		if (json) {
+			out.write("{\n  \"files\": [");
+		}
+		else {
+			out.write("input,status,elapsed_ns,chains,blocks_visited,branches_instrumented,assertions_emitted,"
+					+ "chains_decided");
+			for (TransformMetrics.Phase phase : TransformMetrics.Phase.values()) {
+				String name = phase.name().toLowerCase(Locale.ROOT);
+				out.write("," + name + "_wall_ns," + name + "_cpu_ns");
+			}
+			out.write(",peak_heap_bytes\n");
+		}
+	}
+
+	/**
+	 * Resets the peak usage of every heap memory pool, so peakHeapBytes measures from now on.
+	 */
+	public static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * @return the sum of the peak usage of every heap memory pool since the JVM started
+	 *  or resetPeakHeap was last called
+	 */
+	public static long peakHeapBytes() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Writes the row of result, and adds it to the totals. Called from the worker that transformed it.
+	 */
+	public synchronized void add(TransformResult result) throws IOException {
+		long[] counters = counters(result);
+		for (int k = 0; k < totals.length; k++) {
+			totals[k] += counters[k];
+		}
+		TransformMetrics metrics = result.getMetrics();
+		if (json) {
+			out.write(files == 0 ? "\n" : ",\n");
+			out.write("    {\"input\": " + quote(result.getInput().toString()) + ", \"status\": \"" + result.getStatus()
+					+ "\", \"elapsedNanos\": " + result.getElapsedNanos());
+			writeCounters(out, counters);
+			if (result.getError() != null) {
+				out.write(", \"error\": " + quote(String.valueOf(result.getError())));
+			}
+			out.write(", \"phases\": {");
+		}
+		else {
+			out.write(csv(result.getInput().toString()) + "," + result.getStatus() + "," + result.getElapsedNanos());
+			for (long counter : counters) {
+				out.write("," + counter);
+			}
+		}
+		for (TransformMetrics.Phase phase : TransformMetrics.Phase.values()) {
+			long phaseWall = metrics == null ? 0 : metrics.getWallNanos(phase);
+			long phaseCpu = metrics == null ? 0 : metrics.getCpuNanos(phase);
+			wall[phase.ordinal()] += phaseWall;
+			cpu[phase.ordinal()] += phaseCpu;
+			if (json) {
+				writePhase(out, phase, phaseWall, phaseCpu);
+			}
+			else {
+				out.write("," + phaseWall + "," + phaseCpu);
+			}
+		}
+		out.write(json ? "}}" : ",\n");
+		files++;
+	}
+
+	/**
+	 * Adds the chains among chains that are decided to the total, for chains decided once the rows
+	 *  of their submissions were written.
+	 */
+	public synchronized void decided(List<ChainInfo> chains) {
+		for (ChainInfo chain : chains) {
+			if (chain.isDecided()) {
+				totals[4]++;
+			}
+		}
+	}
+
+	/**
+	 * Writes the totals of the rows added, with the run's elapsed time and peak heap usage, and closes the report.
+	 */
+	public synchronized void finish(long elapsedNanos, long peakHeapBytes) throws IOException {
+		TransformMetrics.Phase[] phases = TransformMetrics.Phase.values();
+		if (json) {
+			out.write("\n  ],\n  \"total\": {\"files\": " + files + ", \"elapsedNanos\": " + elapsedNanos
+					+ ", \"threads\": " + threads + ", \"peakHeapBytes\": " + peakHeapBytes);
+			writeCounters(out, totals);
+			out.write(", \"phases\": {");
+			for (TransformMetrics.Phase phase : phases) {
+				writePhase(out, phase, wall[phase.ordinal()], cpu[phase.ordinal()]);
+			}
+			out.write("}}\n}\n");
+		}
+		else {
+			out.write("TOTAL,," + elapsedNanos);
+			for (long total : totals) {
+				out.write("," + total);
+			}
+			for (TransformMetrics.Phase phase : phases) {
+				out.write("," + wall[phase.ordinal()] + "," + cpu[phase.ordinal()]);
+			}
+			out.write("," + peakHeapBytes + "\n");
+		}
+		close();
+	}
+
+	/**
+	 * Closes the report, which is left without totals unless finish was called.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * @return the chains, blocks visited, branches instrumented, assertions emitted and chains decided for result
+	 */
+	private static long[] counters(TransformResult result) {
+		TransformMetrics metrics = result.getMetrics();
+		long decided = 0;
+		for (ChainInfo chain : result.getChains()) {
+			if (chain.isDecided()) {
+				decided++;
+			}
+		}
+		return new long[] { result.getChains().size(), metrics == null ? 0 : metrics.getBlocksVisited(),
+				metrics == null ? 0 : metrics.getBranchesInstrumented(),
+				metrics == null ? 0 : metrics.getAssertionsEmitted(), decided };
+	}
+
+	private static void writeCounters(Writer out, long[] counters) throws IOException {
+		out.write(", \"chains\": " + counters[0] + ", \"blocksVisited\": " + counters[1]
+				+ ", \"branchesInstrumented\": " + counters[2] + ", \"assertionsEmitted\": " + counters[3]
+				+ ", \"chainsDecided\": " + counters[4]);
+	}
+
+	private static void writePhase(Writer out, TransformMetrics.Phase phase, long wall, long cpu)
+			throws IOException {
+		out.write((phase.ordinal() == 0 ? "" : ", ") + "\"" + phase + "\": {\"wallNanos\": " + wall
+				+ ", \"cpuNanos\": " + cpu + "}");
+	}
+
+	static String quote(String value) {
+		StringBuilder out = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					out.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					out.append(c);
+				}
+			}
+		}
+		return out.append('"').toString();
+	}
+
+	private static String csv(String value) {
+		if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+}
@@ -0,0 +1,104 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends a snapshot of a corpus run's progress to a file at a fixed interval, one JSON object per line,
+ *  so long runs can be watched while they are still going.
+ * Each snapshot holds the files completed and failed so far, their chains, branches instrumented
+ *  and assertions emitted, and the current and peak heap usage.
+ */
+public class RunSnapshots implements Closeable {
+
+	private final Writer out;
+	private final ScheduledExecutorService timer;
+	private final long start = System.nanoTime();
+	private final int files;
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong chains = new AtomicLong();
+	private final AtomicLong branches = new AtomicLong();
+	private final AtomicLong assertions = new AtomicLong();
+
+	/**
+	 * @param files the number of files in the run
+	 */
+	public RunSnapshots(Path file, int files, long intervalSeconds) throws IOException {
+		this.files = files;
+		if (file.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+		this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "run-snapshots");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		timer.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				snapshot();
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Adds a finished submission to the progress; called from the worker that transformed it.
+	 */
+	public void completed(TransformResult result) {
+		completed.incrementAndGet();
+		if (!result.isSuccess()) {
+			failed.incrementAndGet();
+		}
+		chains.addAndGet(result.getChains().size());
+		if (result.getMetrics() != null) {
+			branches.addAndGet(result.getMetrics().getBranchesInstrumented());
+			assertions.addAndGet(result.getMetrics().getAssertionsEmitted());
+		}
+	}
+
+	/**
+	 * Appends a snapshot of the progress so far.
+	 */
+	public synchronized void snapshot() {
+		try {
+			out.write("{\"elapsedNanos\": " + (System.nanoTime() - start) + ", \"files\": " + files
+					+ ", \"completed\": " + completed.get() + ", \"failed\": " + failed.get() + ", \"chains\": "
+					+ chains.get() + ", \"branchesInstrumented\": " + branches.get() + ", \"assertionsEmitted\": "
+					+ assertions.get() + ", \"heapUsedBytes\": "
+					+ ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() + ", \"peakHeapBytes\": "
+					+ RunReport.peakHeapBytes() + "}\n");
+			out.flush();
+		}
+		catch (IOException e) {
+			// A snapshot is only a progress report, so losing one shouldn't stop the run
+			System.err.println("Could not write snapshot: " + e);
+		}
+	}
+
+	/**
+	 * Stops taking snapshots, after a last one with the final progress.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		timer.shutdownNow();
+		snapshot();
+		out.close();
+	}
+}
@@ -0,0 +1,101 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The first chain found for each method shape and chain position, shared by every worker in a run.
+ * BranchCounterProcessor only analyzes a chain if no chain with the same shape has been found,
+ *  and records the rest as duplicates of it, see ChainInfo#getDuplicateOf(),
+ *  which keys the representative by its submission, since two submissions may have chains with the same id.
+ *
+ * Given the inputs of a run in order, the representative of each shape is that of the first input with a chain
+ *  of that shape, however many workers there are: each worker awaits its input's turn before registering chains,
+ *  and releases it when done, so the model building before is still done in parallel.
+ */
+public class ShapeIndex {
+
+	private final ConcurrentMap<String, ChainInfo> representatives = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<>();
+	private final Map<Path, Integer> order = new HashMap<>();
+	private final boolean[] released;
+	private int turn = 0;
+
+	public ShapeIndex() {
+		this(Collections.<Path>emptyList());
+	}
+
+	/**
+	 * @param inputs the inputs of the run in the order their chains are to be registered
+	 */
+	public ShapeIndex(List<Path> inputs) {
+		for (Path input : inputs) {
+			order.put(key(input), order.size());
+		}
+		released = new boolean[order.size()];
+	}
+
+	/**
+	 * Waits until every input ordered before input has been released. Returns at once for an input not in the order.
+	 */
+	public synchronized void await(Path input) throws InterruptedException {
+		Integer position = order.get(key(input));
+		while (position != null && turn < position) {
+			wait();
+		}
+	}
+
+	/**
+	 * Lets the inputs ordered after input register their chains, once those before it have been released too.
+	 * Releasing an input more than once, or one not in the order, does nothing.
+	 */
+	public synchronized void release(Path input) {
+		Integer position = order.get(key(input));
+		if (position == null || released[position]) {
+			return;
+		}
+		released[position] = true;
+		while (turn < released.length && released[turn]) {
+			turn++;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * @return the chain analyzed for shape, or null if there is none yet
+	 */
+	public ChainInfo representative(String shape) {
+		return representatives.get(shape);
+	}
+
+	/**
+	 * @return the key of the chain analyzed for shape, see ChainInfo.key(String, String), or null if there is none yet
+	 */
+	public String key(String shape) {
+		return keys.get(shape);
+	}
+
+	/**
+	 * Makes chain, found in the submission file, the representative of its shape,
+	 *  unless it is a duplicate or the shape already has one.
+	 */
+	public synchronized void register(String file, ChainInfo chain) {
+		if (!chain.getShape().isEmpty() && !chain.isDuplicate() && !representatives.containsKey(chain.getShape())) {
+			keys.put(chain.getShape(), ChainInfo.key(file, chain.getId()));
+			representatives.put(chain.getShape(), chain);
+		}
+	}
+
+	public int size() {
+		return representatives.size();
+	}
+
+	private static Path key(Path input) {
+		return input.toAbsolutePath().normalize();
+	}
+}
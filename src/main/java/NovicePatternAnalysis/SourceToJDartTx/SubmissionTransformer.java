@@ -0,0 +1,399 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtLambda;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Transforms a single submission, a source file or a directory of them, in its own Spoon model,
+ *  so that submissions can be processed independently of each other.
+ */
+public class SubmissionTransformer implements Transformer {
+
+	private final TransformOptions options;
+	private final TransformCache cache;
+	private final VerdictMemo memo;
+	private final boolean ownsMemo;
+	private final ShapeIndex shapes;
+	private final InMemoryCompiler compiler;
+
+	public SubmissionTransformer(TransformOptions options) throws IOException {
+		this(options, options.getMemoFile() == null ? null : new VerdictMemo(Paths.get(options.getMemoFile())),
+				options.isDedup() ? new ShapeIndex() : null, true);
+	}
+
+	/**
+	 * @param memo the memo of options, opened by the caller so that it can record the verdicts
+	 *  the analysis reaches for the chains transformed. It isn't closed with this transformer.
+	 * @param shapes the shape index for --dedup, ordering the inputs of the run, or null without --dedup
+	 */
+	public SubmissionTransformer(TransformOptions options, VerdictMemo memo, ShapeIndex shapes) {
+		this(options, memo, shapes, false);
+	}
+
+	private SubmissionTransformer(TransformOptions options, VerdictMemo memo, ShapeIndex shapes, boolean ownsMemo) {
+		this.options = options;
+		this.cache = options.getCacheDir() == null ? null : new TransformCache(Paths.get(options.getCacheDir()));
+		this.memo = memo;
+		this.ownsMemo = ownsMemo;
+		this.shapes = shapes;
+		this.compiler = options.isCompile() ? new InMemoryCompiler() : null;
+	}
+
+	/**
+	 * Transforms input, a source file or a directory of them, writing each of its types under the output root
+	 *  for a file at output, or under output for a directory, and with --compile, compiling them in memory
+	 *  into the result's classes. The files of a directory are a single submission, built in one model.
+	 * With --dedup, chains are only registered in the ShapeIndex in input's turn,
+	 *  and results with duplicates aren't cached, since their representatives depend on the rest of the run.
+	 * @see TypeWriter#outputRoot(Path, String)
+	 */
+	@Override
+	public TransformResult transform(Path input, Path output) {
+		try {
+			return transformInTurn(input, output);
+		}
+		finally {
+			if (shapes != null) {
+				shapes.release(input);
+			}
+		}
+	}
+
+	private TransformResult transformInTurn(Path input, Path output) {
+		long start = System.nanoTime();
+		TransformMetrics metrics = new TransformMetrics();
+		try {
+			metrics.begin(TransformMetrics.Phase.READ);
+			Path root;
+			List<SourceFile> files = new ArrayList<>();
+			if (Files.isDirectory(input)) {
+				root = output;
+				for (Path file : javaFiles(input)) {
+					files.add(new SourceFile(file, input.relativize(file), true));
+				}
+				if (files.isEmpty()) {
+					throw new IOException("No .java files in " + input);
+				}
+			}
+			else {
+				SourceFile file = new SourceFile(input, input.getFileName(), false);
+				root = TypeWriter.outputRoot(output, file.packageName);
+				files.add(file);
+			}
+
+			Map<File, NavigableSet<Integer>> candidates = null;
+			if (options.isPrefilter()) {
+				metrics.begin(TransformMetrics.Phase.PREFILTER);
+				candidates = new HashMap<>();
+				for (SourceFile file : files) {
+					NavigableSet<Integer> blocks = LexicalPrefilter.candidateBlocks(file.text);
+					if (!blocks.isEmpty()) {
+						candidates.put(BranchCounterProcessor.canonical(file.path.toFile()), blocks);
+					}
+				}
+				if (candidates.isEmpty()) {
+					metrics.begin(TransformMetrics.Phase.READ);
+					Map<Path, String> sources = new LinkedHashMap<>();
+					for (SourceFile file : files) {
+						Path copy = root.resolve(file.written);
+						Files.createDirectories(copy.toAbsolutePath().getParent());
+						Files.copy(file.path, copy, StandardCopyOption.REPLACE_EXISTING);
+						sources.put(file.written, file.text);
+					}
+					Map<String, byte[]> classes;
+					try {
+						classes = compile(sources, sourcepath(files), metrics);
+					}
+					catch (IllegalArgumentException e) {
+						// Without chains there is nothing to analyze, so the submission is skipped all the same
+						classes = Collections.emptyMap();
+					}
+					metrics.end();
+					return TransformResult.skipped(input, root, System.nanoTime() - start, metrics)
+							.withClasses(classes);
+				}
+			}
+
+			String key = null;
+			if (cache != null) {
+				metrics.begin(TransformMetrics.Phase.CACHE);
+				Map<Path, byte[]> sources = new HashMap<>();
+				for (SourceFile file : files) {
+					sources.put(file.written, file.source);
+				}
+				key = TransformCache.key(sources, options.getFingerprint());
+				List<ChainInfo> chains = cache.restore(key, root);
+				if (chains != null) {
+					if (memo != null) {
+						for (int i = 0; i < chains.size(); i++) {
+							chains.set(i, memo.decide(chains.get(i)));
+						}
+					}
+					if (shapes != null) {
+						shapes.await(input);
+						for (ChainInfo chain : chains) {
+							shapes.register(input.toString(), chain);
+						}
+					}
+					Map<Path, String> restored = new LinkedHashMap<>();
+					if (compiler != null) {
+						cache.readSources(key, restored);
+					}
+					Map<String, byte[]> classes = compile(restored, sourcepath(files), metrics);
+					metrics.end();
+					return TransformResult.cached(input, root, chains, System.nanoTime() - start, metrics)
+							.withClasses(classes);
+				}
+			}
+
+			metrics.begin(TransformMetrics.Phase.BUILD);
+			Launcher l = new Launcher();
+			for (SourceFile file : files) {
+				l.addInputResource(file.path.toString());
+			}
+			BranchCounterProcessor processor = new BranchCounterProcessor(options.getEncoding());
+			processor.setCandidateBlocks(candidates);
+			processor.setSlicing(options.isSlicing());
+			PairOracle oracle = options.isIntervals() ? new IntervalChecker() : null;
+			if (memo != null) {
+				oracle = new MemoOracle(memo, oracle);
+			}
+			processor.setOracle(oracle);
+			processor.setMemo(memo);
+			processor.setShapeIndex(shapes, input.toString());
+			l.addProcessor(processor);
+			CtModel model = l.buildModel();
+			if (shapes != null) {
+				shapes.await(input);
+			}
+			metrics.begin(TransformMetrics.Phase.PROCESS);
+			l.process();
+			if (shapes != null) {
+				shapes.release(input);
+			}
+			metrics.count(processor);
+			metrics.begin(TransformMetrics.Phase.WRITE);
+
+			Map<File, SourceFile> byFile = new HashMap<>();
+			for (SourceFile file : files) {
+				byFile.put(BranchCounterProcessor.canonical(file.path.toFile()), file);
+			}
+			List<Path> written = new ArrayList<>();
+			Map<Path, String> sources = new LinkedHashMap<>();
+			if (options.isSniper()) {
+				for (SourceFile file : files) {
+					List<CtBlock<?>> blocks = new ArrayList<>();
+					for (CtBlock<?> block : processor.getInstrumentedBlocks()) {
+						if (file == fileOf(block, byFile, null)) {
+							blocks.add(block);
+						}
+					}
+					Map<CtClass<?>, List<CtMethod<Boolean>>> slices = new LinkedHashMap<>();
+					for (Map.Entry<CtClass<?>, List<CtMethod<Boolean>>> entry : processor.getSlices().entrySet()) {
+						if (file == fileOf(entry.getKey(), byFile, null)) {
+							slices.put(entry.getKey(), entry.getValue());
+						}
+					}
+					l.getEnvironment().useTabulations(file.text.contains("\n\t"));
+					String spliced = new MethodSplicer(l.getEnvironment()).splice(file.text, blocks, slices);
+					Files.createDirectories(root.resolve(file.written).toAbsolutePath().getParent());
+					Files.write(root.resolve(file.written), spliced.getBytes(StandardCharsets.UTF_8));
+					written.add(file.written);
+					sources.put(file.written, spliced);
+				}
+			}
+			else {
+				Map<Path, TypeWriter> writers = new HashMap<>();
+				Map<Path, String> printed = new LinkedHashMap<>();
+				for (CtType<?> t : model.getAllTypes()) {
+					Path typeRoot = fileOf(t, byFile, files.get(0)).root;
+					TypeWriter writer = writers.get(typeRoot);
+					if (writer == null) {
+						writer = new TypeWriter(root.resolve(typeRoot), l.getEnvironment());
+						if (compiler != null) {
+							writer.setPrinted(printed);
+						}
+						writers.put(typeRoot, writer);
+					}
+					Path file = typeRoot.resolve(writer.write(t));
+					written.add(file);
+					for (Map.Entry<Path, String> text : printed.entrySet()) {
+						sources.put(typeRoot.resolve(text.getKey()), text.getValue());
+					}
+					printed.clear();
+				}
+			}
+
+			if (cache != null && !hasDuplicates(processor.getChains())) {
+				cache.store(key, root, written, processor.getChains());
+			}
+			Map<String, byte[]> classes = compile(sources, sourcepath(files), metrics);
+
+			metrics.end();
+			int methodsSkipped = candidates == null ? 0 : countMethodsWithout(model, candidates);
+			return TransformResult.transformed(input, root, processor.getChains(), methodsSkipped,
+					System.nanoTime() - start, metrics).withClasses(classes);
+		}
+		catch (IOException | RuntimeException e) {
+			metrics.end();
+			return TransformResult.failure(input, System.nanoTime() - start, metrics, e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			metrics.end();
+			return TransformResult.failure(input, System.nanoTime() - start, metrics, e);
+		}
+	}
+
+	/**
+	 * A source file of a submission, read.
+	 */
+	private static class SourceFile {
+
+		final Path path;
+		final byte[] source;
+		final String text;
+		final String packageName;
+		/** The root the file's types are written under, relative to the submission's output root */
+		final Path root;
+		/** The path the file is written at, relative to the submission's output root */
+		final Path written;
+		final boolean inDirectory;
+
+		/**
+		 * @param relative the path of the file within its submission, or its name if it is a submission of its own
+		 * @param inDirectory whether the file is part of a submission directory, whose output is laid out like it
+		 */
+		SourceFile(Path path, Path relative, boolean inDirectory) throws IOException {
+			this.path = path;
+			this.inDirectory = inDirectory;
+			this.source = Files.readAllBytes(path);
+			this.text = new String(source, StandardCharsets.UTF_8);
+			this.packageName = TypeWriter.declaredPackage(text);
+			this.root = inDirectory ? TypeWriter.outputRoot(relative, packageName) : Paths.get("");
+			this.written = root.resolve(TypeWriter.relativePath(packageName, relative.getFileName().toString()));
+		}
+	}
+
+	/**
+	 * @return the .java files under dir, in order of their paths
+	 */
+	private static List<Path> javaFiles(Path dir) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (file.toString().endsWith(".java")) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * @return the file of byFile element was read from, or otherwise
+	 */
+	private static SourceFile fileOf(CtElement element, Map<File, SourceFile> byFile, SourceFile otherwise) {
+		SourcePosition position = element.getPosition();
+		if (!position.isValidPosition() || position.getFile() == null) {
+			return otherwise;
+		}
+		SourceFile file = byFile.get(BranchCounterProcessor.canonical(position.getFile()));
+		return file == null ? otherwise : file;
+	}
+
+	private static boolean hasDuplicates(List<ChainInfo> chains) {
+		for (ChainInfo chain : chains) {
+			if (chain.isDuplicate()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compiles sources in memory, if the output is to be compiled.
+	 * @return the classes compiled, or an empty map if the output isn't compiled
+	 * @throws IllegalArgumentException if sources don't compile
+	 */
+	private Map<String, byte[]> compile(Map<Path, String> sources, List<Path> sourcepath, TransformMetrics metrics)
+			throws IOException {
+		if (compiler == null) {
+			return Collections.emptyMap();
+		}
+		metrics.begin(TransformMetrics.Phase.COMPILE);
+		return compiler.compile(sources, sourcepath);
+	}
+
+	/**
+	 * @return the source root of a submission given as a single file, so that it compiles against the types
+	 *  next to it, or nothing for a submission directory, whose files are compiled together
+	 */
+	private static List<Path> sourcepath(List<SourceFile> files) {
+		if (files.size() != 1 || files.get(0).inDirectory) {
+			return Collections.emptyList();
+		}
+		SourceFile file = files.get(0);
+		return Collections.singletonList(TypeWriter.outputRoot(file.path.toAbsolutePath(), file.packageName));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (memo != null && ownsMemo) {
+			memo.close();
+		}
+	}
+
+	/**
+	 * @return the number of methods, constructors and initializers in model
+	 *  whose bodies contain none of the candidate blocks of their file
+	 */
+	private static int countMethodsWithout(CtModel model, Map<File, NavigableSet<Integer>> candidates) {
+		int count = 0;
+		for (CtExecutable<?> executable : model.getElements(new TypeFilter<>(CtExecutable.class))) {
+			if (executable instanceof CtLambda<?> || executable.getBody() == null) {
+				continue;
+			}
+			SourcePosition position = executable.getBody().getPosition();
+			if (!position.isValidPosition() || position.getFile() == null) {
+				continue;
+			}
+			NavigableSet<Integer> blocks = candidates.get(BranchCounterProcessor.canonical(position.getFile()));
+			Integer candidate = blocks == null ? null : blocks.ceiling(position.getSourceStart());
+			if (candidate == null || candidate > position.getSourceEnd()) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,178 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A persistent on-disk cache of transformed submissions.
+ * Entries are keyed by a hash of the tool version, the entry format, the options that affect
+ *  the transformation, and the paths and sources of the submission's files, so an unchanged submission
+ *  can be restored without building its Spoon model.
+ *
+ * Each entry is a directory named by its key, holding a {@code chains} file with one
+ *  ChainInfo per line, and the submission's output files under {@code files/}.
+ */
+public class TransformCache {
+
+	/**
+	 * The version of the entry format, part of every key so that entries written in an older format are never read.
+	 * Bump it whenever ChainInfo.toLine() or the layout of an entry changes.
+	 */
+	static final int FORMAT = 4;
+	private static final String CHAINS = "chains";
+	private static final String FILES = "files";
+
+	private final Path dir;
+
+	public TransformCache(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * @param file the path of the submission relative to the output root, which names its output in sniper mode
+	 */
+	public static String key(Path file, byte[] source, String fingerprint) {
+		return key(Collections.singletonMap(file, source), fingerprint);
+	}
+
+	/**
+	 * @param sources the source of each file of a submission, by the path it is written at relative to
+	 *  the submission's output
+	 */
+	public static String key(Map<Path, byte[]> sources, String fingerprint) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update((App.VERSION + "\0" + FORMAT + "\0" + fingerprint + "\0").getBytes(StandardCharsets.UTF_8));
+		for (Map.Entry<Path, byte[]> source : new TreeMap<>(sources).entrySet()) {
+			digest.update((source.getKey() + "\0" + source.getValue().length + "\0").getBytes(StandardCharsets.UTF_8));
+			digest.update(source.getValue());
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Copies the cached output files for key into outputRoot.
+	 * @return the cached chains, or null if there is no entry for key
+	 */
+	public List<ChainInfo> restore(String key, Path outputRoot) throws IOException {
+		Path entry = entry(key);
+		if (!Files.isDirectory(entry)) {
+			return null;
+		}
+
+		copyTree(entry.resolve(FILES), outputRoot);
+		List<ChainInfo> chains = new ArrayList<>();
+		for (String line : Files.readAllLines(entry.resolve(CHAINS), StandardCharsets.UTF_8)) {
+			chains.add(ChainInfo.fromLine(line));
+		}
+		return chains;
+	}
+
+	/**
+	 * Reads the text of the cached output files for key into sources, by their paths relative to the output root.
+	 */
+	public void readSources(String key, final Map<Path, String> sources) throws IOException {
+		final Path files = entry(key).resolve(FILES);
+		Files.walkFileTree(files, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (file.toString().endsWith(".java")) {
+					sources.put(files.relativize(file), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Stores the given output files, relative to outputRoot, and chains under key.
+	 * The entry is assembled in a temporary directory and moved into place,
+	 *  so concurrent workers and interrupted runs never leave a partial entry.
+	 */
+	public void store(String key, Path outputRoot, List<Path> files, List<ChainInfo> chains) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (ChainInfo chain : chains) {
+			lines.add(chain.toLine());
+		}
+
+		Path entry = entry(key);
+		Files.createDirectories(entry.getParent());
+		Path tmp = Files.createTempDirectory(entry.getParent(), key);
+		Files.write(tmp.resolve(CHAINS), lines, StandardCharsets.UTF_8);
+		for (Path file : files) {
+			Path copy = tmp.resolve(FILES).resolve(file.toString());
+			Files.createDirectories(copy.getParent());
+			Files.copy(outputRoot.resolve(file), copy);
+		}
+
+		try {
+			Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			delete(tmp);
+			// Another worker stored the same entry first, which some file systems report
+			//  as a FileAlreadyExistsException or DirectoryNotEmptyException, and Linux as neither
+			if (!Files.isDirectory(entry)) {
+				throw e;
+			}
+		}
+	}
+
+	private Path entry(String key) {
+		return dir.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private static void copyTree(final Path from, final Path to) throws IOException {
+		if (!Files.exists(from)) {
+			return;
+		}
+		Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Path target = to.resolve(from.relativize(file).toString());
+				Files.createDirectories(target.toAbsolutePath().getParent());
+				Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static void delete(Path tree) throws IOException {
+		Files.walkFileTree(tree, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
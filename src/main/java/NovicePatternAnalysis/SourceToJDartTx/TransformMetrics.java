@@ -0,0 +1,109 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Wall and CPU time spent in each phase of transforming a single submission,
+ *  and the counters BranchCounterProcessor kept while processing it.
+ *
+ * A SubmissionTransformer runs each submission on a single thread,
+ *  so CPU time is that thread's, and excludes time spent on other submissions.
+ */
+public class TransformMetrics {
+
+	public enum Phase {
+		/** Reading the source, and copying it if LexicalPrefilter rules it out */
+		READ,
+		PREFILTER,
+		/** Looking up, or restoring, the output in the transform cache */
+		CACHE,
+		/** Building the Spoon model */
+		BUILD,
+		/** Running BranchCounterProcessor */
+		PROCESS,
+		/** Printing and writing the output, and storing it in the transform cache */
+		WRITE,
+		/** Compiling the output in memory, see InMemoryCompiler */
+		COMPILE,
+		/** Running the methods of undecided chains on random inputs, see FuzzPrefilter */
+		FUZZ
+	}
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private final long[] wallNanos = new long[Phase.values().length];
+	private final long[] cpuNanos = new long[Phase.values().length];
+	private Phase current = null;
+	private long wallStart;
+	private long cpuStart;
+	private int blocksVisited = 0;
+	private int branchesInstrumented = 0;
+	private int assertionsEmitted = 0;
+
+	/**
+	 * Ends the current phase, if any, and starts timing phase.
+	 */
+	public void begin(Phase phase) {
+		end();
+		current = phase;
+		wallStart = System.nanoTime();
+		cpuStart = cpuTime();
+	}
+
+	/**
+	 * Ends the current phase, if any, adding its time to that phase's total.
+	 */
+	public void end() {
+		if (current == null) {
+			return;
+		}
+		wallNanos[current.ordinal()] += System.nanoTime() - wallStart;
+		cpuNanos[current.ordinal()] += cpuTime() - cpuStart;
+		current = null;
+	}
+
+	/**
+	 * Records the counters of the processor that processed the submission.
+	 */
+	public void count(BranchCounterProcessor processor) {
+		count(processor.getBlocksVisited(), processor.getBranchesInstrumented(), processor.getAssertionsEmitted());
+	}
+
+	/**
+	 * Records counters kept by some other instrumenter, such as BytecodeInstrumenter,
+	 *  for which blocks are method bodies.
+	 */
+	public void count(int blocksVisited, int branchesInstrumented, int assertionsEmitted) {
+		this.blocksVisited = blocksVisited;
+		this.branchesInstrumented = branchesInstrumented;
+		this.assertionsEmitted = assertionsEmitted;
+	}
+
+	public long getWallNanos(Phase phase) {
+		return wallNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return the CPU time of the phase, or 0 if the JVM doesn't measure thread CPU time
+	 */
+	public long getCpuNanos(Phase phase) {
+		return cpuNanos[phase.ordinal()];
+	}
+
+	public int getBlocksVisited() {
+		return blocksVisited;
+	}
+
+	public int getBranchesInstrumented() {
+		return branchesInstrumented;
+	}
+
+	public int getAssertionsEmitted() {
+		return assertionsEmitted;
+	}
+
+	private static long cpuTime() {
+		return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+	}
+}
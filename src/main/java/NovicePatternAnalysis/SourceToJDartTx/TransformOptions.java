@@ -0,0 +1,396 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command line options for corpus mode.
+ *
+ * Usage: [-o outputDir] [-j threads] [-c cacheDir] [-m memoFile] [-e flags|counter|bitmask]
+ *  [--slice] [--intervals] [--dedup] [--no-prefilter] [--sniper] [--report file] [--snapshots seconds]
+ *  [--heap-budget megabytes] [--manifest file] [--serve] [--port port] [--bytecode] [--compile]
+ *  [--fuzz iterations] [--jdart RunJPF.jar] [--job-seconds seconds] [--job-memory megabytes] [--retries count]
+ *  [--deadline minutes] input...
+ *  where each input is a .java file, a directory to search for .java files,
+ *  or @file naming a text file that lists one input per line.
+ * -e selects the BranchCounterProcessor.Encoding used to instrument chains (flags by default).
+ * --slice extracts each chain's guards into methods of their own where possible, see PredicateSlicer.
+ * -m keeps EXCLUSIVE verdicts for pairs of guards in memoFile, see MemoOracle, so each is only decided once,
+ *  and the verdicts --fuzz and --jdart reach for chains, by the shape of their method, see VerdictMemo.
+ * --intervals decides chains over a single integral variable without instrumenting them, see IntervalChecker.
+ * --dedup analyzes each distinct MethodShape once, in the first submission by path that has it,
+ *  recording the chains of copies as duplicates. Results with duplicates aren't cached.
+ * --no-prefilter builds a model for every submission, even those LexicalPrefilter rules out.
+ * --sniper re-prints only the instrumented methods, copying the rest of each submission as-is.
+ * --report writes a RunReport of per-phase times and counters to file at the end of the run, as JSON if
+ *  its name ends in .json and CSV otherwise. With --snapshots, a RunSnapshots line is also appended to
+ *  file.snapshots every given number of seconds during the run.
+ * --heap-budget transforms submissions in batches, with fewer at once whenever the peak heap usage
+ *  exceeds the budget, see CorpusRunner. Since the peak includes garbage not yet collected,
+ *  the budget is best set somewhat below the maximum heap size.
+ * --manifest writes each submission's chains to file as soon as it is transformed, see ManifestWriter,
+ *  and the chains decided later, e.g. by --jdart, again at the end of the run.
+ * --serve answers transform requests on stdin instead of transforming inputs, see TransformServer,
+ *  and --port on a loopback port instead of stdin.
+ * --bytecode instruments compiled classes instead, see BytecodeInstrumenter: inputs are then .class files, jars,
+ *  or directories to search for both. Only the flags encoding is supported.
+ * --compile compiles each submission's output in memory, see InMemoryCompiler, and hands its classes
+ *  to the analysis stage in the TransformResult. The files of a submission directory are compiled together,
+ *  and a single file against the sources next to it. A skipped submission that doesn't compile stays skipped.
+ *  With --bytecode, the instrumented classes are handed on as is.
+ * --fuzz calls the methods of undecided chains, and the slices of sliced ones, on up to the given number
+ *  of generated inputs each, in a JVM of their own, and marks the chains found to overlap OVERLAPPING,
+ *  see FuzzPrefilter.
+ *  It implies --compile.
+ * --jdart analyzes the methods of the chains still undecided, and the slices of sliced ones, with JDart,
+ *  on a pool of as many JDart processes as threads, see JDartRunner, with jobs and their results
+ *  under outputDir/jdart. It implies --compile.
+ *  Each job is killed after --job-seconds (300 by default), each JDart process has a heap of --job-memory
+ *  (1024 megabytes by default), and a job whose process crashes is retried --retries times (1 by default).
+ *  Jobs are started cheapest first by their AnalysisCost estimate, and with --deadline, jobs not expected
+ *  to end within the given number of minutes from the start of the run aren't started, see JobScheduler.
+ */
+public class TransformOptions {
+
+	private String outputDir = "out";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private String cacheDir = null;
+	private String memoFile = null;
+	private BranchCounterProcessor.Encoding encoding = BranchCounterProcessor.Encoding.FLAGS;
+	private boolean slicing = false;
+	private boolean intervals = false;
+	private boolean dedup = false;
+	private boolean prefilter = true;
+	private boolean sniper = false;
+	private String reportFile = null;
+	private long snapshotSeconds = 0;
+	private long heapBudget = 0;
+	private String manifestFile = null;
+	private boolean serve = false;
+	private int port = 0;
+	private boolean bytecode = false;
+	private boolean compile = false;
+	private int fuzzIterations = 0;
+	private String jdart = null;
+	private long jobSeconds = 300;
+	private int jobMegabytes = 1024;
+	private int retries = 1;
+	private long deadlineMinutes = 0;
+	private final List<String> inputs = new ArrayList<>();
+
+	public static TransformOptions parse(String[] args) {
+		TransformOptions options = new TransformOptions();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			switch (arg) {
+			case "-o":
+				options.outputDir = requireValue(args, ++i, arg);
+				break;
+			case "-j":
+				options.threads = Integer.parseInt(requireValue(args, ++i, arg));
+				if (options.threads < 1) {
+					throw new IllegalArgumentException("-j must be at least 1");
+				}
+				break;
+			case "-c":
+				options.cacheDir = requireValue(args, ++i, arg);
+				break;
+			case "-m":
+				options.memoFile = requireValue(args, ++i, arg);
+				break;
+			case "-e":
+				options.encoding = BranchCounterProcessor.Encoding.valueOf(
+						requireValue(args, ++i, arg).toUpperCase(Locale.ROOT));
+				break;
+			case "--slice":
+				options.slicing = true;
+				break;
+			case "--intervals":
+				options.intervals = true;
+				break;
+			case "--dedup":
+				options.dedup = true;
+				break;
+			case "--no-prefilter":
+				options.prefilter = false;
+				break;
+			case "--sniper":
+				options.sniper = true;
+				break;
+			case "--report":
+				options.reportFile = requireValue(args, ++i, arg);
+				break;
+			case "--snapshots":
+				options.snapshotSeconds = Long.parseLong(requireValue(args, ++i, arg));
+				if (options.snapshotSeconds < 1) {
+					throw new IllegalArgumentException("--snapshots must be at least 1");
+				}
+				break;
+			case "--heap-budget":
+				options.heapBudget = Long.parseLong(requireValue(args, ++i, arg)) * 1024 * 1024;
+				if (options.heapBudget < 1) {
+					throw new IllegalArgumentException("--heap-budget must be at least 1");
+				}
+				break;
+			case "--manifest":
+				options.manifestFile = requireValue(args, ++i, arg);
+				break;
+			case "--serve":
+				options.serve = true;
+				break;
+			case "--port":
+				options.serve = true;
+				options.port = Integer.parseInt(requireValue(args, ++i, arg));
+				if (options.port < 1 || options.port > 65535) {
+					throw new IllegalArgumentException("--port must be between 1 and 65535");
+				}
+				break;
+			case "--bytecode":
+				options.bytecode = true;
+				break;
+			case "--compile":
+				options.compile = true;
+				break;
+			case "--fuzz":
+				options.compile = true;
+				options.fuzzIterations = Integer.parseInt(requireValue(args, ++i, arg));
+				if (options.fuzzIterations < 1) {
+					throw new IllegalArgumentException("--fuzz must be at least 1");
+				}
+				break;
+			case "--jdart":
+				options.compile = true;
+				options.jdart = requireValue(args, ++i, arg);
+				break;
+			case "--job-seconds":
+				options.jobSeconds = Long.parseLong(requireValue(args, ++i, arg));
+				if (options.jobSeconds < 1) {
+					throw new IllegalArgumentException("--job-seconds must be at least 1");
+				}
+				break;
+			case "--job-memory":
+				options.jobMegabytes = Integer.parseInt(requireValue(args, ++i, arg));
+				if (options.jobMegabytes < 16) {
+					throw new IllegalArgumentException("--job-memory must be at least 16");
+				}
+				break;
+			case "--retries":
+				options.retries = Integer.parseInt(requireValue(args, ++i, arg));
+				if (options.retries < 0) {
+					throw new IllegalArgumentException("--retries can't be negative");
+				}
+				break;
+			case "--deadline":
+				options.deadlineMinutes = Long.parseLong(requireValue(args, ++i, arg));
+				if (options.deadlineMinutes < 1) {
+					throw new IllegalArgumentException("--deadline must be at least 1");
+				}
+				break;
+			default:
+				if (arg.startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+				options.inputs.add(arg);
+			}
+		}
+
+		if (options.inputs.isEmpty() && !options.serve) {
+			throw new IllegalArgumentException("No input files or directories given");
+		}
+		if (options.snapshotSeconds > 0 && options.reportFile == null) {
+			throw new IllegalArgumentException("--snapshots requires --report");
+		}
+		if (options.bytecode && options.serve) {
+			throw new IllegalArgumentException("--bytecode can't be served");
+		}
+		if (options.jdart != null && options.serve) {
+			throw new IllegalArgumentException("--jdart can't be served");
+		}
+		if (options.deadlineMinutes > 0 && options.jdart == null) {
+			throw new IllegalArgumentException("--deadline requires --jdart");
+		}
+
+		return options;
+	}
+
+	private static String requireValue(String[] args, int i, String option) {
+		if (i >= args.length) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+		return args[i];
+	}
+
+	public String getOutputDir() {
+		return outputDir;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public List<String> getInputs() {
+		return inputs;
+	}
+
+	/**
+	 * @return the transform cache directory, or null if caching is disabled
+	 */
+	public String getCacheDir() {
+		return cacheDir;
+	}
+
+	/**
+	 * @return the VerdictMemo file, or null if verdicts aren't kept
+	 */
+	public String getMemoFile() {
+		return memoFile;
+	}
+
+	public BranchCounterProcessor.Encoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @return true if chain guards should be sliced into methods of their own where possible
+	 */
+	public boolean isSlicing() {
+		return slicing;
+	}
+
+	/**
+	 * @return true if chains IntervalChecker can decide should be left uninstrumented
+	 */
+	public boolean isIntervals() {
+		return intervals;
+	}
+
+	/**
+	 * @return true if only the first copy of each method shape in the corpus should be analyzed
+	 */
+	public boolean isDedup() {
+		return dedup;
+	}
+
+	/**
+	 * @return true if submissions and methods without candidate chains should be passed through
+	 *  without being processed
+	 */
+	public boolean isPrefilter() {
+		return prefilter;
+	}
+
+	/**
+	 * @return true if only instrumented methods should be re-printed, see MethodSplicer
+	 */
+	public boolean isSniper() {
+		return sniper;
+	}
+
+	/**
+	 * @return the RunReport file, or null if no report is written
+	 */
+	public String getReportFile() {
+		return reportFile;
+	}
+
+	/**
+	 * @return the interval between RunSnapshots, or 0 if none are taken
+	 */
+	public long getSnapshotSeconds() {
+		return snapshotSeconds;
+	}
+
+	/**
+	 * @return the heap budget in bytes, or 0 if all submissions are queued at once
+	 */
+	public long getHeapBudget() {
+		return heapBudget;
+	}
+
+	/**
+	 * @return the ManifestWriter file, or null if no manifest is written
+	 */
+	public String getManifestFile() {
+		return manifestFile;
+	}
+
+	/**
+	 * @return true if transform requests should be served rather than inputs transformed
+	 */
+	public boolean isServe() {
+		return serve;
+	}
+
+	/**
+	 * @return the loopback port to serve, or 0 to serve stdin
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * @return true if inputs are compiled classes to be instrumented by BytecodeInstrumenter
+	 */
+	public boolean isBytecode() {
+		return bytecode;
+	}
+
+	/**
+	 * @return true if each submission's output should be compiled in memory for the analysis stage
+	 */
+	public boolean isCompile() {
+		return compile;
+	}
+
+	/**
+	 * @return the number of inputs FuzzPrefilter calls each method on, or 0 if chains aren't fuzzed
+	 */
+	public int getFuzzIterations() {
+		return fuzzIterations;
+	}
+
+	/**
+	 * @return the JPF launcher jar JDartRunner starts JDart with, or null if chains aren't analyzed
+	 */
+	public String getJDart() {
+		return jdart;
+	}
+
+	/**
+	 * @return the wall-clock limit of each JDart job, in seconds
+	 */
+	public long getJobSeconds() {
+		return jobSeconds;
+	}
+
+	/**
+	 * @return the maximum heap of each JDart process, in megabytes
+	 */
+	public int getJobMegabytes() {
+		return jobMegabytes;
+	}
+
+	/**
+	 * @return the number of times a JDart job whose process crashed is started again
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * @return the time from the start of the run by which JDart jobs must have ended, in minutes, or 0 for none
+	 */
+	public long getDeadlineMinutes() {
+		return deadlineMinutes;
+	}
+
+	/**
+	 * @return a string identifying every option that affects the transformed output,
+	 *  used as part of the transform cache key
+	 */
+	public String getFingerprint() {
+		return encoding + (slicing ? ",slice" : "") + (intervals ? ",intervals" : "") + (memoFile != null ? ",memo" : "")
+				+ (dedup ? ",dedup" : "") + (sniper ? ",sniper" : "");
+	}
+}
@@ -0,0 +1,154 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of transforming a single submission.
+ */
+public class TransformResult {
+
+	public enum Status {
+		/** The submission was built and processed */
+		TRANSFORMED,
+		/** The output was restored from the transform cache */
+		CACHED,
+		/** LexicalPrefilter found no candidate chains, so the submission was copied unchanged */
+		SKIPPED,
+		FAILED
+	}
+
+	private final Path input;
+	private final Path output;
+	private final Status status;
+	private final List<ChainInfo> chains;
+	private final int methodsSkipped;
+	private final long elapsedNanos;
+	private final TransformMetrics metrics;
+	private final Exception error;
+	private final Map<String, byte[]> classes;
+
+	private TransformResult(Path input, Path output, Status status, List<ChainInfo> chains, int methodsSkipped,
+			long elapsedNanos, TransformMetrics metrics, Exception error) {
+		this(input, output, status, chains, methodsSkipped, elapsedNanos, metrics, error,
+				Collections.<String, byte[]>emptyMap());
+	}
+
+	private TransformResult(Path input, Path output, Status status, List<ChainInfo> chains, int methodsSkipped,
+			long elapsedNanos, TransformMetrics metrics, Exception error, Map<String, byte[]> classes) {
+		this.input = input;
+		this.output = output;
+		this.status = status;
+		this.chains = chains;
+		this.methodsSkipped = methodsSkipped;
+		this.elapsedNanos = elapsedNanos;
+		this.metrics = metrics;
+		this.error = error;
+		this.classes = classes;
+	}
+
+	public static TransformResult transformed(Path input, Path output, List<ChainInfo> chains, int methodsSkipped,
+			long elapsedNanos, TransformMetrics metrics) {
+		return new TransformResult(input, output, Status.TRANSFORMED, chains, methodsSkipped, elapsedNanos, metrics,
+				null);
+	}
+
+	public static TransformResult cached(Path input, Path output, List<ChainInfo> chains, long elapsedNanos,
+			TransformMetrics metrics) {
+		return new TransformResult(input, output, Status.CACHED, chains, 0, elapsedNanos, metrics, null);
+	}
+
+	public static TransformResult skipped(Path input, Path output, long elapsedNanos, TransformMetrics metrics) {
+		return new TransformResult(input, output, Status.SKIPPED, Collections.<ChainInfo>emptyList(), 0,
+				elapsedNanos, metrics, null);
+	}
+
+	public static TransformResult failure(Path input, long elapsedNanos, TransformMetrics metrics, Exception error) {
+		return new TransformResult(input, null, Status.FAILED, Collections.<ChainInfo>emptyList(), 0,
+				elapsedNanos, metrics, error);
+	}
+
+	/**
+	 * @return this result, with the classes compiled from its output
+	 */
+	public TransformResult withClasses(Map<String, byte[]> classes) {
+		return new TransformResult(input, output, status, chains, methodsSkipped, elapsedNanos, metrics, error,
+				classes);
+	}
+
+	/**
+	 * @return this result, with chains in place of its own
+	 */
+	public TransformResult withChains(List<ChainInfo> chains) {
+		return new TransformResult(input, output, status, chains, methodsSkipped, elapsedNanos, metrics, error,
+				classes);
+	}
+
+	public boolean isSuccess() {
+		return status != Status.FAILED;
+	}
+
+	public Path getInput() {
+		return input;
+	}
+
+	public Path getOutput() {
+		return output;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public List<ChainInfo> getChains() {
+		return chains;
+	}
+
+	/**
+	 * @return the number of methods in a transformed submission that LexicalPrefilter
+	 *  ruled out, and so were left to the printer untouched
+	 */
+	public int getMethodsSkipped() {
+		return methodsSkipped;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the time spent in each phase, and the processor's counters if the submission was processed
+	 */
+	public TransformMetrics getMetrics() {
+		return metrics;
+	}
+
+	public Exception getError() {
+		return error;
+	}
+
+	/**
+	 * @return the bytes of each class compiled from the output, by binary name,
+	 *  or an empty map if the output wasn't compiled, see InMemoryCompiler
+	 */
+	public Map<String, byte[]> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public String toString() {
+		long millis = elapsedNanos / 1000000;
+		switch (status) {
+		case FAILED:
+			return "FAIL " + input + " (" + millis + " ms): " + error;
+		case SKIPPED:
+			return "SKIP " + input + " -> " + output + " (no candidate chains, " + millis + " ms)";
+		default:
+			return "OK   " + input + " -> " + output + " (" + chains.size() + " chains, "
+					+ (classes.isEmpty() ? "" : classes.size() + " classes, ") + millis + " ms"
+					+ (status == Status.CACHED ? ", cached)" : ")");
+		}
+	}
+}
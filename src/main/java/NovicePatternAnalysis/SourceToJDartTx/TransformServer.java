@@ -0,0 +1,273 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves transform requests from a long-lived process, so that the JVM, Spoon and JDT are loaded
+ *  and warmed up once rather than for every submission.
+ * Requests are read from a stream, either stdin or a connection to a loopback port,
+ *  and share a single SubmissionTransformer, with its cache, memo and shape index.
+ *
+ * Each request is a header line followed by the submission's UTF-8 source:
+ * <pre>
+ * TRANSFORM fileName length
+ * &lt;length bytes of source&gt;
+ * </pre>
+ * and is answered with a header line, each output file, and each chain as a ChainInfo line:
+ * <pre>
+ * OK status files chains millis
+ * FILE relativePath length
+ * &lt;length bytes of transformed source&gt;
+ * CHAIN &lt;ChainInfo.toLine()&gt;
+ * </pre>
+ * or with {@code FAILED message} if the request is malformed or the submission couldn't be transformed.
+ * QUIT ends the session.
+ */
+public class TransformServer {
+
+	/** The source transformed once at startup, to load and compile the classes every request needs */
+	private static final String WARMUP = "public class Warmup {\n"
+			+ "\tint f(int x) {\n"
+			+ "\t\tint y = 0;\n"
+			+ "\t\tif (x < 0) {\n\t\t\ty = 1;\n\t\t}\n"
+			+ "\t\tif (x > 0) {\n\t\t\ty = 2;\n\t\t}\n"
+			+ "\t\treturn y;\n"
+			+ "\t}\n"
+			+ "}\n";
+
+	private final SubmissionTransformer transformer;
+
+	public TransformServer(SubmissionTransformer transformer) {
+		this.transformer = transformer;
+	}
+
+	/**
+	 * Serves stdin, or the port given in options, with a transformer for options.
+	 */
+	public static void run(TransformOptions options) throws IOException {
+		try (SubmissionTransformer transformer = new SubmissionTransformer(options)) {
+			TransformServer server = new TransformServer(transformer);
+			warmUp(options);
+			if (options.getPort() == 0) {
+				server.serve(System.in, System.out);
+			}
+			else {
+				server.listen(options.getPort(), options.getThreads());
+			}
+		}
+	}
+
+	/**
+	 * Transforms a small chain, so that the first request doesn't pay for class loading.
+	 * The chain is transformed without the cache, memo or shape index of options,
+	 *  so it can't turn up in the results of a request.
+	 */
+	public static void warmUp(TransformOptions options) throws IOException {
+		TransformOptions plain = TransformOptions.parse(new String[] { "-e", options.getEncoding().name(),
+				"Warmup.java" });
+		try (SubmissionTransformer transformer = new SubmissionTransformer(plain)) {
+			new TransformServer(transformer).transform("Warmup.java", WARMUP.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Accepts connections to port on the loopback address, serving each on one of threads workers,
+	 *  until the process is stopped.
+	 */
+	public void listen(int port, int threads) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			System.err.println("Listening on " + server.getLocalSocketAddress());
+			while (true) {
+				final Socket socket = server.accept();
+				pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						try (Socket connection = socket) {
+							serve(connection.getInputStream(), connection.getOutputStream());
+						}
+						catch (IOException e) {
+							System.err.println("Connection failed: " + e);
+						}
+					}
+				});
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Answers requests from in on out until in ends or sends QUIT.
+	 */
+	public void serve(InputStream in, OutputStream out) throws IOException {
+		InputStream input = new BufferedInputStream(in);
+		OutputStream output = new BufferedOutputStream(out);
+		String header;
+		while ((header = readLine(input)) != null) {
+			if (header.trim().isEmpty()) {
+				continue;
+			}
+			if (header.trim().equals("QUIT")) {
+				break;
+			}
+
+			String[] fields = header.trim().split(" ");
+			if (fields.length != 3 || !fields[0].equals("TRANSFORM")) {
+				writeLine(output, "FAILED Expected TRANSFORM fileName length or QUIT");
+				output.flush();
+				continue;
+			}
+			int length;
+			try {
+				length = Integer.parseInt(fields[2]);
+			}
+			catch (NumberFormatException e) {
+				length = -1;
+			}
+			if (length < 0) {
+				writeLine(output, "FAILED Bad length: " + fields[2]);
+				output.flush();
+				continue;
+			}
+
+			byte[] source = new byte[length];
+			int read = 0;
+			while (read < length) {
+				int n = input.read(source, read, length - read);
+				if (n < 0) {
+					throw new EOFException("Source ended after " + read + " of " + length + " bytes");
+				}
+				read += n;
+			}
+
+			respond(output, fields[1], source);
+			output.flush();
+		}
+		output.flush();
+	}
+
+	private void respond(OutputStream out, String fileName, byte[] source) throws IOException {
+		if (!fileName.endsWith(".java") || fileName.contains("/") || fileName.contains("\\")
+				|| fileName.equals(".java")) {
+			writeLine(out, "FAILED Not a plain .java file name: " + fileName);
+			return;
+		}
+
+		Path dir = Files.createTempDirectory("transform");
+		try {
+			Path input = dir.resolve("in").resolve(fileName);
+			Files.createDirectories(input.getParent());
+			Files.write(input, source);
+			Path output = dir.resolve("out").resolve(fileName);
+			TransformResult result = transformer.transform(input, output);
+			if (!result.isSuccess()) {
+				writeLine(out, "FAILED " + String.valueOf(result.getError()).replaceAll("\\s+", " "));
+				return;
+			}
+
+			List<Path> files = files(result.getOutput());
+			writeLine(out, "OK " + result.getStatus() + " " + files.size() + " " + result.getChains().size() + " "
+					+ result.getElapsedNanos() / 1000000);
+			for (Path file : files) {
+				byte[] text = Files.readAllBytes(result.getOutput().resolve(file));
+				writeLine(out, "FILE " + file.toString().replace('\\', '/') + " " + text.length);
+				out.write(text);
+			}
+			for (ChainInfo chain : result.getChains()) {
+				writeLine(out, "CHAIN " + chain.toLine());
+			}
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	/**
+	 * Transforms source without a client, returning its result.
+	 */
+	TransformResult transform(String fileName, byte[] source) throws IOException {
+		Path dir = Files.createTempDirectory("transform");
+		try {
+			Path input = dir.resolve(fileName);
+			Files.write(input, source);
+			return transformer.transform(input, dir.resolve("out").resolve(fileName));
+		}
+		finally {
+			delete(dir);
+		}
+	}
+
+	/**
+	 * @return the files under root, relative to it, in a stable order
+	 */
+	private static List<Path> files(final Path root) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				files.add(root.relativize(file));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * @return the next line of in, without its line terminator, or null at the end of in
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) >= 0 && b != '\n') {
+			line.write(b);
+		}
+		if (b < 0 && line.size() == 0) {
+			return null;
+		}
+		String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+		return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+	}
+
+	private static void writeLine(OutputStream out, String line) throws IOException {
+		out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void delete(Path tree) throws IOException {
+		Files.walkFileTree(tree, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
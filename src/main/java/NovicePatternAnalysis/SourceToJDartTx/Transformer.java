@@ -0,0 +1,17 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+
+/**
+ * Transforms a single submission for CorpusRunner: a source file, see SubmissionTransformer,
+ *  or compiled classes, see BytecodeInstrumenter.
+ */
+public interface Transformer extends Closeable {
+
+	/**
+	 * Transforms input into output, reporting failures in the result rather than throwing them.
+	 * May be called from several threads at once.
+	 */
+	TransformResult transform(Path input, Path output);
+}
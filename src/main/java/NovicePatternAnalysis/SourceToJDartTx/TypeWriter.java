@@ -0,0 +1,104 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import spoon.compiler.Environment;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.PrettyPrinter;
+
+/**
+ * Writes each top-level type to its own file under an output root,
+ *  at the path its package implies (e.g. {@code root/edu/school/Main.java}).
+ * One pretty printer is reused for every type, and each type's text is written
+ *  out and released before the next type is printed.
+ */
+public class TypeWriter {
+
+	private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+	private final Path root;
+	private final PrettyPrinter printer;
+	private Map<Path, String> printed = null;
+
+	public TypeWriter(Path root, Environment environment) {
+		this.root = root;
+		this.printer = environment.createPrettyPrinter();
+	}
+
+	/**
+	 * Keeps the text of each type written in printed, by its path relative to the output root,
+	 *  for InMemoryCompiler. Without it, the text is released once written.
+	 */
+	public void setPrinted(Map<Path, String> printed) {
+		this.printed = printed;
+	}
+
+	/**
+	 * Prints type, with its package declaration and imports, to its file under the output root.
+	 * @return the path written, relative to the output root
+	 */
+	public Path write(CtType<?> type) throws IOException {
+		Path relative = relativePath(type.getPackage() == null ? "" : type.getPackage().getQualifiedName(),
+				type.getSimpleName() + ".java");
+		Path file = root.resolve(relative);
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+
+		String text = printer.printTypes(type);
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write(text);
+		}
+		if (printed != null) {
+			printed.put(relative, text);
+		}
+		return relative;
+	}
+
+	/**
+	 * @return the path of fileName in packageName, relative to an output root
+	 */
+	public static Path relativePath(String packageName, String fileName) {
+		Path dir = packageDir(packageName);
+		return dir == null ? Paths.get(fileName) : dir.resolve(fileName);
+	}
+
+	/**
+	 * Finds the output root for a source file that would otherwise be written to output:
+	 *  output's directory, less any trailing directories that already spell out the file's package.
+	 */
+	public static Path outputRoot(Path output, String packageName) {
+		Path dir = output.getParent();
+		Path packageDir = packageDir(packageName);
+		if (dir != null && packageDir != null && dir.endsWith(packageDir)) {
+			for (int i = 0; i < packageDir.getNameCount() && dir != null; i++) {
+				dir = dir.getParent();
+			}
+		}
+		return dir == null ? Paths.get("") : dir;
+	}
+
+	/**
+	 * @return the package declared in source, found lexically, or an empty string for the default package
+	 */
+	public static String declaredPackage(String source) {
+		Matcher matcher = PACKAGE.matcher(source);
+		return matcher.find() ? matcher.group(1) : "";
+	}
+
+	private static Path packageDir(String packageName) {
+		if (packageName.isEmpty() || packageName.equals(CtPackage.TOP_LEVEL_PACKAGE_NAME)) {
+			return null;
+		}
+		return Paths.get(packageName.replace('.', '/'));
+	}
+}
@@ -0,0 +1,13 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+/**
+ * What is known about whether the branches of a chain, or a pair of them, can be taken together.
+ */
+public enum Verdict {
+	/** No input takes both branches, so the chain could be an else-if ladder */
+	EXCLUSIVE,
+	/** Some input to the method takes both branches */
+	OVERLAPPING,
+	/** Neither could be shown without analyzing the method, e.g. with JDart */
+	UNKNOWN
+}
@@ -0,0 +1,106 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A persistent table of verdicts, shared by every worker in a run and kept between runs:
+ *  for pairs of guards, keyed by their GuardCanonicalizer form, see MemoOracle,
+ *  and for chains decided by analyzing them, keyed by their shape, see record(ChainInfo).
+ *
+ * The table is a text file with one tab-separated verdict and key per line. It is loaded when the memo
+ *  is opened, and each new verdict is appended and flushed as it is found, so a run that is interrupted keeps
+ *  what it learned. A line left incomplete by an interrupted run is ignored.
+ */
+public class VerdictMemo implements Closeable {
+
+	private final ConcurrentMap<String, Verdict> verdicts = new ConcurrentHashMap<>();
+	private final Writer writer;
+
+	public VerdictMemo(Path file) throws IOException {
+		if (Files.exists(file)) {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				int tab = line.indexOf('\t');
+				if (tab < 0) {
+					continue;
+				}
+				try {
+					verdicts.put(line.substring(tab + 1), Verdict.valueOf(line.substring(0, tab)));
+				}
+				catch (IllegalArgumentException e) {
+					// Incomplete line
+				}
+			}
+		}
+		else if (file.toAbsolutePath().getParent() != null) {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+		}
+		writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * @return the verdict recorded for key, or null if there is none
+	 */
+	public Verdict get(String key) {
+		return verdicts.get(key);
+	}
+
+	/**
+	 * Records verdict for key, unless key already has one or verdict is UNKNOWN.
+	 */
+	public void put(String key, Verdict verdict) throws IOException {
+		if (verdict == Verdict.UNKNOWN || verdicts.putIfAbsent(key, verdict) != null) {
+			return;
+		}
+		synchronized (writer) {
+			writer.write(verdict + "\t" + key + "\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * @return the key the verdict reached by analyzing a chain with the given shape is kept under
+	 */
+	public static String chainKey(String shape) {
+		return "chain " + shape;
+	}
+
+	/**
+	 * Records the verdict reached for chain by the analysis, e.g. FuzzPrefilter or JDart,
+	 *  for the chains with the same shape in later submissions and runs, see BranchCounterProcessor#setMemo.
+	 * Unlike a pair of guards, the shape covers the whole method around the chain, so both verdicts are kept.
+	 * Chains that are undecided, or whose shape wasn't computed, are ignored.
+	 */
+	public void record(ChainInfo chain) throws IOException {
+		if (chain.isDecided() && !chain.getShape().isEmpty()) {
+			put(chainKey(chain.getShape()), chain.getVerdict());
+		}
+	}
+
+	/**
+	 * @return chain with the verdict recorded for its shape, or chain itself if it is decided or there is none
+	 */
+	public ChainInfo decide(ChainInfo chain) {
+		Verdict verdict = chain.isDecided() || chain.getShape().isEmpty() ? null : get(chainKey(chain.getShape()));
+		return verdict == null ? chain : chain.withVerdict(verdict);
+	}
+
+	public int size() {
+		return verdicts.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (writer) {
+			writer.close();
+		}
+	}
+}
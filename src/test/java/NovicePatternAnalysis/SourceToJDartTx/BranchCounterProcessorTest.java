@@ -0,0 +1,73 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.code.CtAssignment;
+import spoon.reflect.code.CtCodeSnippetStatement;
+import spoon.reflect.code.CtLocalVariable;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Unit tests for BranchCounterProcessor.
+ */
+public class BranchCounterProcessorTest {
+
+	private static final String BASIC = "class A {\n"
+			+ "	int f(int x) {\n"
+			+ "		int y = 0;\n"
+			+ "		if (x < 0) {\n"
+			+ "			y = 1;\n"
+			+ "		}\n"
+			+ "		if (x > 0) {\n"
+			+ "			y = -1;\n"
+			+ "		}\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	@Test
+	public void generatesTypedStatements() {
+		CtMethod<?> f = process(BASIC, new BranchCounterProcessor());
+
+		assertTrue(f.getElements(new TypeFilter<>(CtCodeSnippetStatement.class)).isEmpty());
+		List<CtLocalVariable<?>> locals = f.getElements(new TypeFilter<CtLocalVariable<?>>(CtLocalVariable.class));
+		assertEquals(3, locals.size());
+		assertEquals("branch7", locals.get(0).getSimpleName());
+		assertEquals("branch4", locals.get(1).getSimpleName());
+		// y = 1 and y = -1, plus one flag setter per branch
+		assertEquals(4, f.getElements(new TypeFilter<>(CtAssignment.class)).size());
+		List<CtAssert<?>> asserts = f.getElements(new TypeFilter<CtAssert<?>>(CtAssert.class));
+		assertEquals(1, asserts.size());
+		assertEquals("branch4 ^ branch7", asserts.get(0).getAssertExpression().toString());
+	}
+
+	@Test
+	public void counterEncodingUsesOneCounterAndCheckPerChain() {
+		BranchCounterProcessor processor = new BranchCounterProcessor(BranchCounterProcessor.Encoding.COUNTER);
+		CtMethod<?> f = process(BASIC, processor);
+
+		String body = f.getBody().toString();
+		assertTrue(body.contains("int branches4 = 0;"));
+		assertEquals(2, body.split("branches4\\+\\+;", -1).length - 1);
+		assertTrue(body.contains("if (branches4 == 1) {"));
+		assertEquals(1, f.getElements(new TypeFilter<>(CtAssert.class)).size());
+		assertEquals(Arrays.asList("branches4"), processor.getChains().get(0).getVariables());
+	}
+
+	static CtMethod<?> process(String source, BranchCounterProcessor processor) {
+		CtClass<?> type = Launcher.parseClass(source);
+		CtMethod<?> f = type.getMethodsByName("f").get(0);
+		processor.process(f.getBody());
+		return f;
+	}
+}
@@ -0,0 +1,38 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for BranchMask.
+ */
+public class BranchMaskTest {
+
+	@Test
+	public void decodesEveryCoFiringPair() {
+		assertTrue(BranchMask.coFiringPairs(0L).isEmpty());
+		assertTrue(BranchMask.coFiringPairs(BranchMask.bit(5)).isEmpty());
+
+		List<int[]> pairs = BranchMask.coFiringPairs(BranchMask.bit(0) | BranchMask.bit(2) | BranchMask.bit(63));
+		assertEquals(3, pairs.size());
+		assertArrayEquals(new int[] { 0, 2 }, pairs.get(0));
+		assertArrayEquals(new int[] { 0, 63 }, pairs.get(1));
+		assertArrayEquals(new int[] { 2, 63 }, pairs.get(2));
+	}
+
+	@Test
+	public void mapsPairsToSourceLines() {
+		ChainInfo chain = new ChainInfo("A", "f(int)", Arrays.asList(10, 13, 16), Arrays.asList("branches10"));
+		long mask = BranchMask.fromAssertion(new AssertionError(chain.getId() + " " + 5L));
+
+		List<int[]> lines = BranchMask.coFiringLines(chain, mask);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { 10, 16 }, lines.get(0));
+	}
+}
@@ -0,0 +1,181 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for BytecodeInstrumenter.
+ */
+public class BytecodeInstrumenterTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void assertsChainsInCompiledClasses() throws Exception {
+		Path source = tmp.getRoot().toPath().resolve("Chains.java");
+		Files.write(source, Arrays.asList(
+				"public class Chains {",
+				"	static int exclusive(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		if (x == 0) { y = 3; }",
+				"		return y;",
+				"	}",
+				"	static int overlapping(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	static int loop(int x) {",
+				"		while (x > 0) {",
+				"			if (x > 4) { x -= 4; }",
+				"			if (x <= 4) { x -= 1; }",
+				"		}",
+				"		return x;",
+				"	}",
+				"	static int early(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { return 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("tests need a JDK", compiler);
+		assertEquals(0, compiler.run(null, null, null, "-g", "-d", tmp.getRoot().toString(), source.toString()));
+
+		Path input = tmp.getRoot().toPath().resolve("Chains.class");
+		Path output = tmp.getRoot().toPath().resolve("out/Chains.class");
+		TransformResult result;
+		try (Transformer transformer = new BytecodeInstrumenter(
+				TransformOptions.parse(new String[] { "--bytecode", input.toString() }))) {
+			result = transformer.transform(input, output);
+		}
+		assertEquals(TransformResult.Status.TRANSFORMED, result.getStatus());
+
+		List<ChainInfo> chains = result.getChains();
+		assertEquals(4, chains.size());
+		ChainInfo exclusive = null;
+		for (ChainInfo chain : chains) {
+			if (chain.getMethod().equals("exclusive(int)")) {
+				exclusive = chain;
+			}
+			else if (chain.getMethod().equals("loop(int)")) {
+				// javac jumps from the last if straight back to the loop's condition
+				assertEquals(Arrays.asList(17, 18), chain.getLines());
+				assertTrue(!chain.hasExits());
+			}
+			else if (chain.getMethod().equals("early(int)")) {
+				// return 2 leaves before the assertion is reached
+				assertTrue(chain.hasExits());
+			}
+		}
+		assertNotNull(exclusive);
+		assertEquals(Arrays.asList(4, 5, 6), exclusive.getLines());
+		assertEquals(Arrays.asList("branch4", "branch5", "branch6"), exclusive.getVariables());
+		assertEquals(2, exclusive.getAssertions());
+		assertEquals(7, exclusive.getAssertLine());
+		assertTrue(!exclusive.hasExits());
+
+		Class<?> instrumented = load(output, "Chains");
+		assertEquals(2, invoke(instrumented, "exclusive", 6));
+		assertEquals(1, invoke(instrumented, "overlapping", 3));
+		assertEquals(0, invoke(instrumented, "loop", 3));
+		try {
+			invoke(instrumented, "overlapping", 6);
+			fail("overlapping branches should fail their assertion");
+		}
+		catch (InvocationTargetException e) {
+			assertEquals(AssertionError.class, e.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void findsTheChainsSourceModeFindsInExamples() throws Exception {
+		Path examples = Paths.get("Examples.java");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("tests need a JDK", compiler);
+		assertEquals(0, compiler.run(null, null, null, "-g", "-d", tmp.getRoot().toString(), examples.toString()));
+
+		Map<String, ChainInfo> fromSource = new TreeMap<>();
+		try (Transformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(new String[] { "--no-prefilter", examples.toString() }))) {
+			for (ChainInfo chain : transformer.transform(examples, tmp.newFolder("source").toPath()).getChains()) {
+				fromSource.put(chain.getMethod() + " " + chain.getLines(), chain);
+			}
+		}
+		Path input = tmp.getRoot().toPath().resolve("Examples.class");
+		Path output = tmp.getRoot().toPath().resolve("bytecode/Examples.class");
+		Map<String, ChainInfo> fromBytecode = new TreeMap<>();
+		try (Transformer transformer = new BytecodeInstrumenter(
+				TransformOptions.parse(new String[] { "--bytecode", input.toString() }))) {
+			for (ChainInfo chain : transformer.transform(input, output).getChains()) {
+				fromBytecode.put(chain.getMethod() + " " + chain.getLines(), chain);
+			}
+		}
+		assertEquals(fromSource.keySet(), fromBytecode.keySet());
+		for (ChainInfo chain : fromBytecode.values()) {
+			// Bytecode asserts where the chain ends rather than at the end of its block, if that has a line
+			int last = chain.getLines().get(chain.getLines().size() - 1);
+			assertTrue(chain.toString(), chain.getAssertLine() == 0 || chain.getAssertLine() > last);
+		}
+
+		// Every instrumented method still verifies, and runs unless its chain overlaps
+		Class<?> instrumented = load(output, "Examples");
+		for (Method method : instrumented.getDeclaredMethods()) {
+			if (!Arrays.equals(method.getParameterTypes(), new Class<?>[] { int.class })) {
+				continue;
+			}
+			for (int x = -6; x <= 6; x++) {
+				try {
+					invoke(instrumented, method.getName(), x);
+				}
+				catch (InvocationTargetException e) {
+					assertEquals(AssertionError.class, e.getCause().getClass());
+				}
+			}
+		}
+	}
+
+	private static Class<?> load(Path classFile, final String className) throws IOException, ClassNotFoundException {
+		final byte[] bytes = Files.readAllBytes(classFile);
+		ClassLoader loader = new ClassLoader(BytecodeInstrumenterTest.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String name) throws ClassNotFoundException {
+				return name.equals(className) ? defineClass(name, bytes, 0, bytes.length) : super.findClass(name);
+			}
+		};
+		loader.setClassAssertionStatus(className, true);
+		return loader.loadClass(className);
+	}
+
+	private static Object invoke(Class<?> type, String name, int x) throws Exception {
+		Method method = type.getDeclaredMethod(name, int.class);
+		method.setAccessible(true);
+		return method.invoke(null, x);
+	}
+}
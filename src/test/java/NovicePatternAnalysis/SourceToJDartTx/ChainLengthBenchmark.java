@@ -0,0 +1,56 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+
+/**
+ * Measures how BranchCounterProcessor.process scales with the length of an if chain.
+ * Run as a Java application; time per branch should stay roughly flat as chains grow.
+ */
+public class ChainLengthBenchmark {
+
+	private static final int[] CHAIN_LENGTHS = { 25, 50, 100, 200, 400, 800, 1600 };
+	private static final int REPETITIONS = 20;
+
+	public static void main(String[] args) {
+		for (int i = 0; i < 3; i++) {
+			run(CHAIN_LENGTHS[CHAIN_LENGTHS.length - 1], false);
+		}
+		for (int length : CHAIN_LENGTHS) {
+			run(length, true);
+		}
+	}
+
+	private static void run(int length, boolean report) {
+		CtClass<?> type = Launcher.parseClass(chain(length));
+		CtMethod<?> method = type.getMethodsByName("f").get(0);
+		long elapsed = 0;
+		for (int i = 0; i < REPETITIONS; i++) {
+			CtBlock<?> body = method.getBody().clone();
+			method.setBody(body);
+			BranchCounterProcessor processor = new BranchCounterProcessor();
+			long start = System.nanoTime();
+			processor.process(body);
+			elapsed += System.nanoTime() - start;
+		}
+
+		if (report) {
+			double micros = elapsed / 1000.0 / REPETITIONS;
+			System.out.println(String.format("%5d branches: %10.1f us/chain %8.3f us/branch", length, micros,
+					micros / length));
+		}
+	}
+
+	/**
+	 * @return source for a class whose method f contains one chain of the given length
+	 */
+	static String chain(int length) {
+		StringBuilder sb = new StringBuilder("class Chain {\n int f(int x) {\n  int y = 0;\n");
+		for (int i = 0; i < length; i++) {
+			sb.append("  if (x == ").append(i).append(") {\n   y = ").append(i).append(";\n  }\n");
+		}
+		return sb.append("  return y;\n }\n}\n").toString();
+	}
+}
@@ -0,0 +1,111 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtClass;
+
+/**
+ * Unit tests for ConditionInputs, through BranchCounterProcessor.
+ */
+public class ConditionInputsTest {
+
+	private static final String CHAINS = "class A {\n"
+			+ "	int count;\n"
+			+ "	int direct(int x, int[] values) {\n"
+			+ "		int y = values.length;\n"
+			+ "		if (x < 0) { y = 1; }\n"
+			+ "		if (x > 0) { y = 2; }\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "	int looping(int x, int n, String unused) {\n"
+			+ "		int y = 0;\n"
+			+ "		for (int i = 0; i < n; i++) { y += x; }\n"
+			+ "		if (y < 0) { y = 1; }\n"
+			+ "		if (y > 0) { y = 2; }\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "	int exiting(int a, int b, String s) {\n"
+			+ "		if (s == null) { return 0; }\n"
+			+ "		if (a < 0) { b = 1; }\n"
+			+ "		if (a > 0) { b = 2; }\n"
+			+ "		return b;\n"
+			+ "	}\n"
+			+ "	int field(int x, int y) {\n"
+			+ "		if (count < x) { y = 1; }\n"
+			+ "		if (count > 0) { y = 2; }\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "	int filled(int[] a, int v) {\n"
+			+ "		int[] c = new int[2];\n"
+			+ "		java.util.Arrays.fill(c, v);\n"
+			+ "		if (c[0] < 0) { v = 1; }\n"
+			+ "		if (c[0] > 0) { v = 2; }\n"
+			+ "		return v + a.length;\n"
+			+ "	}\n"
+			+ "	int aliased(int[] a, int x, int unused) {\n"
+			+ "		int[] b = a;\n"
+			+ "		b[0] = x;\n"
+			+ "		if (a[0] < 0) { x = 1; }\n"
+			+ "		if (a[0] > 10) { x = 2; }\n"
+			+ "		return x;\n"
+			+ "	}\n"
+			+ "	int reassigned(int[][] grid, int x, int unused) {\n"
+			+ "		int[] row = null;\n"
+			+ "		row = grid[0];\n"
+			+ "		row[0] = x;\n"
+			+ "		if (grid[0][0] < 0) { x = 1; }\n"
+			+ "		if (grid[0][0] > 10) { x = 2; }\n"
+			+ "		return x;\n"
+			+ "	}\n"
+			+ "	int calling(int x, int y) {\n"
+			+ "		int z = helper(x);\n"
+			+ "		if (z < 0) { y = 1; }\n"
+			+ "		if (z > 0) { y = 2; }\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "	int helper(int x) {\n"
+			+ "		return x + count;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	@Test
+	public void keepsOnlyInputsFlowingIntoConditions() {
+		assertEquals(Arrays.asList("p0"), inputs("direct"));
+		assertEquals(Arrays.asList("p0", "p1"), inputs("looping"));
+		assertEquals(Arrays.asList("p0", "p2"), inputs("exiting"));
+		assertEquals(Arrays.asList("p0", "this.count"), inputs("field"));
+		assertEquals(Arrays.asList("p1"), inputs("filled"));
+		assertEquals(Arrays.asList("p0", "p1"), inputs("aliased"));
+		assertEquals(Arrays.asList("p0", "p1"), inputs("reassigned"));
+	}
+
+	@Test
+	public void keepsEveryInputWhenConditionsDependOnACall() {
+		assertEquals(Collections.<String>emptyList(), inputs("calling"));
+	}
+
+	@Test
+	public void writesInputsWithTheChain() {
+		CtClass<?> type = Launcher.parseClass(CHAINS);
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		processor.process(type.getMethodsByName("exiting").get(0).getBody());
+		ChainInfo chain = processor.getChains().get(0);
+		assertEquals(chain.getInputs(), ChainInfo.fromLine(chain.toLine()).getInputs());
+		assertEquals(Arrays.asList("p0", "p2"), ChainInfo.fromLine(chain.toLine()).getInputs());
+	}
+
+	private static List<String> inputs(String method) {
+		CtClass<?> type = Launcher.parseClass(CHAINS);
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		processor.process(type.getMethodsByName(method).get(0).getBody());
+		assertEquals(1, processor.getChains().size());
+		return processor.getChains().get(0).getInputs();
+	}
+}
@@ -0,0 +1,63 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.support.compiler.VirtualFile;
+
+/**
+ * Unit tests for CorpusGenerator.
+ */
+public class CorpusGeneratorTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void generatesTheExpectedNumberOfChains() throws IOException {
+		for (String[] args : Arrays.asList(new String[] { "-m", "3" },
+				new String[] { "-m", "2", "-c", "3", "-l", "4", "-d", "3", "-n", "2", "-s", "5", "--seed", "7" },
+				new String[] { "-c", "0" })) {
+			CorpusGenerator generator = CorpusGenerator.parse(args);
+			BranchCounterProcessor processor = new BranchCounterProcessor();
+			Launcher l = new Launcher();
+			l.addInputResource(new VirtualFile(generator.source("Gen"), "Gen.java"));
+			l.addProcessor(processor);
+			l.buildModel();
+			l.process();
+			assertEquals(Arrays.toString(args), generator.expectedChains(), processor.getChainsFound());
+		}
+	}
+
+	@Test
+	public void writesCompilableFilesAndExpectedCounts() throws IOException {
+		Path dir = tmp.getRoot().toPath();
+		CorpusGenerator generator = CorpusGenerator.parse(new String[] { "-f", "2", "-d", "2", "-n", "1" });
+		Map<Path, Integer> expected = generator.generate(dir);
+
+		assertEquals(2, expected.size());
+		assertEquals(Arrays.asList("Gen0.java\t40", "Gen1.java\t40"),
+				Files.readAllLines(dir.resolve(CorpusGenerator.EXPECTED), StandardCharsets.UTF_8));
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		for (Path file : expected.keySet()) {
+			assertEquals(0, compiler.run(null, null, null, "-d", tmp.newFolder().getPath(), file.toString()));
+		}
+	}
+}
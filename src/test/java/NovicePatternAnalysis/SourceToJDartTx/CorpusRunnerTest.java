@@ -0,0 +1,121 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for CorpusRunner.
+ */
+public class CorpusRunnerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void collectsEachSubdirectoryAsASubmission() throws IOException {
+		File root = tmp.newFolder("course");
+		touch(root.toPath().resolve("alice/Main.java"));
+		touch(root.toPath().resolve("bob/src/Main.java"));
+		touch(root.toPath().resolve("bob/src/Helper.java"));
+		touch(root.toPath().resolve("bob/notes.txt"));
+		touch(root.toPath().resolve("empty/notes.txt"));
+		Path loose = touch(root.toPath().resolve("Loose.java"));
+
+		Map<Path, Path> inputs = CorpusRunner.collectInputs(Arrays.asList(root.toString()));
+
+		assertEquals(3, inputs.size());
+		assertEquals(Paths.get("alice"), inputs.get(root.toPath().resolve("alice")));
+		assertEquals(Paths.get("bob"), inputs.get(root.toPath().resolve("bob")));
+		assertEquals(Paths.get("Loose.java"), inputs.get(loose));
+	}
+
+	@Test
+	public void rejectsInputsWrittenToTheSamePath() throws IOException {
+		Path a = touch(tmp.getRoot().toPath().resolve("one/A.java"));
+		touch(tmp.getRoot().toPath().resolve("two/A.java"));
+
+		assertEquals(1, CorpusRunner.collectInputs(Arrays.asList(a.toString(), a.toString())).size());
+		try {
+			CorpusRunner.collectInputs(Arrays.asList(tmp.getRoot().toPath().resolve("one").toString(),
+					tmp.getRoot().toPath().resolve("two").toString()));
+			fail("both inputs write A.java");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("A.java"));
+		}
+	}
+
+	@Test
+	public void transformsASubmissionDirectoryInOneModel() throws IOException {
+		Path bob = tmp.getRoot().toPath().resolve("course/bob");
+		Files.createDirectories(bob.resolve("src/edu"));
+		Files.write(bob.resolve("src/edu/Main.java"), Arrays.asList(
+				"package edu;",
+				"public class Main {",
+				"	int f(int x) {",
+				"		int y = 0;",
+				"		if (Helper.LIMIT < x) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		Files.write(bob.resolve("src/edu/Helper.java"), Arrays.asList(
+				"package edu;",
+				"class Helper {",
+				"	static final int LIMIT = 3;",
+				"}"), StandardCharsets.UTF_8);
+		Path out = tmp.getRoot().toPath().resolve("out");
+
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(TransformOptions.parse(
+				new String[] { "--compile", bob.toString() }))) {
+			result = transformer.transform(bob, out.resolve("bob"));
+		}
+
+		assertEquals(result.toString(), TransformResult.Status.TRANSFORMED, result.getStatus());
+		assertEquals(1, result.getChains().size());
+		assertTrue(Files.exists(out.resolve("bob/src/edu/Main.java")));
+		assertTrue(Files.exists(out.resolve("bob/src/edu/Helper.java")));
+		assertTrue(result.getClasses().containsKey("edu.Helper"));
+	}
+
+	@Test
+	public void expandsFileLists() throws IOException {
+		Path a = touch(tmp.getRoot().toPath().resolve("A.java"));
+		Path list = tmp.getRoot().toPath().resolve("inputs.txt");
+		Files.write(list, Arrays.asList(a.toString(), ""), StandardCharsets.UTF_8);
+
+		Map<Path, Path> inputs = CorpusRunner.collectInputs(Arrays.asList("@" + list));
+
+		assertEquals(1, inputs.size());
+		assertEquals(Paths.get("A.java"), inputs.get(a));
+	}
+
+	@Test
+	public void adaptsConcurrencyToHeapBudget() {
+		assertEquals(2, CorpusRunner.nextConcurrency(4, 150, 100, 4));
+		assertEquals(1, CorpusRunner.nextConcurrency(1, 150, 100, 4));
+		assertEquals(4, CorpusRunner.nextConcurrency(4, 80, 100, 4));
+		assertEquals(3, CorpusRunner.nextConcurrency(2, 10, 100, 4));
+		assertEquals(4, CorpusRunner.nextConcurrency(4, 10, 100, 4));
+	}
+
+	private static Path touch(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		return Files.write(file, new byte[0]);
+	}
+}
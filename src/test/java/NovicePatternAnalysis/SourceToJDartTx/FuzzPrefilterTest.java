@@ -0,0 +1,160 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for FuzzPrefilter.
+ */
+public class FuzzPrefilterTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void marksChainsThatInputsOverlap() throws Exception {
+		TransformResult result = transform(
+				"public class Grades {",
+				"	static int overlapping(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	static char boundary(double score) {",
+				"		char grade = 'F';",
+				"		if (score >= 90) { grade = 'A'; }",
+				"		if (score >= 80 && score < 90) { grade = 'B'; }",
+				"		if (score >= 79.5) { grade = 'b'; }",
+				"		return grade;",
+				"	}",
+				"	static int exclusive(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		if (x == 0) { y = 3; }",
+				"		return y;",
+				"	}",
+				"	int text(String s, int[] values) {",
+				"		System.out.println(s);",
+				"		int y = 0;",
+				"		if (s.equals(\"yes\")) { y = 1; }",
+				"		if (s.startsWith(\"y\")) { y = 2; }",
+				"		return y + values.length;",
+				"	}",
+				"}");
+		assertEquals(4, result.getChains().size());
+
+		TransformResult filtered = new FuzzPrefilter(500, 2).filter(result);
+		Map<String, Verdict> verdicts = verdicts(filtered);
+		assertEquals(Verdict.OVERLAPPING, verdicts.get("overlapping(int)"));
+		assertEquals(Verdict.OVERLAPPING, verdicts.get("boundary(double)"));
+		assertEquals(Verdict.UNKNOWN, verdicts.get("exclusive(int)"));
+		assertEquals(Verdict.OVERLAPPING, verdicts.get("text(java.lang.String,int[])"));
+		assertEquals(result.getClasses(), filtered.getClasses());
+		assertTrue(filtered.getMetrics().getWallNanos(TransformMetrics.Phase.FUZZ) > 0);
+	}
+
+	@Test
+	public void runsTheSlicesOfSlicedChains() throws Exception {
+		TransformResult result = transform(new String[] { "--slice" },
+				"public class Sliced {",
+				"	int overlapping(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	static int exclusive(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}");
+		for (ChainInfo chain : result.getChains()) {
+			assertTrue(chain.toString(), chain.isSliced());
+		}
+
+		Map<String, Verdict> verdicts = verdicts(new FuzzPrefilter(100, 1).filter(result));
+		assertEquals(Verdict.OVERLAPPING, verdicts.get("overlapping(int)"));
+		assertEquals(Verdict.UNKNOWN, verdicts.get("exclusive(int)"));
+	}
+
+	@Test
+	public void stopsMethodsThatDontReturn() throws Exception {
+		TransformResult result = transform(
+				"public class Spin {",
+				"	static int spin(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x < 0) { y = 2; }",
+				"		while (y >= 0 || x < y) { y = (y + 1) % 3; }",
+				"		return y;",
+				"	}",
+				"	static int after(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}");
+		long start = System.nanoTime();
+		TransformResult filtered = new FuzzPrefilter(100, 1, 200).filter(result);
+		assertTrue((System.nanoTime() - start) / 1000000 < 5000);
+		Map<String, Verdict> verdicts = verdicts(filtered);
+		assertEquals(Verdict.UNKNOWN, verdicts.get("spin(int)"));
+		// Run in a JVM of its own once the spinning method's JVM has ended
+		assertEquals(Verdict.OVERLAPPING, verdicts.get("after(int)"));
+	}
+
+	@Test
+	public void skipsSubmissionsThatExit() throws Exception {
+		TransformResult result = transform(
+				"public class Quit {",
+				"	static void quit(int x) {",
+				"		if (x > 0) { System.exit(1); }",
+				"		if (x > 5) { System.exit(2); }",
+				"	}",
+				"}");
+		assertSame(result, new FuzzPrefilter(100, 1).filter(result));
+	}
+
+	private TransformResult transform(String... lines) throws Exception {
+		return transform(new String[0], lines);
+	}
+
+	private TransformResult transform(String[] options, String... lines) throws Exception {
+		String name = lines[0].split(" ")[2];
+		Path input = tmp.getRoot().toPath().resolve(name + ".java");
+		Files.write(input, Arrays.asList(lines), StandardCharsets.UTF_8);
+		List<String> args = new ArrayList<>(Arrays.asList(options));
+		args.addAll(Arrays.asList("--fuzz", "1", input.toString()));
+		try (SubmissionTransformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(args.toArray(new String[args.size()])))) {
+			return transformer.transform(input, tmp.getRoot().toPath().resolve("out/" + name + ".java"));
+		}
+	}
+
+	private static Map<String, Verdict> verdicts(TransformResult result) {
+		Map<String, Verdict> verdicts = new HashMap<>();
+		for (ChainInfo chain : result.getChains()) {
+			verdicts.put(chain.getMethod(), chain.getVerdict());
+		}
+		return verdicts;
+	}
+}
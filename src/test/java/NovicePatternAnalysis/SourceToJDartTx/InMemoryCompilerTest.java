@@ -0,0 +1,118 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for InMemoryCompiler.
+ */
+public class InMemoryCompilerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void compilesTransformedSubmissionsForTheAnalysis() throws Exception {
+		Path input = tmp.getRoot().toPath().resolve("Chain.java");
+		Files.write(input, Arrays.asList(
+				"package edu.school;",
+				"public class Chain {",
+				"	static int f(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(new String[] { "--compile", input.toString() }))) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Chain.java"));
+		}
+		assertEquals(TransformResult.Status.TRANSFORMED, result.getStatus());
+		assertEquals(Collections.singleton("edu.school.Chain"), result.getClasses().keySet());
+		assertTrue(result.getMetrics().getWallNanos(TransformMetrics.Phase.COMPILE) > 0);
+
+		ClassLoader loader = InMemoryCompiler.loader(result.getClasses(), getClass().getClassLoader());
+		loader.setDefaultAssertionStatus(true);
+		Method f = loader.loadClass("edu.school.Chain").getDeclaredMethod("f", int.class);
+		f.setAccessible(true);
+		assertEquals(1, f.invoke(null, 3));
+		try {
+			f.invoke(null, 6);
+			fail("overlapping branches should fail their assertion");
+		}
+		catch (InvocationTargetException e) {
+			assertEquals(AssertionError.class, e.getCause().getClass());
+		}
+		assertTrue(loader.getResourceAsStream("edu/school/Chain.class") != null);
+	}
+
+	@Test
+	public void reportsCompileErrors() throws Exception {
+		Map<String, byte[]> classes = new InMemoryCompiler().compile(Collections.singletonMap(Paths.get("A.java"),
+				"class A { class B {} }"));
+		assertEquals(2, classes.size());
+		assertTrue(classes.containsKey("A$B"));
+
+		try {
+			new InMemoryCompiler().compile(Collections.singletonMap(Paths.get("p/C.java"),
+					"package p;\nclass C {\n int x = y;\n}"));
+			fail("C shouldn't compile");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("p/C.java:3"));
+			assertFalse(e.getMessage().contains("warning"));
+		}
+	}
+
+	@Test
+	public void compilesASubmissionAgainstTheFilesNextToIt() throws Exception {
+		Path dir = tmp.newFolder("edu").toPath();
+		Path input = dir.resolve("Chain.java");
+		Files.write(input, Arrays.asList(
+				"package edu;",
+				"public class Chain {",
+				"	static int f(int x) {",
+				"		int y = 0;",
+				"		if (x > Limits.LOW) { y = 1; }",
+				"		if (x > 5) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		Files.write(dir.resolve("Limits.java"), Arrays.asList(
+				"package edu;",
+				"class Limits {",
+				"	static final int LOW = 0;",
+				"}"), StandardCharsets.UTF_8);
+		Path broken = tmp.getRoot().toPath().resolve("Broken.java");
+		Files.write(broken, Arrays.asList("class Broken {", "	int x = y;", "}"), StandardCharsets.UTF_8);
+
+		try (SubmissionTransformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(new String[] { "--compile", input.toString() }))) {
+			TransformResult result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/edu/Chain.java"));
+			assertEquals(result.toString(), TransformResult.Status.TRANSFORMED, result.getStatus());
+			assertEquals(Collections.singleton("edu.Chain"), result.getClasses().keySet());
+
+			result = transformer.transform(broken, tmp.getRoot().toPath().resolve("out/Broken.java"));
+			assertEquals(TransformResult.Status.SKIPPED, result.getStatus());
+			assertTrue(result.getClasses().isEmpty());
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Unit tests for IntervalChecker, through BranchCounterProcessor.
+ */
+public class IntervalCheckerTest {
+
+	@Test
+	public void decidesExclusiveComparisons() {
+		assertEquals(Verdict.EXCLUSIVE, verdict("int x", "x < 0", "x > 0", "0 == x"));
+		assertEquals(Verdict.EXCLUSIVE, verdict("int x", "x <= 10 && x != 5", "x > 10 || x == 5"));
+		assertEquals(Verdict.EXCLUSIVE, verdict("char c", "c < 'a'", "c >= 'a'"));
+		assertEquals(Verdict.EXCLUSIVE, verdict("int x", "x % 2 == 0", "x % 2 == 1 || x % 2 == -1"));
+	}
+
+	@Test
+	public void decidesOverlappingComparisonsOnParameters() {
+		assertEquals(Verdict.OVERLAPPING, verdict("int x", "x >= 0", "x <= 0"));
+		assertEquals(Verdict.OVERLAPPING, verdict("int x", "x % 4 == 0", "x % 4 >= 0"));
+		assertEquals(Verdict.OVERLAPPING, verdict("byte b", "b > -128", "!(b < 127)"));
+	}
+
+	@Test
+	public void leavesOtherChainsUnknown() {
+		assertEquals(Verdict.UNKNOWN, verdict("int x, int z", "x < z", "x > z"));
+		assertEquals(Verdict.UNKNOWN, verdict("double d", "d < 0", "d > 0"));
+		assertEquals(Verdict.UNKNOWN, verdict("Integer x", "x < 0", "x > 0"));
+		assertEquals(Verdict.UNKNOWN, verdict("int x", "x < 0", "x * x > 4"));
+		// Fields of different objects are different variables
+		assertEquals(Verdict.UNKNOWN, verdict("java.awt.Point a, java.awt.Point b", "a.x < 0", "b.x > 0"));
+		assertEquals(Verdict.UNKNOWN, verdict("int[] a, int[] b", "a.length < 1", "b.length > 0"));
+	}
+
+	@Test
+	public void leavesOverlapsItCantReachUnknown() {
+		BranchCounterProcessor processor = checking();
+		CtMethod<?> f = BranchCounterProcessorTest.process("class A {\n"
+				+ "	int f(int x) {\n"
+				+ "		if (x == 3) {\n"
+				+ "			return 0;\n"
+				+ "		}\n"
+				+ "		if (x > 0) {\n"
+				+ "			x--;\n"
+				+ "		}\n"
+				+ "		if (x >= 0) {\n"
+				+ "			return 1;\n"
+				+ "		}\n"
+				+ "		return x;\n"
+				+ "	}\n"
+				+ "}\n", processor);
+
+		assertEquals(Verdict.UNKNOWN, processor.getChains().get(0).getVerdict());
+		assertEquals(2, f.getElements(new TypeFilter<>(CtAssert.class)).size());
+	}
+
+	@Test
+	public void leavesDecidedChainsUninstrumented() {
+		BranchCounterProcessor processor = checking();
+		CtMethod<?> f = BranchCounterProcessorTest.process(method("int x", "x < 0", "x > 0"), processor);
+
+		assertTrue(processor.getChains().get(0).isDecided());
+		assertTrue(processor.getChains().get(0).getVariables().isEmpty());
+		assertTrue(f.getElements(new TypeFilter<>(CtAssert.class)).isEmpty());
+		assertEquals(method("int x", "x < 0", "x > 0"), f.getDeclaringType().toString().replace("    ", "\t"));
+	}
+
+	private static Verdict verdict(String parameters, String... conditions) {
+		BranchCounterProcessor processor = checking();
+		BranchCounterProcessorTest.process(method(parameters, conditions), processor);
+		assertEquals(1, processor.getChains().size());
+		return processor.getChains().get(0).getVerdict();
+	}
+
+	private static String method(String parameters, String... conditions) {
+		StringBuilder source = new StringBuilder("class A {\n\tint f(" + parameters + ") {\n\t\tint y = 0;\n");
+		for (int i = 0; i < conditions.length; i++) {
+			source.append("\t\tif (" + conditions[i] + ") {\n\t\t\ty = " + i + ";\n\t\t}\n");
+		}
+		return source.append("\t\treturn y;\n\t}\n}").toString();
+	}
+
+	private static BranchCounterProcessor checking() {
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		processor.setOracle(new IntervalChecker());
+		return processor;
+	}
+}
@@ -0,0 +1,368 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for JDartRunner and JDartJob, with a stand-in for JDart that runs each job's driver once
+ *  and reports the run as JDart reports the paths it explored.
+ */
+public class JDartRunnerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void runsAJobForEachMethod() throws Exception {
+		Path input = tmp.getRoot().toPath().resolve("Jobs.java");
+		Files.write(input, Arrays.asList(
+				"public class Jobs {",
+				"	static int overlapping(int x) {",
+				"		int y = 0;",
+				"		if (x >= 0) { y = 1; }",
+				"		if (x <= 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	static int exclusive(int x, int[] values) {",
+				"		int y = values.length;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	private int crash(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	static int spin(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}",
+				"class Holder {",
+				"	Holder(int x) {",
+				"	}",
+				"	int held(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(TransformOptions.parse(
+				new String[] { "-e", "bitmask", "--jdart", "RunJPF.jar", input.toString() }))) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Jobs.java"));
+		}
+		List<JDartJob> jobs = JDartJob.of(result, BranchCounterProcessor.Encoding.BITMASK);
+		assertEquals(5, jobs.size());
+
+		Path work = tmp.getRoot().toPath().resolve("jdart");
+		List<JDartJob.Outcome> outcomes;
+		try (JDartRunner runner = new JDartRunner(fakeJDart(), work, 2, 5000, 32, 1, 0)) {
+			runner.submit(jobs);
+			outcomes = runner.finish();
+		}
+		Map<String, JDartJob.Outcome> byMethod = new HashMap<>();
+		for (JDartJob.Outcome outcome : outcomes) {
+			byMethod.put(outcome.getJob().getMethod(), outcome);
+		}
+
+		JDartJob.Outcome overlapping = byMethod.get("overlapping(int)");
+		assertEquals(JDartJob.Status.DONE, overlapping.getStatus());
+		assertEquals(Collections.singletonList(3L), overlapping.getMasks());
+		assertEquals(Verdict.OVERLAPPING, overlapping.getChains().get(0).getVerdict());
+		Path config = directory(work, outcomes, overlapping).resolve(JDartJob.CONFIG);
+		String written = new String(Files.readAllBytes(config), StandardCharsets.UTF_8);
+		assertTrue(written, written.contains("concolic.method.chains = Jobs.overlapping(p0:int)"));
+		assertTrue(written, written.contains("target = JDartDriver"));
+
+		JDartJob.Outcome exclusive = byMethod.get("exclusive(int,int[])");
+		assertEquals(Verdict.EXCLUSIVE, exclusive.getChains().get(0).getVerdict());
+		config = directory(work, outcomes, exclusive).resolve(JDartJob.CONFIG);
+		written = new String(Files.readAllBytes(config), StandardCharsets.UTF_8);
+		assertTrue(written, written.contains("jdart.configs.chains.symbolic.include = p0\n"));
+		assertTrue(written, written.contains("jdart.configs.chains.symbolic.exclude = p1\n"));
+
+		JDartJob.Outcome crash = byMethod.get("crash(int)");
+		assertEquals(JDartJob.Status.DONE, crash.getStatus());
+		assertEquals(2, crash.getAttempts());
+		String retried = new String(Files.readAllBytes(directory(work, outcomes, crash).resolve("output-2.txt")),
+				StandardCharsets.UTF_8);
+		assertTrue(retried, retried.contains("-Xmx64m"));
+
+		assertEquals(JDartJob.Status.TIMEOUT, byMethod.get("spin(int)").getStatus());
+		assertEquals(Verdict.UNKNOWN, byMethod.get("spin(int)").getChains().get(0).getVerdict());
+		JDartJob.Outcome held = byMethod.get("held(int)");
+		assertEquals(JDartJob.Status.SKIPPED, held.getStatus());
+		assertNotNull(held.getError());
+
+		assertEquals(5, Files.readAllLines(work.resolve(JDartRunner.RESULTS), StandardCharsets.UTF_8).size());
+	}
+
+	@Test
+	public void leavesChainsAnEarlyExitCanBypassUndecided() throws Exception {
+		Path input = tmp.getRoot().toPath().resolve("Early.java");
+		Files.write(input, Arrays.asList(
+				"public class Early {",
+				"	static int early(int x) {",
+				"		int y = 0;",
+				"		if (x > 0) { y = 1; }",
+				"		if (x > 5) { return 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(TransformOptions.parse(
+				new String[] { "-e", "bitmask", "--jdart", "RunJPF.jar", input.toString() }))) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Early.java"));
+		}
+		assertTrue(result.getChains().get(0).hasExits());
+		List<JDartJob> jobs = JDartJob.of(result, BranchCounterProcessor.Encoding.BITMASK);
+		assertEquals(1, jobs.size());
+
+		List<JDartJob.Outcome> outcomes;
+		try (JDartRunner runner = new JDartRunner(fakeJDart(), tmp.getRoot().toPath().resolve("jdart"), 1, 5000, 32,
+				1, 0)) {
+			runner.submit(jobs);
+			outcomes = runner.finish();
+		}
+		// the driver's run takes no branch, but x = 6 would return before the check that both were taken
+		assertEquals(0, outcomes.get(0).getErrorPaths());
+		assertEquals(Verdict.UNKNOWN, outcomes.get(0).getChains().get(0).getVerdict());
+	}
+
+	@Test
+	public void runsAJobForEachSlice() throws Exception {
+		Path input = slices(tmp.getRoot().toPath().resolve("Slices.java"), "Slices");
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(TransformOptions.parse(
+				new String[] { "--slice", "--jdart", "RunJPF.jar", input.toString() }))) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Slices.java"));
+		}
+		List<JDartJob> jobs = JDartJob.of(result, BranchCounterProcessor.Encoding.FLAGS);
+		assertEquals(4, jobs.size());
+
+		Path work = tmp.getRoot().toPath().resolve("jdart");
+		List<JDartJob.Outcome> outcomes;
+		try (JDartRunner runner = new JDartRunner(fakeJDart(), work, 2, 5000, 32, 1, 0)) {
+			runner.submit(jobs);
+			outcomes = runner.finish();
+		}
+		Map<String, JDartJob.Outcome> bySlice = new HashMap<>();
+		for (JDartJob.Outcome outcome : outcomes) {
+			assertEquals(JDartJob.Status.DONE, outcome.getStatus());
+			bySlice.put(outcome.getJob().getSlice(), outcome);
+		}
+		assertEquals(Arrays.asList("Slices#overlapping(int)@4 overlap_4_5"), bySlice.get("overlap_4_5").getFailures());
+		assertEquals(Verdict.OVERLAPPING, bySlice.get("overlap_4_5").getChains().get(0).getVerdict());
+		// One exclusive pair doesn't decide the chain
+		assertEquals(Verdict.UNKNOWN, bySlice.get("overlap_10_11").getChains().get(0).getVerdict());
+		String written = new String(Files.readAllBytes(directory(work, outcomes, bySlice.get("overlap_4_5"))
+				.resolve(JDartJob.CONFIG)), StandardCharsets.UTF_8);
+		assertTrue(written, written.contains("concolic.method.chains = Slices.overlap_4_5(p0:int)"));
+
+		List<ChainInfo> decided = JDartJob.decided(outcomes).get(input.toString());
+		assertEquals(2, decided.size());
+		for (ChainInfo chain : decided) {
+			assertEquals(chain.getLines().get(0) == 4 ? Verdict.OVERLAPPING : Verdict.EXCLUSIVE, chain.getVerdict());
+		}
+	}
+
+	@Test
+	public void writesVerdictsBackAtTheEndOfTheRun() throws Exception {
+		Path corpus = tmp.newFolder("corpus").toPath();
+		slices(corpus.resolve("A.java"), "A");
+		// The same methods, whose chains are duplicates of those of A
+		slices(corpus.resolve("B.java"), "B");
+		Path jar = fakeJDartJar();
+		Path manifest = tmp.getRoot().toPath().resolve("chains.jsonl");
+		Path memo = tmp.getRoot().toPath().resolve("memo.txt");
+		Path report = tmp.getRoot().toPath().resolve("report.csv");
+		new CorpusRunner(TransformOptions.parse(new String[] { "-o", tmp.newFolder("out").toString(), "--slice",
+				"--dedup", "--jdart", jar.toString(), "--manifest", manifest.toString(), "-m", memo.toString(),
+				"--report", report.toString(), corpus.toString() })).run();
+
+		// The last record of each chain holds
+		Map<String, String> verdicts = new HashMap<>();
+		for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			String file = Paths.get(field(line, "file")).getFileName().toString();
+			verdicts.put(file + line.substring(line.indexOf("\"lines\": "), line.indexOf(']')),
+					field(line, "verdict"));
+		}
+		assertEquals("OVERLAPPING", verdicts.get("A.java\"lines\": [4, 5"));
+		assertEquals("EXCLUSIVE", verdicts.get("A.java\"lines\": [10, 11, 12"));
+		assertEquals("OVERLAPPING", verdicts.get("B.java\"lines\": [4, 5"));
+		assertEquals("EXCLUSIVE", verdicts.get("B.java\"lines\": [10, 11, 12"));
+
+		try (VerdictMemo reopened = new VerdictMemo(memo)) {
+			assertEquals(2, reopened.size());
+		}
+		List<String> rows = Files.readAllLines(report, StandardCharsets.UTF_8);
+		List<String> header = Arrays.asList(rows.get(0).split(","));
+		assertEquals("4", rows.get(rows.size() - 1).split(",")[header.indexOf("chains_decided")]);
+	}
+
+	@Test
+	public void decidesDuplicatesByTheSubmissionOfTheirRepresentative() throws Exception {
+		Path corpus = tmp.newFolder("corpus").toPath();
+		// a and b have chains with the same id, Main#f(int)@4, of different shapes, duplicated by c and d
+		chain(corpus.resolve("a"), "Main", "x >= 0", "x <= 0");
+		chain(corpus.resolve("b"), "Main", "x < 0", "x > 0");
+		chain(corpus.resolve("c"), "C", "x >= 0", "x <= 0");
+		chain(corpus.resolve("d"), "D", "x < 0", "x > 0");
+		Path manifest = tmp.getRoot().toPath().resolve("chains.jsonl");
+		new CorpusRunner(TransformOptions.parse(new String[] { "-o", tmp.newFolder("out").toString(), "--dedup",
+				"-e", "bitmask", "--jdart", fakeJDartJar().toString(), "--manifest", manifest.toString(),
+				corpus.toString() })).run();
+
+		Map<String, String> verdicts = new HashMap<>();
+		for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			verdicts.put(Paths.get(field(line, "file")).getFileName().toString(), field(line, "verdict"));
+		}
+		assertEquals("OVERLAPPING", verdicts.get("a"));
+		assertEquals("EXCLUSIVE", verdicts.get("b"));
+		assertEquals("OVERLAPPING", verdicts.get("c"));
+		assertEquals("EXCLUSIVE", verdicts.get("d"));
+	}
+
+	/**
+	 * Writes a submission, a directory with a class of a method f with a chain of two branches at lines 4 and 5.
+	 */
+	private static void chain(Path dir, String name, String first, String second) throws IOException {
+		Files.createDirectories(dir);
+		Files.write(dir.resolve(name + ".java"), Arrays.asList(
+				"public class " + name + " {",
+				"	static int f(int x) {",
+				"		int y = 0;",
+				"		if (" + first + ") { y = 1; }",
+				"		if (" + second + ") { y = 2; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a class with a chain that overlaps at 0, and one that never does, both of which --slice slices.
+	 */
+	private static Path slices(Path file, String name) throws IOException {
+		Files.write(file, Arrays.asList(
+				"public class " + name + " {",
+				"	static int overlapping(int x) {",
+				"		int y = 0;",
+				"		if (x >= 0) { y = 1; }",
+				"		if (x <= 0) { y = 2; }",
+				"		return y;",
+				"	}",
+				"	int exclusive(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		if (x == 0) { y = 3; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private static Manifest manifest(String mainClass) {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
+		return manifest;
+	}
+
+	/** @return the value of a string field of a line of JSON, which has no escapes */
+	private static String field(String line, String name) {
+		int start = line.indexOf("\"" + name + "\": \"") + name.length() + 5;
+		return line.substring(start, line.indexOf('"', start));
+	}
+
+	/** @return the directory the job of outcome ran in, jobs being numbered in the order they were submitted */
+	private static Path directory(Path work, List<JDartJob.Outcome> outcomes, JDartJob.Outcome outcome) {
+		return work.resolve(String.format("%05d", outcomes.indexOf(outcome)));
+	}
+
+	/**
+	 * @return a runnable jar of the stand-in for JDart, see fakeJDart()
+	 */
+	private Path fakeJDartJar() throws Exception {
+		Path jar = tmp.getRoot().toPath().resolve("fake.jar");
+		List<String> command = fakeJDart();
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest("FakeJDart"))) {
+			out.putNextEntry(new JarEntry("FakeJDart.class"));
+			out.write(Files.readAllBytes(Paths.get(command.get(2)).resolve("FakeJDart.class")));
+		}
+		return jar;
+	}
+
+	/**
+	 * @return the command that starts a stand-in for JDart: it runs the driver of the job configured once,
+	 *  reporting an AssertionError as an error path, crashes on its first run of a method named crash,
+	 *  and never ends for a method named spin
+	 */
+	private List<String> fakeJDart() throws Exception {
+		Path dir = tmp.newFolder("fake").toPath();
+		Path source = dir.resolve("FakeJDart.java");
+		Files.write(source, Arrays.asList(
+				"import java.io.*;",
+				"import java.net.*;",
+				"import java.util.*;",
+				"public class FakeJDart {",
+				"	public static void main(String[] args) throws Exception {",
+				"		System.out.println(java.lang.management.ManagementFactory.getRuntimeMXBean().getInputArguments());",
+				"		Properties config = new Properties();",
+				"		try (Reader in = new FileReader(args[0])) { config.load(in); }",
+				"		String method = config.getProperty(\"concolic.method.chains\");",
+				"		if (method.contains(\"spin\")) { Thread.sleep(60000); }",
+				"		if (method.contains(\"crash\") && new File(\"crashed\").createNewFile()) {",
+				"			System.out.println(\"java.lang.OutOfMemoryError: Java heap space\");",
+				"			System.exit(3);",
+				"		}",
+				"		URL classes = new File(config.getProperty(\"classpath\")).toURI().toURL();",
+				"		ClassLoader loader = new URLClassLoader(new URL[] { classes }, null);",
+				"		loader.setDefaultAssertionStatus(true);",
+				"		try {",
+				"			loader.loadClass(config.getProperty(\"target\")).getMethod(\"main\", String[].class)",
+				"					.invoke(null, (Object) new String[0]);",
+				"			System.out.println(\"# OK paths: 1\\n# ERROR paths: 0\\n# DONT_KNOW paths: 0\");",
+				"		}",
+				"		catch (java.lang.reflect.InvocationTargetException e) {",
+				"			System.out.println(\"# OK paths: 0\\n# ERROR paths: 1\\n# DONT_KNOW paths: 0\");",
+				"			System.out.println(e.getCause());",
+				"		}",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("tests need a JDK", compiler);
+		assertEquals(0, compiler.run(null, null, null, "-d", dir.toString(), source.toString()));
+		return Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+				dir.toString(), "FakeJDart");
+	}
+}
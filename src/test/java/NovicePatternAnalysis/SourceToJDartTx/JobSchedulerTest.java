@@ -0,0 +1,90 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtClass;
+
+/**
+ * Unit tests for JobScheduler, and the AnalysisCost estimates it orders jobs by.
+ */
+public class JobSchedulerTest {
+
+	@Test
+	public void estimatesLoopsAndLongChainsAsCostlier() {
+		CtClass<?> type = Launcher.parseClass("class A {\n"
+				+ "	int basic(int x) {\n"
+				+ "		int y = 0;\n"
+				+ "		if (x < 0) { y = 1; }\n"
+				+ "		if (x > 0) { y = 2; }\n"
+				+ "		return y;\n"
+				+ "	}\n"
+				+ "	int complex(int x) {\n"
+				+ "		int y = 0;\n"
+				+ "		if (x < 0 && x % 2 == 0) { y = 1; }\n"
+				+ "		if (!(x > 0)) { y = 2; }\n"
+				+ "		return y;\n"
+				+ "	}\n"
+				+ "	int looping(int x, int n) {\n"
+				+ "		int y = 0;\n"
+				+ "		for (int i = 0; i < n; i++) { y += x; }\n"
+				+ "		if (y < 0) { y = 1; }\n"
+				+ "		if (y > 0) { y = 2; }\n"
+				+ "		if (y == 0) { y = 3; }\n"
+				+ "		return y;\n"
+				+ "	}\n"
+				+ "}\n");
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		for (String name : new String[] { "basic", "complex", "looping" }) {
+			processor.process(type.getMethodsByName(name).get(0).getBody());
+		}
+
+		long basic = processor.getChains().get(0).getCost();
+		long complex = processor.getChains().get(1).getCost();
+		long looping = processor.getChains().get(2).getCost();
+		// 4 paths, times 1 + 2 operators, times 1 + 1 parameter
+		assertEquals(AnalysisCost.of(2, 2, 0, 1), basic);
+		assertEquals(4 * (1 + 6) * (1 + 1), complex);
+		assertEquals(8 * AnalysisCost.LOOP_FACTOR * (1 + 3) * (1 + 2), looping);
+		assertTrue(basic < complex && complex < looping);
+		ChainInfo chain = processor.getChains().get(2);
+		assertEquals(looping, ChainInfo.fromLine(chain.toLine()).getCost());
+	}
+
+	@Test
+	public void handsOutCheapestJobsFirst() {
+		JobScheduler<String> scheduler = new JobScheduler<>(0);
+		scheduler.add("long", 100);
+		scheduler.add("short", 1);
+		scheduler.add("medium", 10);
+		scheduler.add("short too", 1);
+		assertEquals("short", scheduler.next());
+		assertEquals("short too", scheduler.next());
+		assertEquals("medium", scheduler.next());
+		assertEquals("long", scheduler.next());
+		assertNull(scheduler.next());
+	}
+
+	@Test
+	public void fitsJobsBeforeTheDeadline() throws InterruptedException {
+		JobScheduler<String> scheduler = new JobScheduler<>(60000);
+		assertEquals(-1, scheduler.expectedMillis(1000000));
+		assertTrue("anything fits until a job has finished", scheduler.fits(1000000));
+
+		scheduler.finished(10, 1000);
+		scheduler.finished(30, 3000);
+		assertEquals(10000, scheduler.expectedMillis(100));
+		assertTrue(scheduler.fits(100));
+		assertFalse(scheduler.fits(1000));
+
+		assertEquals(Long.MAX_VALUE, new JobScheduler<String>(0).remainingMillis());
+		JobScheduler<String> expired = new JobScheduler<>(1);
+		Thread.sleep(10);
+		assertFalse(expired.fits(0));
+	}
+}
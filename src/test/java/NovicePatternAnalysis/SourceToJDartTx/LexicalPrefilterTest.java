@@ -0,0 +1,43 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for LexicalPrefilter.
+ */
+public class LexicalPrefilterTest {
+
+	@Test
+	public void findsSiblingIfStatements() {
+		String source = "class A { int f(int x) { if (x < 0) x = 1; if (x > 0) { x = 2; } return x; } }";
+		NavigableSet<Integer> candidates = LexicalPrefilter.candidateBlocks(source);
+		assertEquals(Arrays.asList(source.indexOf("{ if")), Arrays.asList(candidates.toArray()));
+	}
+
+	@Test
+	public void findsIfFollowingElseIfLadder() {
+		String source = "class A { void f(int x) { if (x > 0) { } else if (x < 0) { } if (x == 0) { } } }";
+		assertEquals(1, LexicalPrefilter.candidateBlocks(source).size());
+	}
+
+	@Test
+	public void rejectsExpertStyleAndNestedIfs() {
+		assertTrue(LexicalPrefilter.candidateBlocks(
+				"class A { void f(int x) { if (x > 0) { } else if (x < 0) { } } }").isEmpty());
+		assertTrue(LexicalPrefilter.candidateBlocks(
+				"class A { void f(int x) { if (x > 0) { if (x > 1) { } } } }").isEmpty());
+	}
+
+	@Test
+	public void ignoresCommentsAndLiterals() {
+		assertTrue(LexicalPrefilter.candidateBlocks(
+				"class A { void f() { // if if\n /* if if */ String s = \"if if {\"; char c = '{'; if (true) { } } }")
+				.isEmpty());
+	}
+}
@@ -0,0 +1,65 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for ManifestWriter.
+ */
+public class ManifestWriterTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void recordsWhereAssertionsWereInserted() throws IOException {
+		Path input = tmp.getRoot().toPath().resolve("Chain.java");
+		Files.write(input, Arrays.asList(
+				"public class Chain {",
+				"	int f(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		if (x == 0) { y = 3; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(new String[] { input.toString() }))) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Chain.java"));
+		}
+
+		Path bin = tmp.getRoot().toPath().resolve("manifest.bin");
+		Path json = tmp.getRoot().toPath().resolve("manifest.jsonl");
+		try (ManifestWriter binary = new ManifestWriter(bin); ManifestWriter text = new ManifestWriter(json)) {
+			binary.write(result);
+			text.write(result);
+		}
+
+		List<ManifestWriter.Entry> entries = ManifestWriter.read(bin);
+		assertEquals(1, entries.size());
+		assertEquals(input.toString(), entries.get(0).getFile());
+		ChainInfo chain = entries.get(0).getChain();
+		assertEquals(result.getChains().get(0).toLine(), chain.toLine());
+		assertEquals(Arrays.asList(4, 5, 6), chain.getLines());
+		assertEquals(2, chain.getAssertions());
+		assertEquals(7, chain.getAssertLine());
+
+		List<String> lines = Files.readAllLines(json, StandardCharsets.UTF_8);
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0).contains("\"variables\": [\"branch4\", \"branch5\", \"branch6\"]"));
+		assertTrue(lines.get(0).contains("\"assertLine\": 7"));
+	}
+}
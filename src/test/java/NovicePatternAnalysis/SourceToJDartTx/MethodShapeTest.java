@@ -0,0 +1,140 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Unit tests for MethodShape and ShapeIndex, through BranchCounterProcessor.
+ */
+public class MethodShapeTest {
+
+	private static final String COPIES = "class A {\n"
+			+ "	int f(int x) {\n"
+			+ "		int y = 0;\n"
+			+ "		if (x < 0) {\n"
+			+ "			y = 1;\n"
+			+ "		}\n"
+			+ "		if (x > 0) {\n"
+			+ "			y = -1;\n"
+			+ "		}\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "\n"
+			+ "	// A copy, renamed and reformatted\n"
+			+ "	int g(int n) { int r = 0;\n"
+			+ "		if (n < 0) r = 1; // negative\n"
+			+ "		if (n > 0) r = -1;\n"
+			+ "		return r; }\n"
+			+ "\n"
+			+ "	int h(int x) {\n"
+			+ "		int y = 0;\n"
+			+ "		if (x < 0) {\n"
+			+ "			y = 1;\n"
+			+ "		}\n"
+			+ "		if (x > 1) {\n"
+			+ "			y = -1;\n"
+			+ "		}\n"
+			+ "		return y;\n"
+			+ "	}\n"
+			+ "}\n";
+
+	@Test
+	public void ignoresNamesLayoutAndComments() {
+		CtClass<?> type = Launcher.parseClass(COPIES);
+		String f = MethodShape.of(type.getMethodsByName("f").get(0));
+		assertEquals(f, MethodShape.of(type.getMethodsByName("g").get(0)));
+		assertNotEquals(f, MethodShape.of(type.getMethodsByName("h").get(0)));
+	}
+
+	@Test
+	public void keepsConstantsAndCalledMethods() {
+		String f = "	int f(int x) {\n"
+				+ "		int y = 0;\n"
+				+ "		if (x < LIMIT) { y = 1; }\n"
+				+ "		if (helper(x) > 0) { y = 2; }\n"
+				+ "		return y;\n"
+				+ "	}\n";
+		String shape = shape("class A {\n	static final int LIMIT = 0;\n	int helper(int x) { return x; }\n" + f + "}\n");
+		assertEquals(shape, shape("class B {\n	static final int LIMIT = 0;\n	int helper(int n) { return n; }\n"
+				+ f + "}\n"));
+		assertNotEquals(shape, shape("class A {\n	static final int LIMIT = 1;\n	int helper(int x) { return x; }\n"
+				+ f + "}\n"));
+		assertNotEquals(shape, shape("class A {\n	static final int LIMIT = 0;\n	int helper(int x) { return -x; }\n"
+				+ f + "}\n"));
+		assertNotEquals(shape(COPIES.replace("y = 1;", "y = Math.abs(x);")),
+				shape(COPIES.replace("y = 1;", "y = Math.negateExact(x);")));
+	}
+
+	@Test
+	public void registersChainsInInputOrder() throws InterruptedException {
+		final Path first = Paths.get("a/Main.java");
+		final Path second = Paths.get("b/Main.java");
+		final ShapeIndex shapes = new ShapeIndex(Arrays.asList(first, second));
+		final ChainInfo late = new ChainInfo("B", "f()", Arrays.asList(3, 4), Arrays.asList("branch3", "branch4"))
+				.withShape("s#0", "");
+		Thread worker = new Thread() {
+			@Override
+			public void run() {
+				try {
+					shapes.await(second);
+					shapes.register(second.toString(), late);
+					shapes.release(second);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		worker.start();
+		worker.join(200);
+		assertTrue("the second input waits for the first", worker.isAlive());
+
+		ChainInfo early = new ChainInfo("A", "f()", Arrays.asList(5, 6), Arrays.asList("branch5", "branch6"))
+				.withShape("s#0", "");
+		shapes.await(first);
+		shapes.register(first.toString(), early);
+		shapes.release(first);
+		worker.join();
+		assertEquals(early, shapes.representative("s#0"));
+		assertEquals(ChainInfo.key(first.toString(), early.getId()), shapes.key("s#0"));
+	}
+
+	private static String shape(String type) {
+		return MethodShape.of(Launcher.parseClass(type).getMethodsByName("f").get(0));
+	}
+
+	@Test
+	public void recordsCopiesAsDuplicatesWithRemappedNames() {
+		CtClass<?> type = Launcher.parseClass(COPIES);
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		processor.setShapeIndex(new ShapeIndex(), "Copies.java");
+		for (String name : Arrays.asList("f", "g", "h")) {
+			processor.process(type.getMethodsByName(name).get(0).getBody());
+		}
+
+		ChainInfo f = processor.getChains().get(0);
+		ChainInfo g = processor.getChains().get(1);
+		ChainInfo h = processor.getChains().get(2);
+		assertEquals(ChainInfo.key("Copies.java", f.getId()), g.getDuplicateOf());
+		assertEquals(Arrays.asList("branch15", "branch16"), g.getVariables());
+		assertEquals("branch16", g.remap("branch7", f));
+		assertTrue(!h.isDuplicate() && !f.isDuplicate());
+
+		CtMethod<?> copy = type.getMethodsByName("g").get(0);
+		assertTrue(copy.getElements(new TypeFilter<>(CtAssert.class)).isEmpty());
+		assertEquals(g.toLine(), ChainInfo.fromLine(g.toLine()).toLine());
+	}
+}
@@ -0,0 +1,45 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.support.compiler.VirtualFile;
+
+/**
+ * Unit tests for MethodSplicer.
+ */
+public class MethodSplicerTest {
+
+	private static final String SOURCE = "/// header comment\n"
+			+ "public class A {\n"
+			+ "\t/// kept as-is\n"
+			+ "\tint untouched(int x) { if (x > 0)   return 1; return 0; }\n"
+			+ "\n"
+			+ "\tint chain(int x) {\n"
+			+ "\t\tif (x < 0) x = 1;\n"
+			+ "\t\tif (x > 0) x = 2;\n"
+			+ "\t\treturn x;\n"
+			+ "\t}\n"
+			+ "}\n";
+
+	@Test
+	public void reprintsOnlyInstrumentedMethods() {
+		Launcher l = new Launcher();
+		l.addInputResource(new VirtualFile(SOURCE, "A.java"));
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		l.addProcessor(processor);
+		l.buildModel();
+		l.process();
+
+		String spliced = new MethodSplicer(l.getEnvironment()).splice(SOURCE, processor.getInstrumentedBlocks());
+
+		int chainStart = SOURCE.indexOf("\tint chain");
+		assertEquals(SOURCE.substring(0, chainStart), spliced.substring(0, chainStart));
+		assertTrue(spliced.contains("branch7 = true;"));
+		assertTrue(spliced, spliced.contains("assert branch7 ^ branch8 : "));
+		assertTrue(spliced.endsWith("\t}\n}\n"));
+	}
+}
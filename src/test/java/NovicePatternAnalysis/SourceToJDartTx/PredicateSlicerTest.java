@@ -0,0 +1,112 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.reflect.code.CtAssert;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Unit tests for PredicateSlicer, through BranchCounterProcessor.
+ */
+public class PredicateSlicerTest {
+
+	@Test
+	public void slicesIndependentGuards() {
+		BranchCounterProcessor processor = slicing();
+		CtMethod<?> f = BranchCounterProcessorTest.process("class A {\n"
+				+ "	static int f(int x, int z, int[] unused) {\n"
+				+ "		int y = 0;\n"
+				+ "		if (x < 0) {\n"
+				+ "			y = 1;\n"
+				+ "		}\n"
+				+ "		else if (x == 0) {\n"
+				+ "			y = 2;\n"
+				+ "		}\n"
+				+ "		if (x > z) {\n"
+				+ "			y = -1;\n"
+				+ "		}\n"
+				+ "		return y;\n"
+				+ "	}\n"
+				+ "}\n", processor);
+		processor.processingDone();
+
+		assertTrue(f.getElements(new TypeFilter<>(CtAssert.class)).isEmpty());
+		assertEquals(Arrays.asList("overlap_7_10"), processor.getChains().get(0).getSlices());
+		List<CtMethod<?>> slices = f.getDeclaringType().getMethodsByName("overlap_7_10");
+		assertEquals(1, slices.size());
+		assertEquals("private static boolean overlap_7_10(int x, int z) {\n"
+				+ "    return ((!(x < 0)) && (x == 0)) && (x > z);\n"
+				+ "}", slices.get(0).toString());
+	}
+
+	@Test
+	public void fallsBackWhenAGuardReadsStateWrittenEarlierInTheChain() {
+		assertFallsBack("class A {\n"
+				+ "	int f(int x) {\n"
+				+ "		if (x < 0) {\n"
+				+ "			x = 5;\n"
+				+ "		}\n"
+				+ "		if (x > 0) {\n"
+				+ "			x--;\n"
+				+ "		}\n"
+				+ "		return x;\n"
+				+ "	}\n"
+				+ "}\n");
+	}
+
+	@Test
+	public void fallsBackWhenAGuardReadsAnArrayWrittenEarlierInTheChain() {
+		assertFallsBack("class A {\n"
+				+ "	int f(int[] a) {\n"
+				+ "		if (a[0] < 0) {\n"
+				+ "			a[0] = 5;\n"
+				+ "		}\n"
+				+ "		if (a[0] > 0) {\n"
+				+ "			a[0]--;\n"
+				+ "		}\n"
+				+ "		return a[0];\n"
+				+ "	}\n"
+				+ "}\n");
+	}
+
+	@Test
+	public void fallsBackWhenAGuardReadsAnObjectAMethodWasCalledOnEarlierInTheChain() {
+		assertFallsBack("class A {\n"
+				+ "	int f(java.util.List<Integer> list) {\n"
+				+ "		if (list.isEmpty()) {\n"
+				+ "			list.add(1);\n"
+				+ "		}\n"
+				+ "		if (list.size() == 1) {\n"
+				+ "			list.clear();\n"
+				+ "		}\n"
+				+ "		return list.size();\n"
+				+ "	}\n"
+				+ "}\n");
+	}
+
+	/**
+	 * Checks that the chain of f in type is instrumented in place rather than sliced.
+	 */
+	private static void assertFallsBack(String type) {
+		BranchCounterProcessor processor = slicing();
+		CtMethod<?> f = BranchCounterProcessorTest.process(type, processor);
+		processor.processingDone();
+
+		assertEquals(1, f.getElements(new TypeFilter<>(CtAssert.class)).size());
+		assertTrue(processor.getChains().get(0).getSlices().isEmpty());
+		assertTrue(processor.getSlices().isEmpty());
+	}
+
+	private static BranchCounterProcessor slicing() {
+		BranchCounterProcessor processor = new BranchCounterProcessor();
+		processor.setSlicing(true);
+		return processor;
+	}
+}
@@ -0,0 +1,84 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for RunReport.
+ */
+public class RunReportTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void reportsCountersAndPhasesPerFile() throws IOException {
+		Path input = tmp.getRoot().toPath().resolve("Chain.java");
+		Files.write(input, Arrays.asList(
+				"public class Chain {",
+				"	int f(int x) {",
+				"		int y = 0;",
+				"		if (x < 0) { y = 1; }",
+				"		if (x > 0) { y = 2; }",
+				"		if (x == 0) { y = 3; }",
+				"		return y;",
+				"	}",
+				"}"), StandardCharsets.UTF_8);
+		TransformOptions options = TransformOptions.parse(new String[] { "-o", tmp.newFolder("out").toString(),
+				input.toString() });
+
+		TransformResult result;
+		try (SubmissionTransformer transformer = new SubmissionTransformer(options)) {
+			result = transformer.transform(input, tmp.getRoot().toPath().resolve("out/Chain.java"));
+		}
+		TransformMetrics metrics = result.getMetrics();
+		assertEquals(TransformResult.Status.TRANSFORMED, result.getStatus());
+		assertEquals(3, metrics.getBranchesInstrumented());
+		// One assertion per pair of consecutive flags
+		assertEquals(2, metrics.getAssertionsEmitted());
+		assertTrue(metrics.getBlocksVisited() >= 1);
+		assertTrue(metrics.getWallNanos(TransformMetrics.Phase.BUILD) > 0);
+
+		Path csv = tmp.getRoot().toPath().resolve("report.csv");
+		try (RunReport report = new RunReport(csv, 1)) {
+			report.add(result);
+			report.finish(1000, 2048);
+		}
+		List<String> rows = Files.readAllLines(csv, StandardCharsets.UTF_8);
+		assertEquals(3, rows.size());
+		String[] header = rows.get(0).split(",");
+		String[] row = rows.get(1).split(",", -1);
+		String[] total = rows.get(2).split(",", -1);
+		assertEquals(header.length, row.length);
+		assertEquals(header.length, total.length);
+		assertEquals("1", row[3]);
+		assertEquals("3", row[5]);
+		assertEquals("TOTAL", total[0]);
+		assertEquals("2048", total[total.length - 1]);
+
+		Path json = tmp.getRoot().toPath().resolve("report.json");
+		try (RunReport report = new RunReport(json, 1)) {
+			report.add(result);
+			report.finish(1000, 2048);
+		}
+		String text = new String(Files.readAllBytes(json), StandardCharsets.UTF_8);
+		assertTrue(text.contains("\"branchesInstrumented\": 3"));
+		assertTrue(text.contains("\"peakHeapBytes\": 2048"));
+	}
+
+	@Test
+	public void quotesJsonStrings() {
+		assertEquals("\"C:\\\\a \\\"b\\\"\\n\\u0001\"", RunReport.quote("C:\\a \"b\"\n\u0001"));
+	}
+}
@@ -0,0 +1,58 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for TransformCache.
+ */
+public class TransformCacheTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void keyDependsOnPathSourceAndFingerprint() {
+		byte[] source = "class A {}".getBytes(StandardCharsets.UTF_8);
+		Path file = Paths.get("A.java");
+		assertEquals(TransformCache.key(file, source, ""), TransformCache.key(file, source, ""));
+		assertNotEquals(TransformCache.key(file, source, ""), TransformCache.key(file, source, "counter"));
+		assertNotEquals(TransformCache.key(file, source, ""),
+				TransformCache.key(file, "class B {}".getBytes(StandardCharsets.UTF_8), ""));
+		assertNotEquals(TransformCache.key(file, source, ""), TransformCache.key(Paths.get("B.java"), source, ""));
+	}
+
+	@Test
+	public void restoresStoredEntries() throws IOException {
+		TransformCache cache = new TransformCache(tmp.newFolder("cache").toPath());
+		Path root = tmp.newFolder("out").toPath();
+		Path file = Paths.get("edu/A.java");
+		Files.createDirectories(root.resolve("edu"));
+		Files.write(root.resolve(file), "package edu; class A {}".getBytes(StandardCharsets.UTF_8));
+		ChainInfo chain = new ChainInfo("edu.A", "f(int)", Arrays.asList(3, 6), Arrays.asList("branch3", "branch6"));
+
+		String key = TransformCache.key(file, Files.readAllBytes(root.resolve(file)), "");
+		assertNull(cache.restore(key, tmp.getRoot().toPath().resolve("missing")));
+		cache.store(key, root, Arrays.asList(file), Arrays.asList(chain));
+
+		Path restored = tmp.getRoot().toPath().resolve("restored");
+		List<ChainInfo> chains = cache.restore(key, restored);
+		assertEquals("package edu; class A {}",
+				new String(Files.readAllBytes(restored.resolve(file)), StandardCharsets.UTF_8));
+		assertEquals(1, chains.size());
+		assertEquals(chain.toLine(), chains.get(0).toLine());
+	}
+}
@@ -0,0 +1,60 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for TransformServer.
+ */
+public class TransformServerTest {
+
+	@Test
+	public void answersEachRequestInTurn() throws IOException {
+		String source = "public class Chain {\n"
+				+ "\tint f(int x) {\n"
+				+ "\t\tint y = 0;\n"
+				+ "\t\tif (x < 0) { y = 1; }\n"
+				+ "\t\tif (x > 0) { y = 2; }\n"
+				+ "\t\treturn y;\n"
+				+ "\t}\n"
+				+ "}\n";
+		byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+		String requests = "HELLO\n"
+				+ "TRANSFORM ../Chain.java 0\n"
+				+ "TRANSFORM Chain.java " + bytes.length + "\n" + source
+				+ "QUIT\n"
+				+ "TRANSFORM Ignored.java 0\n";
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SubmissionTransformer transformer = new SubmissionTransformer(
+				TransformOptions.parse(new String[] { "--serve" }))) {
+			new TransformServer(transformer).serve(
+					new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+		}
+
+		String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertTrue(lines[0].startsWith("FAILED "));
+		assertTrue(lines[1].startsWith("FAILED "));
+		String[] header = lines[2].split(" ");
+		assertEquals("OK", header[0]);
+		assertEquals("TRANSFORMED", header[1]);
+		assertEquals("1", header[2]);
+		assertEquals("1", header[3]);
+		assertTrue(lines[3].startsWith("FILE Chain.java "));
+
+		// The file is length-prefixed, and needn't end with a line break
+		String response = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		int fileStart = response.indexOf(lines[3]) + lines[3].length() + 1;
+		int fileLength = Integer.parseInt(lines[3].substring("FILE Chain.java ".length()));
+		String file = response.substring(fileStart, fileStart + fileLength);
+		assertTrue(file.contains("assert "));
+		assertTrue(response.substring(fileStart + fileLength).startsWith("CHAIN Chain\tf(int)\t"));
+	}
+}
@@ -0,0 +1,105 @@
+package NovicePatternAnalysis.SourceToJDartTx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * Unit tests for VerdictMemo, GuardCanonicalizer and MemoOracle.
+ */
+public class VerdictMemoTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void canonicalFormIgnoresNamesAndComparisonDirection() {
+		assertEquals("(v0:int<0) ; (v0:int>0)", canonical("int x", "x < 0", "x > 0"));
+		assertEquals(canonical("int x", "x < 0", "x > 0"), canonical("int n", "0 > n", "n > 0x0"));
+		assertEquals(canonical("int a, int b", "a < b", "b < a"), canonical("int p, int q", "q > p", "p > q"));
+		assertNotEquals(canonical("int x", "x < 0", "x > 0"), canonical("long x", "x < 0", "x > 0"));
+		assertNotEquals(canonical("int x", "x + 1 < 0", "x > 0"), canonical("int x", "x + 1L < 0", "x > 0"));
+		assertNull(canonical("int x", "x < 0", "Math.abs(x) > 0"));
+	}
+
+	@Test
+	public void reusesExclusiveVerdictsAcrossRuns() throws IOException {
+		Path file = tmp.getRoot().toPath().resolve("memo");
+		try (VerdictMemo memo = new VerdictMemo(file)) {
+			MemoOracle oracle = new MemoOracle(memo, new IntervalChecker());
+			assertEquals(Verdict.EXCLUSIVE, oracle.decide(guards("int x", "x < 0", "x > 0"), 0, 1));
+			assertEquals(Verdict.OVERLAPPING, oracle.decide(guards("int x", "x <= 0", "x >= 0"), 0, 1));
+			assertEquals(1, memo.size());
+		}
+
+		try (VerdictMemo memo = new VerdictMemo(file)) {
+			MemoOracle oracle = new MemoOracle(memo, null);
+			assertEquals(Verdict.EXCLUSIVE, oracle.decide(guards("int n", "n > 0", "0 > n"), 1, 0));
+			assertEquals(Verdict.UNKNOWN, oracle.decide(guards("int x", "x <= 0", "x >= 0"), 0, 1));
+		}
+	}
+
+	@Test
+	public void decidesChainsWithTheShapeOfAnAnalyzedChain() throws IOException {
+		Path file = tmp.getRoot().toPath().resolve("memo");
+		String method = "	int f(int x) {\n"
+				+ "		int y = 0;\n"
+				+ "		if (x >= 0) { y = 1; }\n"
+				+ "		if (x <= 0) { y = 2; }\n"
+				+ "		return y;\n"
+				+ "	}\n";
+		try (VerdictMemo memo = new VerdictMemo(file)) {
+			BranchCounterProcessor processor = new BranchCounterProcessor();
+			processor.setMemo(memo);
+			processor.process(Launcher.parseClass("class A {\n" + method + "}\n").getMethodsByName("f").get(0).getBody());
+			ChainInfo chain = processor.getChains().get(0);
+			assertEquals(Verdict.UNKNOWN, chain.getVerdict());
+			assertEquals(1, processor.getAssertionsEmitted());
+
+			// As the analysis would, e.g. FuzzPrefilter
+			memo.record(chain.withVerdict(Verdict.OVERLAPPING));
+			assertEquals(1, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+		}
+
+		try (VerdictMemo memo = new VerdictMemo(file)) {
+			BranchCounterProcessor processor = new BranchCounterProcessor();
+			processor.setMemo(memo);
+			CtClass<?> copy = Launcher.parseClass("class B {\n" + method.replace('y', 'z') + "}\n");
+			processor.process(copy.getMethodsByName("f").get(0).getBody());
+			assertEquals(Verdict.OVERLAPPING, processor.getChains().get(0).getVerdict());
+			assertEquals(0, processor.getAssertionsEmitted());
+		}
+	}
+
+	private static String canonical(String parameters, String first, String second) {
+		return GuardCanonicalizer.canonical(guards(parameters, first, second), 0, 1);
+	}
+
+	private static ChainGuards guards(String parameters, String first, String second) {
+		CtClass<?> type = Launcher.parseClass("class A {\n"
+				+ "	void f(" + parameters + ") {\n"
+				+ "		if (" + first + ") {\n"
+				+ "		}\n"
+				+ "		if (" + second + ") {\n"
+				+ "		}\n"
+				+ "	}\n"
+				+ "}\n");
+		List<CtIf> chain = type.getElements(new TypeFilter<>(CtIf.class));
+		return new ChainGuards(chain);
+	}
+}